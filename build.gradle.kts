@@ -17,6 +17,7 @@ plugins {
     id("org.asciidoctor.jvm.convert") version "3.3.0"
     id("org.asciidoctor.jvm.pdf") version "3.3.0"
     id("org.asciidoctor.jvm.epub") version "3.3.0"
+    id("me.champeau.gradle.jmh") version "0.5.2"
     idea
     application
 }
@@ -53,6 +54,10 @@ tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
 }
 
+jmh {
+    jmhVersion = "1.26"
+}
+
 tasks.withType<Test> {
     useTestNG {
         testLogging {
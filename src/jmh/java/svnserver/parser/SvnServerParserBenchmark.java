@@ -0,0 +1,89 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.parser;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import svnserver.parser.token.ListBeginToken;
+import svnserver.parser.token.ListEndToken;
+import svnserver.parser.token.StringToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading of textdelta-chunk commands through token objects and through buffer slices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SvnServerParserBenchmark {
+  private static final int CHUNK_COUNT = 64;
+
+  @Param({"1024", "102400", "1048576"})
+  public int chunkSize;
+
+  private byte[] stream;
+
+  @Setup
+  public void setup() throws IOException {
+    final byte[] chunk = new byte[chunkSize];
+    new Random(0).nextBytes(chunk);
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (SvnServerWriter writer = new SvnServerWriter(output)) {
+      for (int i = 0; i < CHUNK_COUNT; ++i) {
+        writer
+            .listBegin()
+            .word("textdelta-chunk")
+            .listBegin()
+            .string("c1")
+            .binary(chunk)
+            .listEnd()
+            .listEnd();
+      }
+    }
+    stream = output.toByteArray();
+  }
+
+  @Benchmark
+  public void token(Blackhole blackhole) throws IOException {
+    final SvnServerParser parser = new SvnServerParser(new ByteArrayInputStream(stream));
+    for (int i = 0; i < CHUNK_COUNT; ++i) {
+      parser.readToken(ListBeginToken.class);
+      blackhole.consume(parser.readText());
+      parser.readToken(ListBeginToken.class);
+      blackhole.consume(parser.readText());
+      final StringToken chunk = parser.readToken(StringToken.class);
+      blackhole.consume(chunk.getData());
+      parser.readToken(ListEndToken.class);
+      parser.readToken(ListEndToken.class);
+    }
+  }
+
+  @Benchmark
+  public void slice(Blackhole blackhole) throws IOException {
+    final SvnServerParser parser = new SvnServerParser(new ByteArrayInputStream(stream));
+    for (int i = 0; i < CHUNK_COUNT; ++i) {
+      parser.readToken(ListBeginToken.class);
+      blackhole.consume(parser.readText());
+      parser.readToken(ListBeginToken.class);
+      blackhole.consume(parser.readText());
+      final BinarySlice chunk = parser.readBinaryItem();
+      blackhole.consume(chunk);
+      parser.readToken(ListEndToken.class);
+      parser.readToken(ListEndToken.class);
+    }
+  }
+}
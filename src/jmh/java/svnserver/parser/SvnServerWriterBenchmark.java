@@ -0,0 +1,130 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.parser;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes update editor drive for checkout of many small files and counts write calls to socket stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SvnServerWriterBenchmark {
+  @Param({"100000"})
+  public int fileCount;
+
+  @Param({"false", "true"})
+  public boolean cork;
+
+  private byte[] window;
+
+  @Setup
+  public void setup() {
+    window = new byte[200];
+    new Random(0).nextBytes(window);
+  }
+
+  @Benchmark
+  public void checkout(@NotNull WriteCounters counters) throws IOException {
+    final CountingStream stream = new CountingStream();
+    final SvnServerWriter writer = new SvnServerWriter(stream);
+    if (cork)
+      writer.cork();
+
+    for (int i = 0; i < fileCount; ++i) {
+      final String path = "trunk/src/main/java/package" + (i / 100) + "/File" + i + ".java";
+      writer
+          .listBegin()
+          .word("add-file")
+          .listBegin()
+          .string(path)
+          .string("d1")
+          .string("c2")
+          .listBegin().listEnd()
+          .listEnd()
+          .listEnd();
+      writer
+          .listBegin()
+          .word("apply-textdelta")
+          .listBegin()
+          .string("c2")
+          .listBegin().listEnd()
+          .listEnd()
+          .listEnd();
+      writer
+          .listBegin()
+          .word("textdelta-chunk")
+          .listBegin()
+          .string("c2")
+          .binary(out -> out.write(window))
+          .listEnd()
+          .listEnd();
+      writer
+          .listBegin()
+          .word("textdelta-end")
+          .listBegin()
+          .string("c2")
+          .listEnd()
+          .listEnd();
+      writer
+          .listBegin()
+          .word("close-file")
+          .listBegin()
+          .string("c2")
+          .listBegin().string("d41d8cd98f00b204e9800998ecf8427e").listEnd()
+          .listEnd()
+          .listEnd();
+    }
+
+    if (cork)
+      writer.uncork();
+
+    counters.writes += stream.writes;
+    counters.bytes += stream.bytes;
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class WriteCounters {
+    public long writes;
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      writes = 0;
+      bytes = 0;
+    }
+  }
+
+  private static final class CountingStream extends OutputStream {
+    private long writes;
+    private long bytes;
+
+    @Override
+    public void write(int b) {
+      writes++;
+      bytes++;
+    }
+
+    @Override
+    public void write(@NotNull byte[] b, int off, int len) {
+      writes++;
+      bytes += len;
+    }
+  }
+}
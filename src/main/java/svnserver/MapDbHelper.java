@@ -0,0 +1,41 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver;
+
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DB;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * MapDB helper methods.
+ */
+public final class MapDbHelper {
+  private MapDbHelper() {
+  }
+
+  /**
+   * Remove all entries of map and forget its name.
+   * <p>
+   * Map must be opened by caller: custom serializers are not stored in name catalog, so database can't open it by name.
+   */
+  public static void deleteMap(@NotNull DB db, @NotNull String name, @NotNull Map<?, ?> map) {
+    map.clear();
+    forgetName(db, name);
+  }
+
+  /**
+   * Remove collection parameters from name catalog. MapDB has no method to delete collection.
+   */
+  public static void forgetName(@NotNull DB db, @NotNull String name) {
+    final SortedMap<String, String> catalog = db.nameCatalogLoad();
+    catalog.keySet().removeIf(key -> key.startsWith(name + "#"));
+    db.nameCatalogSave(catalog);
+  }
+}
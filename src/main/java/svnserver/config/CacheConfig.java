@@ -8,7 +8,7 @@
 package svnserver.config;
 
 import org.jetbrains.annotations.NotNull;
-import org.mapdb.DB;
+import svnserver.context.CacheStore;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -20,5 +20,5 @@ import java.nio.file.Path;
  */
 public interface CacheConfig {
   @NotNull
-  DB createCache(@NotNull Path basePath) throws IOException;
+  CacheStore createCache(@NotNull Path basePath) throws IOException;
 }
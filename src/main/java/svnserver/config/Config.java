@@ -10,6 +10,10 @@ package svnserver.config;
 import org.jetbrains.annotations.NotNull;
 import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression;
 import svnserver.config.serializer.ConfigType;
+import svnserver.repository.git.GitMetadataWarmer;
+import svnserver.repository.git.GitPropertyCache;
+import svnserver.repository.git.GitRenameDetector;
+import svnserver.repository.git.GitTreeCache;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -48,6 +52,23 @@ public final class Config {
   private SVNDeltaCompression compressionLevel = SVNDeltaCompression.LZ4;
   private long shutdownTimeout = TimeUnit.SECONDS.toMillis(5);
   private boolean parallelIndexing = true;
+  private int workerThreads = 256;
+  private int connectionQueueSize = 256;
+  private long connectionQueueTimeout = TimeUnit.SECONDS.toMillis(60);
+  private int maxConnectionsPerUser = 0;
+  private int maxConnectionsPerRepository = 0;
+  private boolean parkIdleConnections = true;
+  private int parkIdleDelay = 100;
+  private int deltaThreads = 0;
+  private long deltaLookahead = 16 * 1024 * 1024;
+  private boolean watchRefs = false;
+  private int renameLimit = GitRenameDetector.DEFAULT_RENAME_LIMIT;
+  private long propertyCacheMemory = GitPropertyCache.DEFAULT_MEMORY_LIMIT;
+  private long treeCacheSize = GitTreeCache.DEFAULT_TREE_ENTRIES;
+  private long pathCacheSize = GitTreeCache.DEFAULT_PATH_ENTRIES;
+  private int metadataWarmupThreads = GitMetadataWarmer.DEFAULT_THREADS;
+  private int metadataWarmupQueue = GitMetadataWarmer.DEFAULT_QUEUE_SIZE;
+  private boolean metadataWarmupHead = false;
 
   @SuppressWarnings("UnusedDeclaration")
   public Config() {
@@ -112,6 +133,142 @@ public final class Config {
     return shared;
   }
 
+  public int getWorkerThreads() {
+    return workerThreads;
+  }
+
+  public void setWorkerThreads(int workerThreads) {
+    this.workerThreads = workerThreads;
+  }
+
+  public int getConnectionQueueSize() {
+    return connectionQueueSize;
+  }
+
+  public void setConnectionQueueSize(int connectionQueueSize) {
+    this.connectionQueueSize = connectionQueueSize;
+  }
+
+  public long getConnectionQueueTimeout() {
+    return connectionQueueTimeout;
+  }
+
+  public void setConnectionQueueTimeout(long connectionQueueTimeout) {
+    this.connectionQueueTimeout = connectionQueueTimeout;
+  }
+
+  public int getMaxConnectionsPerUser() {
+    return maxConnectionsPerUser;
+  }
+
+  public void setMaxConnectionsPerUser(int maxConnectionsPerUser) {
+    this.maxConnectionsPerUser = maxConnectionsPerUser;
+  }
+
+  public int getMaxConnectionsPerRepository() {
+    return maxConnectionsPerRepository;
+  }
+
+  public void setMaxConnectionsPerRepository(int maxConnectionsPerRepository) {
+    this.maxConnectionsPerRepository = maxConnectionsPerRepository;
+  }
+
+  public boolean getParkIdleConnections() {
+    return parkIdleConnections;
+  }
+
+  public void setParkIdleConnections(boolean parkIdleConnections) {
+    this.parkIdleConnections = parkIdleConnections;
+  }
+
+  public int getParkIdleDelay() {
+    return parkIdleDelay;
+  }
+
+  public void setParkIdleDelay(int parkIdleDelay) {
+    this.parkIdleDelay = parkIdleDelay;
+  }
+
+  public int getDeltaThreads() {
+    return deltaThreads;
+  }
+
+  public void setDeltaThreads(int deltaThreads) {
+    this.deltaThreads = deltaThreads;
+  }
+
+  public long getDeltaLookahead() {
+    return deltaLookahead;
+  }
+
+  public void setDeltaLookahead(long deltaLookahead) {
+    this.deltaLookahead = deltaLookahead;
+  }
+
+  public boolean getWatchRefs() {
+    return watchRefs;
+  }
+
+  public void setWatchRefs(boolean watchRefs) {
+    this.watchRefs = watchRefs;
+  }
+
+  public int getRenameLimit() {
+    return renameLimit;
+  }
+
+  public void setRenameLimit(int renameLimit) {
+    this.renameLimit = renameLimit;
+  }
+
+  public long getPropertyCacheMemory() {
+    return propertyCacheMemory;
+  }
+
+  public void setPropertyCacheMemory(long propertyCacheMemory) {
+    this.propertyCacheMemory = propertyCacheMemory;
+  }
+
+  public long getTreeCacheSize() {
+    return treeCacheSize;
+  }
+
+  public void setTreeCacheSize(long treeCacheSize) {
+    this.treeCacheSize = treeCacheSize;
+  }
+
+  public long getPathCacheSize() {
+    return pathCacheSize;
+  }
+
+  public void setPathCacheSize(long pathCacheSize) {
+    this.pathCacheSize = pathCacheSize;
+  }
+
+  public int getMetadataWarmupThreads() {
+    return metadataWarmupThreads;
+  }
+
+  public void setMetadataWarmupThreads(int metadataWarmupThreads) {
+    this.metadataWarmupThreads = metadataWarmupThreads;
+  }
+
+  public int getMetadataWarmupQueue() {
+    return metadataWarmupQueue;
+  }
+
+  public void setMetadataWarmupQueue(int metadataWarmupQueue) {
+    this.metadataWarmupQueue = metadataWarmupQueue;
+  }
+
+  public boolean getMetadataWarmupHead() {
+    return metadataWarmupHead;
+  }
+
+  public void setMetadataWarmupHead(boolean metadataWarmupHead) {
+    this.metadataWarmupHead = metadataWarmupHead;
+  }
+
   public boolean canUseParallelIndexing() {
     return parallelIndexing;
   }
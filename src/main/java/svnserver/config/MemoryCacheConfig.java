@@ -8,9 +8,10 @@
 package svnserver.config;
 
 import org.jetbrains.annotations.NotNull;
-import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import svnserver.config.serializer.ConfigType;
+import svnserver.context.CacheStore;
+import svnserver.context.SingleCacheStore;
 
 import java.nio.file.Path;
 
@@ -23,7 +24,7 @@ import java.nio.file.Path;
 public final class MemoryCacheConfig implements CacheConfig {
   @NotNull
   @Override
-  public DB createCache(@NotNull Path basePath) {
-    return DBMaker.memoryDB().make();
+  public CacheStore createCache(@NotNull Path basePath) {
+    return new SingleCacheStore(DBMaker.memoryDB().make());
   }
 }
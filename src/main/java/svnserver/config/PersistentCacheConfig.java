@@ -12,8 +12,12 @@ import org.mapdb.DB;
 import org.mapdb.DBException;
 import org.mapdb.DBMaker;
 import svnserver.config.serializer.ConfigType;
+import svnserver.context.CacheStore;
+import svnserver.context.ShardedCacheStore;
+import svnserver.context.SingleCacheStore;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -28,12 +32,29 @@ public final class PersistentCacheConfig implements CacheConfig {
   @NotNull
   private String path = "git-as-svn.mapdb";
   private boolean enableTransactions = true;
+  // Directory for separate cache database of every repository, single database is used if empty
+  @NotNull
+  private String shardsPath = "";
+  // Maximum delay in milliseconds of grouped commit, zero to commit every change immediately
+  private long commitDelay = 0;
+  private int commitBatch = 64;
 
   @NotNull
   @Override
-  public DB createCache(@NotNull Path basePath) throws IOException {
-    final Path cacheBase = ConfigHelper.joinPath(basePath, path);
-    Files.createDirectories(cacheBase.getParent());
+  public CacheStore createCache(@NotNull Path basePath) throws IOException {
+    final DB sharedDB = createDB(ConfigHelper.joinPath(basePath, path));
+    if (shardsPath.isEmpty())
+      return new SingleCacheStore(sharedDB, commitDelay, commitBatch);
+    return new ShardedCacheStore(sharedDB, ConfigHelper.joinPath(basePath, shardsPath), this::createDB, commitDelay, commitBatch);
+  }
+
+  @NotNull
+  private DB createDB(@NotNull Path cacheBase) {
+    try {
+      Files.createDirectories(cacheBase.getParent());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
 
     try {
       final DBMaker.Maker maker = DBMaker.fileDB(cacheBase.toFile())
@@ -0,0 +1,40 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.config;
+
+import org.jetbrains.annotations.NotNull;
+import svnserver.config.serializer.ConfigType;
+import svnserver.context.SharedContext;
+import svnserver.server.SvndiffCache;
+
+import java.io.IOException;
+
+/**
+ * On-disk cache of encoded file content for checkout.
+ */
+@ConfigType("svndiffCache")
+public final class SvndiffCacheConfig implements SharedConfig {
+  @NotNull
+  private String path = "svndiff-cache";
+  private long maxSize = 1024L * 1024 * 1024;
+  private long minFileSize = 4096;
+
+  public SvndiffCacheConfig() {
+  }
+
+  public SvndiffCacheConfig(@NotNull String path, long maxSize, long minFileSize) {
+    this.path = path;
+    this.maxSize = maxSize;
+    this.minFileSize = minFileSize;
+  }
+
+  @Override
+  public void create(@NotNull SharedContext context) throws IOException {
+    context.add(SvndiffCache.class, new SvndiffCache(ConfigHelper.joinPath(context.getBasePath(), path), maxSize, minFileSize));
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.context;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mapdb.DB;
+import org.slf4j.Logger;
+import svnserver.Loggers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit of cache databases.
+ * <p>
+ * Writers that request commit of same database within commit delay share single commit (and single fsync).
+ * Batch is committed when delay elapses or when batch size writers are waiting.
+ */
+final class CacheCommitter {
+  @NotNull
+  private static final Logger log = Loggers.misc;
+  // Delay of background commit for caches that can be rebuilt on loss
+  private static final long ASYNC_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+  private final long delay;
+  private final int batchSize;
+  @NotNull
+  private final Map<DB, Group> groups = new IdentityHashMap<>();
+  @Nullable
+  private ScheduledThreadPoolExecutor executor;
+  private boolean closed;
+  @NotNull
+  private final AtomicLong commits = new AtomicLong();
+
+  /**
+   * @param delay     Maximum time in milliseconds between commit request and commit, zero for commit in requesting thread.
+   * @param batchSize Number of waiting writers to commit without waiting for delay.
+   */
+  CacheCommitter(long delay, int batchSize) {
+    this.delay = delay;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Commit database and wait until changes are written.
+   */
+  void commit(@NotNull DB db) throws IOException {
+    if (delay <= 0) {
+      db.commit();
+      commits.incrementAndGet();
+      return;
+    }
+    try {
+      group(db).request(true).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for cache commit");
+    } catch (ExecutionException e) {
+      throw new IOException("Can't commit cache database", e.getCause());
+    }
+  }
+
+  /**
+   * Commit database in background.
+   */
+  void commitLater(@NotNull DB db) {
+    group(db).request(false);
+  }
+
+  /**
+   * @return Number of database commits.
+   */
+  long getCommits() {
+    return commits.get();
+  }
+
+  /**
+   * Commit pending changes of database and forget it.
+   */
+  void remove(@NotNull DB db) {
+    final Group group;
+    synchronized (this) {
+      group = groups.remove(db);
+    }
+    if (group != null)
+      group.flush();
+  }
+
+  /**
+   * Commit pending changes of all databases and stop background thread.
+   */
+  void close() {
+    final List<Group> pending;
+    synchronized (this) {
+      closed = true;
+      if (executor != null)
+        executor.shutdownNow();
+      pending = new ArrayList<>(groups.values());
+      groups.clear();
+    }
+    for (Group group : pending)
+      group.flush();
+  }
+
+  @NotNull
+  private synchronized Group group(@NotNull DB db) {
+    // Closed committer does not keep databases: commit is done by requesting thread
+    if (closed)
+      return new Group(db);
+    return groups.computeIfAbsent(db, Group::new);
+  }
+
+  private synchronized void schedule(@NotNull Group group, long delayMillis) {
+    if (closed) {
+      group.flush();
+      return;
+    }
+    if (executor == null) {
+      executor = new ScheduledThreadPoolExecutor(1, r -> {
+        final Thread thread = new Thread(r, "CacheCommitter");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    executor.schedule(group::flush, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private final class Group {
+    @NotNull
+    private final DB db;
+    // Batch of changes that are waiting for commit
+    @Nullable
+    private CompletableFuture<Void> batch;
+    private int waiters;
+    private boolean scheduled;
+    private long deadline;
+
+    private Group(@NotNull DB db) {
+      this.db = db;
+    }
+
+    @NotNull
+    private CompletableFuture<Void> request(boolean wait) {
+      final CompletableFuture<Void> result;
+      final long commitDelay;
+      synchronized (this) {
+        if (batch == null) {
+          batch = new CompletableFuture<>();
+          waiters = 0;
+          scheduled = false;
+        }
+        result = batch;
+
+        final long now = System.nanoTime();
+        if (wait && ++waiters >= batchSize) {
+          commitDelay = 0;
+        } else {
+          commitDelay = wait ? delay : Math.max(delay, ASYNC_DELAY);
+        }
+        // Already scheduled commit is soon enough
+        if (scheduled && deadline - now <= TimeUnit.MILLISECONDS.toNanos(commitDelay))
+          return result;
+        scheduled = true;
+        deadline = now + TimeUnit.MILLISECONDS.toNanos(commitDelay);
+      }
+      schedule(this, commitDelay);
+      return result;
+    }
+
+    private void flush() {
+      final CompletableFuture<Void> current;
+      synchronized (this) {
+        current = batch;
+        batch = null;
+      }
+      if (current == null)
+        return;
+      try {
+        if (!db.isClosed()) {
+          db.commit();
+          commits.incrementAndGet();
+        }
+        current.complete(null);
+      } catch (RuntimeException | Error e) {
+        log.error("Can't commit cache database", e);
+        current.completeExceptionally(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.context;
+
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DB;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+
+/**
+ * Storage of cache databases.
+ * <p>
+ * Caches keyed by content (for example, file metadata by blob id) are stored in shared database.
+ * Caches of single repository (revisions, snapshots, locks) are stored in repository database,
+ * which may be separate from databases of other repositories.
+ */
+@ThreadSafe
+public interface CacheStore extends AutoCloseable {
+  /**
+   * @return Database for caches shared by all repositories.
+   */
+  @NotNull
+  DB getSharedDB();
+
+  /**
+   * Open repository database. Every call must be paired with {@link #release(String)}.
+   *
+   * @param name Repository name.
+   */
+  @NotNull
+  DB open(@NotNull String name);
+
+  /**
+   * Release repository database opened by {@link #open(String)}.
+   */
+  void release(@NotNull String name);
+
+  /**
+   * Commit database and wait until changes are written.
+   * Concurrent commits of same database may be grouped into single commit.
+   */
+  void commit(@NotNull DB db) throws IOException;
+
+  /**
+   * Commit database in background without waiting.
+   * Should be used only for caches that can be rebuilt on loss, like file metadata.
+   */
+  void commitLater(@NotNull DB db);
+
+  /**
+   * Delete repository database, for example, after repository removal.
+   * Database that is still opened is deleted when it is released.
+   *
+   * @return false if database can't be deleted separately.
+   */
+  boolean drop(@NotNull String name) throws IOException;
+
+  @Override
+  void close();
+}
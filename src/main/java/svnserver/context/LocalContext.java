@@ -8,8 +8,16 @@
 package svnserver.context;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mapdb.DB;
+import org.slf4j.Logger;
+import svnserver.Loggers;
+import svnserver.MapDbHelper;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * Simple context object.
@@ -18,10 +26,15 @@ import javax.annotation.concurrent.ThreadSafe;
  */
 @ThreadSafe
 public final class LocalContext extends Context<Local> {
+  @NotNull
+  private static final Logger log = Loggers.misc;
   @NotNull
   private final SharedContext shared;
   @NotNull
   private final String name;
+  @Nullable
+  private DB cacheDB;
+  private boolean closed;
 
   public LocalContext(@NotNull SharedContext shared, @NotNull String name) {
     this.shared = shared;
@@ -37,4 +50,69 @@ public final class LocalContext extends Context<Local> {
   public SharedContext getShared() {
     return shared;
   }
+
+  /**
+   * @return Database for caches of this repository.
+   */
+  @NotNull
+  public synchronized DB getCacheDB() {
+    if (closed)
+      throw new IllegalStateException("Context of repository " + name + " is closed");
+    if (cacheDB == null)
+      cacheDB = shared.getCacheStore().open(name);
+    return cacheDB;
+  }
+
+  /**
+   * Open cache of this repository in repository database.
+   * <p>
+   * Before repository databases were separated, caches of all repositories were stored in shared database.
+   * Cache found there is moved to repository database.
+   *
+   * @param name   Cache name.
+   * @param opener Opens or creates cache in given database.
+   * @param mover  Copies content of old cache (second argument) to new one (first argument).
+   */
+  @NotNull
+  public <T> T openCache(@NotNull String name, @NotNull Function<DB, T> opener, @NotNull BiConsumer<T, T> mover) {
+    final DB db = getCacheDB();
+    final T cache = opener.apply(db);
+    final CacheStore store = shared.getCacheStore();
+    final DB sharedDB = store.getSharedDB();
+    if (sharedDB == db)
+      return cache;
+
+    synchronized (store) {
+      if (!sharedDB.exists(name))
+        return cache;
+
+      final T oldCache = opener.apply(sharedDB);
+      log.warn("[{}]: moving cache {} from shared database to repository database", this.name, name);
+      mover.accept(cache, oldCache);
+      // Cache is deleted from shared database only after it is written to repository database
+      db.commit();
+      if (oldCache instanceof Map) {
+        MapDbHelper.deleteMap(sharedDB, name, (Map<?, ?>) oldCache);
+      } else {
+        MapDbHelper.forgetName(sharedDB, name);
+      }
+      sharedDB.commit();
+    }
+    return cache;
+  }
+
+  @Override
+  public void close() throws Exception {
+    try {
+      super.close();
+    } finally {
+      synchronized (this) {
+        closed = true;
+        if (cacheDB != null) {
+          cacheDB = null;
+          shared.getCacheStore().release(name);
+        }
+      }
+    }
+  }
 }
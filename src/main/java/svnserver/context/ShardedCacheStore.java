@@ -0,0 +1,189 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.context;
+
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DB;
+import org.slf4j.Logger;
+import svnserver.Loggers;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Cache store with separate database file for every repository.
+ * <p>
+ * Repositories commit their databases independently, database of removed repository can be deleted.
+ * Caches of repository that were stored in shared database before are moved to repository database on open.
+ */
+public final class ShardedCacheStore implements CacheStore {
+  @NotNull
+  private static final Logger log = Loggers.misc;
+  private static final String SHARD_SUFFIX = ".mapdb";
+
+  @NotNull
+  private final DB sharedDB;
+  @NotNull
+  private final Path shardsPath;
+  @NotNull
+  private final Function<Path, DB> factory;
+  @NotNull
+  private final CacheCommitter committer;
+  @NotNull
+  private final Map<String, Shard> shards = new HashMap<>();
+  private boolean closed;
+
+  /**
+   * @param shardsPath Directory for repository databases.
+   * @param factory    Opens database by file path.
+   */
+  public ShardedCacheStore(@NotNull DB sharedDB, @NotNull Path shardsPath, @NotNull Function<Path, DB> factory) throws IOException {
+    this(sharedDB, shardsPath, factory, 0, 1);
+  }
+
+  /**
+   * @param shardsPath  Directory for repository databases.
+   * @param factory     Opens database by file path.
+   * @param commitDelay Maximum delay in milliseconds of grouped commit, zero for commit in requesting thread.
+   * @param commitBatch Number of waiting commits to commit without waiting for delay.
+   */
+  public ShardedCacheStore(@NotNull DB sharedDB, @NotNull Path shardsPath, @NotNull Function<Path, DB> factory, long commitDelay, int commitBatch) throws IOException {
+    this.sharedDB = sharedDB;
+    this.shardsPath = shardsPath;
+    this.factory = factory;
+    this.committer = new CacheCommitter(commitDelay, commitBatch);
+    Files.createDirectories(shardsPath);
+  }
+
+  @NotNull
+  @Override
+  public DB getSharedDB() {
+    return sharedDB;
+  }
+
+  @NotNull
+  @Override
+  public synchronized DB open(@NotNull String name) {
+    if (closed)
+      throw new IllegalStateException("Cache store is closed");
+    Shard shard = shards.get(name);
+    if (shard == null) {
+      shard = new Shard(factory.apply(getShardPath(name)));
+      shards.put(name, shard);
+    }
+    shard.references++;
+    return shard.db;
+  }
+
+  @Override
+  public synchronized void release(@NotNull String name) {
+    final Shard shard = shards.get(name);
+    if (shard == null)
+      return;
+    if (--shard.references == 0) {
+      shards.remove(name);
+      committer.remove(shard.db);
+      close(name, shard.db);
+      if (shard.dropped)
+        delete(name);
+    }
+  }
+
+  @Override
+  public void commit(@NotNull DB db) throws IOException {
+    committer.commit(db);
+  }
+
+  @Override
+  public void commitLater(@NotNull DB db) {
+    committer.commitLater(db);
+  }
+
+  @Override
+  public synchronized boolean drop(@NotNull String name) {
+    final Shard shard = shards.get(name);
+    if (shard != null) {
+      // Database is still used by removed repository: it is deleted after release
+      shard.dropped = true;
+      log.info("Cache database of {} will be deleted when it is released", name);
+      return true;
+    }
+    delete(name);
+    return true;
+  }
+
+  private void delete(@NotNull String name) {
+    final Path shardPath = getShardPath(name);
+    final String fileName = shardPath.getFileName().toString();
+    // MapDB keeps write-ahead log in files with same prefix
+    try (Stream<Path> files = Files.list(shardsPath)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        final String entryName = file.getFileName().toString();
+        if (entryName.equals(fileName) || entryName.startsWith(fileName + "."))
+          Files.delete(file);
+      }
+      log.info("Cache database of {} is deleted", name);
+    } catch (IOException e) {
+      log.warn("Can't delete cache database of {}", name, e);
+    }
+  }
+
+  @NotNull
+  Path getShardPath(@NotNull String name) {
+    try {
+      return shardsPath.resolve("repo-" + URLEncoder.encode(name, StandardCharsets.UTF_8.name()) + SHARD_SUFFIX);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    committer.close();
+    for (Map.Entry<String, Shard> entry : shards.entrySet()) {
+      close(entry.getKey(), entry.getValue().db);
+      if (entry.getValue().dropped)
+        delete(entry.getKey());
+    }
+    shards.clear();
+    close("shared", sharedDB);
+  }
+
+  private static void close(@NotNull String name, @NotNull DB db) {
+    if (db.isClosed())
+      return;
+    try {
+      // Transactional database drops uncommitted changes on close
+      db.commit();
+      db.close();
+    } catch (RuntimeException e) {
+      log.error("Can't close cache database of {}", name, e);
+    }
+  }
+
+  private static final class Shard {
+    @NotNull
+    private final DB db;
+    private int references;
+    // Delete database after last release
+    private boolean dropped;
+
+    private Shard(@NotNull DB db) {
+      this.db = db;
+    }
+  }
+}
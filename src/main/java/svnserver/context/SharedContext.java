@@ -27,19 +27,24 @@ public final class SharedContext extends Context<Shared> implements AutoCloseabl
   @NotNull
   private final Path basePath;
   @NotNull
-  private final DB cacheDB;
+  private final CacheStore cacheStore;
   @NotNull
   private final String realm;
 
-  private SharedContext(@NotNull Path basePath, @NotNull DB cacheDb, @NotNull String realm) {
+  private SharedContext(@NotNull Path basePath, @NotNull CacheStore cacheStore, @NotNull String realm) {
     this.basePath = basePath;
-    this.cacheDB = cacheDb;
+    this.cacheStore = cacheStore;
     this.realm = realm;
   }
 
   @NotNull
   public static SharedContext create(@NotNull Path basePath, @NotNull String realm, @NotNull DB cacheDb, @NotNull List<SharedConfig> shared) throws Exception {
-    final SharedContext context = new SharedContext(basePath, cacheDb, realm);
+    return create(basePath, realm, new SingleCacheStore(cacheDb), shared);
+  }
+
+  @NotNull
+  public static SharedContext create(@NotNull Path basePath, @NotNull String realm, @NotNull CacheStore cacheStore, @NotNull List<SharedConfig> shared) throws Exception {
+    final SharedContext context = new SharedContext(basePath, cacheStore, realm);
     for (SharedConfig config : shared) {
       config.create(context);
     }
@@ -67,7 +72,7 @@ public final class SharedContext extends Context<Shared> implements AutoCloseabl
     for (int i = values.size() - 1; i >= 0; --i)
       values.get(i).close();
 
-    cacheDB.close();
+    cacheStore.close();
   }
 
   @NotNull
@@ -75,8 +80,16 @@ public final class SharedContext extends Context<Shared> implements AutoCloseabl
     return basePath;
   }
 
+  /**
+   * @return Database for caches shared by all repositories. Caches of single repository are stored in {@link LocalContext#getCacheDB()}.
+   */
   @NotNull
   public DB getCacheDB() {
-    return cacheDB;
+    return cacheStore.getSharedDB();
+  }
+
+  @NotNull
+  public CacheStore getCacheStore() {
+    return cacheStore;
   }
 }
@@ -0,0 +1,75 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.context;
+
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DB;
+
+import java.io.IOException;
+
+/**
+ * Cache store with all caches in single database.
+ */
+public final class SingleCacheStore implements CacheStore {
+  @NotNull
+  private final DB db;
+  @NotNull
+  private final CacheCommitter committer;
+
+  public SingleCacheStore(@NotNull DB db) {
+    this(db, 0, 1);
+  }
+
+  /**
+   * @param commitDelay Maximum delay in milliseconds of grouped commit, zero for commit in requesting thread.
+   * @param commitBatch Number of waiting commits to commit without waiting for delay.
+   */
+  public SingleCacheStore(@NotNull DB db, long commitDelay, int commitBatch) {
+    this.db = db;
+    this.committer = new CacheCommitter(commitDelay, commitBatch);
+  }
+
+  @NotNull
+  @Override
+  public DB getSharedDB() {
+    return db;
+  }
+
+  @NotNull
+  @Override
+  public DB open(@NotNull String name) {
+    return db;
+  }
+
+  @Override
+  public void release(@NotNull String name) {
+  }
+
+  @Override
+  public void commit(@NotNull DB db) throws IOException {
+    committer.commit(db);
+  }
+
+  @Override
+  public void commitLater(@NotNull DB db) {
+    committer.commitLater(db);
+  }
+
+  @Override
+  public boolean drop(@NotNull String name) {
+    // MapDB can't delete named collections
+    return false;
+  }
+
+  @Override
+  public void close() {
+    committer.close();
+    if (!db.isClosed())
+      db.close();
+  }
+}
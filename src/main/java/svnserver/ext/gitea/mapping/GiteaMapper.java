@@ -55,7 +55,7 @@ final class GiteaMapper extends Thread implements DirectoryWatcher.DirectoryMapp
             try {
               Repository repository = repositoryApi.repoGet(owner, repo);
               GiteaProject project = mapping.addRepository(repository);
-              if (project != null) {
+              if (project != null && !mapping.isLazyIndexing()) {
                 project.initRevisions();
               }
               it.remove();
@@ -10,10 +10,12 @@ package svnserver.ext.gitea.mapping;
 import io.gitea.model.Repository;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.threeten.bp.OffsetDateTime;
 import svnserver.StringHelper;
 import svnserver.config.ConfigHelper;
 import svnserver.context.LocalContext;
 import svnserver.context.SharedContext;
+import svnserver.repository.RepositoryIndexer;
 import svnserver.repository.RepositoryMapping;
 import svnserver.repository.VcsAccess;
 import svnserver.repository.git.GitRepository;
@@ -23,6 +25,7 @@ import java.nio.file.Path;
 import java.util.Locale;
 import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple repository mapping by predefined list.
@@ -37,10 +40,13 @@ final class GiteaMapping implements RepositoryMapping<GiteaProject> {
   private final SharedContext context;
   @NotNull
   private final GiteaMappingConfig config;
+  @Nullable
+  private final RepositoryIndexer indexer;
 
   GiteaMapping(@NotNull SharedContext context, @NotNull GiteaMappingConfig config) {
     this.context = context;
     this.config = config;
+    this.indexer = config.isLazyIndexing() ? new RepositoryIndexer(config.getIndexingThreads(), TimeUnit.SECONDS.toMillis(config.getIndexingWaitSec())) : null;
   }
 
   @NotNull
@@ -67,12 +73,21 @@ final class GiteaMapping implements RepositoryMapping<GiteaProject> {
       final GitRepository vcsRepository = config.getTemplate().create(local, repoPath);
       final GiteaProject newProject = new GiteaProject(local, vcsRepository, repository.getId(), repository.getOwner().getLogin(), projectName);
       if (mapping.compute(projectKey, (key, value) -> value != null && value.getProjectId() == repository.getId() ? value : newProject) == newProject) {
+        if (indexer != null) {
+          // Most recently updated projects are indexed first
+          final OffsetDateTime updatedAt = repository.getUpdatedAt();
+          newProject.scheduleRevisions(indexer, updatedAt == null ? 0 : updatedAt.toInstant().toEpochMilli());
+        }
         return newProject;
       }
     }
     return null;
   }
 
+  boolean isLazyIndexing() {
+    return indexer != null;
+  }
+
   void removeRepository(@NotNull String projectName) {
     final String projectKey = StringHelper.normalizeDir(projectName);
     final GiteaProject project = mapping.get(projectKey);
@@ -82,4 +97,10 @@ final class GiteaMapping implements RepositoryMapping<GiteaProject> {
       }
     }
   }
+
+  @Override
+  public void close() {
+    if (indexer != null)
+      indexer.close();
+  }
 }
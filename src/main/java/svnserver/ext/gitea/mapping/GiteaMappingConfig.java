@@ -43,6 +43,9 @@ public final class GiteaMappingConfig implements RepositoryMappingConfig {
   private DirectoryWatcher watcher;
   private int cacheTimeSec = 15;
   private int cacheMaximumSize = 1000;
+  private boolean lazyIndexing = false;
+  private int indexingThreads = 2;
+  private int indexingWaitSec = 30;
 
   public GiteaMappingConfig() {
     this("/var/git/repositories/", GitCreateMode.ERROR);
@@ -75,6 +78,18 @@ public final class GiteaMappingConfig implements RepositoryMappingConfig {
     return cacheMaximumSize;
   }
 
+  boolean isLazyIndexing() {
+    return lazyIndexing;
+  }
+
+  int getIndexingThreads() {
+    return indexingThreads;
+  }
+
+  int getIndexingWaitSec() {
+    return indexingWaitSec;
+  }
+
   @NotNull
   @Override
   public RepositoryMapping<?> create(@NotNull SharedContext context, boolean canUseParallelIndexing) throws IOException {
@@ -103,6 +118,11 @@ public final class GiteaMappingConfig implements RepositoryMappingConfig {
       watcher = new DirectoryWatcher(path, new GiteaMapper(apiClient, mapping));
     }
 
+    if (lazyIndexing) {
+      // Projects are indexed on first access or in background
+      return mapping;
+    }
+
     final Consumer<GiteaProject> init = repository -> {
       try {
         repository.initRevisions();
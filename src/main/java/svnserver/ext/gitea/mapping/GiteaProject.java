@@ -8,10 +8,12 @@
 package svnserver.ext.gitea.mapping;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.tmatesoft.svn.core.SVNException;
 import svnserver.Loggers;
 import svnserver.context.LocalContext;
+import svnserver.repository.RepositoryIndexer;
 import svnserver.repository.git.BranchProvider;
 import svnserver.repository.git.GitBranch;
 import svnserver.repository.git.GitRepository;
@@ -38,6 +40,8 @@ public final class GiteaProject implements AutoCloseable, BranchProvider {
   private final String repositoryName;
 
   private volatile boolean ready = false;
+  @Nullable
+  private volatile RepositoryIndexer.Task indexTask;
 
   GiteaProject(@NotNull LocalContext context, @NotNull GitRepository repository, long projectId, String owner, String repositoryName) {
     this.context = context;
@@ -47,7 +51,7 @@ public final class GiteaProject implements AutoCloseable, BranchProvider {
     this.repositoryName = repositoryName;
   }
 
-  void initRevisions() throws IOException, SVNException {
+  synchronized void initRevisions() throws IOException, SVNException {
     if (!ready) {
       log.info("[{}]: initing...", context.getName());
 
@@ -58,6 +62,20 @@ public final class GiteaProject implements AutoCloseable, BranchProvider {
     }
   }
 
+  /**
+   * Index revisions in background instead of blocking caller.
+   */
+  void scheduleRevisions(@NotNull RepositoryIndexer indexer, long priority) {
+    indexTask = indexer.schedule(context.getName(), priority, this::initRevisions);
+  }
+
+  @Override
+  public void waitReady() throws SVNException {
+    final RepositoryIndexer.Task task = indexTask;
+    if (!ready && task != null)
+      task.waitReady();
+  }
+
   @NotNull
   public LocalContext getContext() {
     return context;
@@ -86,6 +104,10 @@ public final class GiteaProject implements AutoCloseable, BranchProvider {
 
   @Override
   public void close() {
+    final RepositoryIndexer.Task task = indexTask;
+    if (task != null)
+      task.cancel();
+    repository.close();
     try {
       context.close();
     } catch (Exception e) {
@@ -24,9 +24,11 @@ import svnserver.context.LocalContext;
 import svnserver.context.SharedContext;
 import svnserver.ext.gitlab.config.GitLabContext;
 import svnserver.ext.web.server.WebServer;
+import svnserver.repository.RepositoryIndexer;
 import svnserver.repository.RepositoryMapping;
 import svnserver.repository.VcsAccess;
 import svnserver.repository.git.GitBranch;
+import svnserver.repository.git.GitRefWatcher;
 import svnserver.repository.git.GitRepository;
 
 import javax.servlet.ServletException;
@@ -42,11 +44,13 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Date;
 import java.util.List;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -68,11 +72,14 @@ final class GitLabMapping implements RepositoryMapping<GitLabProject> {
   @NotNull
   private final GitLabMappingConfig config;
   private final GitLabContext gitLabContext;
+  @Nullable
+  private final RepositoryIndexer indexer;
 
   GitLabMapping(@NotNull SharedContext context, @NotNull GitLabMappingConfig config, @NotNull GitLabContext gitLabContext) {
     this.context = context;
     this.config = config;
     this.gitLabContext = gitLabContext;
+    this.indexer = config.isLazyIndexing() ? new RepositoryIndexer(config.getIndexingThreads(), TimeUnit.SECONDS.toMillis(config.getIndexingWaitSec())) : null;
   }
 
   @NotNull
@@ -92,7 +99,7 @@ final class GitLabMapping implements RepositoryMapping<GitLabProject> {
     final GitLabProject oldProject = mapping.get(projectKey);
 
     if (oldProject != null && oldProject.getProjectId() == project.getId()) {
-      final Set<String> oldBranches = oldProject.getBranches().values().stream().map(GitBranch::getShortBranchName).collect(Collectors.toSet());
+      final Set<String> oldBranches = oldProject.getRepository().getBranches().values().stream().map(GitBranch::getShortBranchName).collect(Collectors.toSet());
       if (oldBranches.equals(branches))
         // Old project is good enough already
         return oldProject;
@@ -115,6 +122,11 @@ final class GitLabMapping implements RepositoryMapping<GitLabProject> {
     final GitRepository repository = config.getTemplate().create(local, repoPath, branches);
     final GitLabProject newProject = new GitLabProject(local, repository, project.getId());
     if (mapping.compute(projectKey, (key, value) -> value != null && value.getProjectId() == project.getId() ? value : newProject) == newProject) {
+      if (indexer != null) {
+        // Most recently active projects are indexed first
+        final Date lastActivity = project.getLastActivityAt();
+        newProject.scheduleRevisions(indexer, lastActivity == null ? 0 : lastActivity.getTime());
+      }
       return newProject;
     }
     return null;
@@ -147,6 +159,18 @@ final class GitLabMapping implements RepositoryMapping<GitLabProject> {
     }
   }
 
+  /**
+   * Delete cache database of removed project.
+   */
+  private void dropCache(@NotNull String projectName) {
+    try {
+      if (!context.getCacheStore().drop(projectName))
+        log.debug("Cache of removed project {} is not deleted: it is stored in shared database", projectName);
+    } catch (IOException e) {
+      log.warn("Can't delete cache of removed project {}", projectName, e);
+    }
+  }
+
   @Override
   public void ready(@NotNull SharedContext context) throws IOException {
     final GitlabAPI api = gitLabContext.connect();
@@ -171,6 +195,23 @@ final class GitLabMapping implements RepositoryMapping<GitLabProject> {
 
   }
 
+  private void refsChanged(int projectId) {
+    final GitRefWatcher refWatcher = context.get(GitRefWatcher.class);
+    if (refWatcher == null)
+      return;
+
+    for (GitLabProject project : mapping.values()) {
+      if (project.getProjectId() == projectId)
+        refWatcher.refsChanged(project.getRepository());
+    }
+  }
+
+  @Override
+  public void close() {
+    if (indexer != null)
+      indexer.close();
+  }
+
   private boolean isHookInstalled(@NotNull GitlabAPI api, @NotNull String hookUrl) throws IOException {
     final List<GitlabSystemHook> hooks = api.getSystemHooks();
     for (GitlabSystemHook hook : hooks) {
@@ -208,18 +249,29 @@ final class GitLabMapping implements RepositoryMapping<GitLabProject> {
             final GitlabAPI api = gitLabContext.connect();
             final GitLabProject project = updateRepository(api.getProject(event.getProjectId()));
             if (project != null) {
-              log.info(event.getEventName() + " event happened, init project revisions ...");
-              project.initRevisions();
+              if (indexer == null) {
+                log.info(event.getEventName() + " event happened, init project revisions ...");
+                project.initRevisions();
+              }
             } else {
               log.warn(event.getEventName() + " event happened, but can not found project!");
             }
             return;
+          case "push":
+          case "repository_update":
+            if (event.getProjectId() == null) {
+              resp.sendError(HttpServletResponse.SC_BAD_REQUEST, msg);
+              return;
+            }
+            refsChanged(event.getProjectId());
+            return;
           case "project_destroy":
             if (event.getProjectId() == null || event.getPathWithNamespace() == null) {
               resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Can't parse event data");
               return;
             }
             removeRepository(event.getProjectId(), event.getPathWithNamespace());
+            dropCache(event.getPathWithNamespace());
             break;
           default:
             // Ignore hook.
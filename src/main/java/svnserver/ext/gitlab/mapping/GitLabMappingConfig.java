@@ -36,6 +36,9 @@ public final class GitLabMappingConfig implements RepositoryMappingConfig {
   private String path;
   private int cacheTimeSec = 15;
   private int cacheMaximumSize = 1000;
+  private boolean lazyIndexing = false;
+  private int indexingThreads = 2;
+  private int indexingWaitSec = 30;
 
   public GitLabMappingConfig() {
     this("/var/opt/gitlab/git-data/repositories/", GitCreateMode.ERROR);
@@ -68,6 +71,18 @@ public final class GitLabMappingConfig implements RepositoryMappingConfig {
     return cacheMaximumSize;
   }
 
+  boolean isLazyIndexing() {
+    return lazyIndexing;
+  }
+
+  int getIndexingThreads() {
+    return indexingThreads;
+  }
+
+  int getIndexingWaitSec() {
+    return indexingWaitSec;
+  }
+
   @NotNull
   @Override
   public RepositoryMapping<?> create(@NotNull SharedContext context, boolean canUseParallelIndexing) throws IOException {
@@ -79,6 +94,11 @@ public final class GitLabMappingConfig implements RepositoryMappingConfig {
     for (GitlabProject project : api.getProjects())
       mapping.updateRepository(project);
 
+    if (lazyIndexing) {
+      // Projects are indexed on first access or in background
+      return mapping;
+    }
+
     final Consumer<GitLabProject> init = repository -> {
       try {
         repository.initRevisions();
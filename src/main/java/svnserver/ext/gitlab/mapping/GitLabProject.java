@@ -8,10 +8,12 @@
 package svnserver.ext.gitlab.mapping;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.tmatesoft.svn.core.SVNException;
 import svnserver.Loggers;
 import svnserver.context.LocalContext;
+import svnserver.repository.RepositoryIndexer;
 import svnserver.repository.git.BranchProvider;
 import svnserver.repository.git.GitBranch;
 import svnserver.repository.git.GitRepository;
@@ -35,6 +37,8 @@ public final class GitLabProject implements AutoCloseable, BranchProvider {
   private final int projectId;
 
   private volatile boolean ready = false;
+  @Nullable
+  private volatile RepositoryIndexer.Task indexTask;
 
   GitLabProject(@NotNull LocalContext context, @NotNull GitRepository repository, int projectId) {
     this.context = context;
@@ -42,7 +46,7 @@ public final class GitLabProject implements AutoCloseable, BranchProvider {
     this.projectId = projectId;
   }
 
-  void initRevisions() throws IOException, SVNException {
+  synchronized void initRevisions() throws IOException, SVNException {
     if (!ready) {
       log.info("[{}]: initing...", context.getName());
 
@@ -53,6 +57,20 @@ public final class GitLabProject implements AutoCloseable, BranchProvider {
     }
   }
 
+  /**
+   * Index revisions in background instead of blocking caller.
+   */
+  void scheduleRevisions(@NotNull RepositoryIndexer indexer, long priority) {
+    indexTask = indexer.schedule(context.getName(), priority, this::initRevisions);
+  }
+
+  @Override
+  public void waitReady() throws SVNException {
+    final RepositoryIndexer.Task task = indexTask;
+    if (!ready && task != null)
+      task.waitReady();
+  }
+
   @NotNull
   public LocalContext getContext() {
     return context;
@@ -69,6 +87,10 @@ public final class GitLabProject implements AutoCloseable, BranchProvider {
 
   @Override
   public void close() {
+    final RepositoryIndexer.Task task = indexTask;
+    if (task != null)
+      task.cancel();
+    repository.close();
     try {
       context.close();
     } catch (Exception e) {
@@ -27,6 +27,7 @@ import svnserver.repository.SvnForbiddenException;
 import svnserver.repository.git.GitObject;
 import svnserver.repository.git.filter.GitFilter;
 import svnserver.repository.git.filter.GitFilterHelper;
+import svnserver.repository.git.filter.GitFilterMetadata;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -44,11 +45,11 @@ public final class LfsFilter implements GitFilter {
   @Nullable
   private final LfsStorage storage;
   @NotNull
-  private final Map<String, String> cacheMd5;
+  private final Map<ObjectId, GitFilterMetadata> cacheMetadata;
 
   public LfsFilter(@NotNull LocalContext context, @Nullable LfsStorage lfsStorage) {
     this.storage = lfsStorage;
-    this.cacheMd5 = GitFilterHelper.getCacheMd5(this, context.getShared().getCacheDB());
+    this.cacheMetadata = GitFilterHelper.getCacheMetadata(this, context.getShared().getCacheStore());
     final LfsServer lfsServer = context.getShared().get(LfsServer.class);
     if (storage != null && lfsServer != null) {
       context.add(LfsServerEntry.class, new LfsServerEntry(lfsServer, context, storage));
@@ -75,7 +76,7 @@ public final class LfsFilter implements GitFilter {
       }
     }
 
-    return GitFilterHelper.getMd5(this, cacheMd5, null, objectId);
+    return GitFilterHelper.getMd5(this, cacheMetadata, objectId);
   }
 
   @Override
@@ -91,6 +92,11 @@ public final class LfsFilter implements GitFilter {
     return loader.getSize();
   }
 
+  @Override
+  public boolean isBinary(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
+    return GitFilterHelper.isBinary(this, cacheMetadata, objectId);
+  }
+
   @NotNull
   @Override
   public InputStream inputStream(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
@@ -0,0 +1,48 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.parser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Fragment of binary string that references parser buffer.
+ * <p>
+ * Content is valid only until next read from {@link SvnServerParser}.
+ */
+public final class BinarySlice {
+  @NotNull
+  private byte[] data = {};
+  private int offset;
+  private int length;
+
+  void set(@NotNull byte[] data, int offset, int length) {
+    this.data = data;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  @NotNull
+  public byte[] getData() {
+    return data;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  @NotNull
+  public byte[] toByteArray() {
+    return Arrays.copyOfRange(data, offset, offset + length);
+  }
+}
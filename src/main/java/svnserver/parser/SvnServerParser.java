@@ -15,7 +15,6 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 
 /**
  * Интерфейс для чтения токенов из потока.
@@ -32,14 +31,22 @@ public final class SvnServerParser {
   private final InputStream stream;
   private int depth = 0;
 
-  @NotNull
-  private final byte[] buffer;
+  private final int bufferSize;
+  // Null while parser is idle and buffer is released.
+  @Nullable
+  private byte[] buffer;
   private int offset = 0;
   private int limit = 0;
+  // Reusable buffer for strings that do not fit into read buffer.
+  @Nullable
+  private byte[] stringBuffer;
+  @NotNull
+  private final BinarySlice slice = new BinarySlice();
 
   public SvnServerParser(@NotNull InputStream stream, int bufferSize) {
     this.stream = stream;
-    this.buffer = new byte[Math.max(1, bufferSize)];
+    this.bufferSize = Math.max(1, bufferSize);
+    this.buffer = new byte[this.bufferSize];
   }
 
   public SvnServerParser(@NotNull InputStream stream) {
@@ -59,6 +66,99 @@ public final class SvnServerParser {
     return depth;
   }
 
+  /**
+   * Check for already buffered, but not parsed data.
+   * <p>
+   * Skips buffered whitespaces between items.
+   *
+   * @return true if next token can be read without reading underlying stream.
+   */
+  public boolean hasPendingData() {
+    if (limit < 0)
+      return true;
+
+    while (offset < limit) {
+      if (!isSpace(buffer[offset]))
+        return true;
+      offset++;
+    }
+    return false;
+  }
+
+  /**
+   * Release read buffer of idle parser. Buffer will be allocated again on next read.
+   */
+  public void releaseBuffer() {
+    if (hasPendingData())
+      throw new IllegalStateException("Can't release buffer with pending data");
+
+    buffer = null;
+    stringBuffer = null;
+    offset = 0;
+    limit = 0;
+  }
+
+  /**
+   * Check that data contains complete top-level item (list, word, number or string).
+   * <p>
+   * Malformed data is reported as complete so that parsing error could be raised by regular parser.
+   *
+   * @return true if full item is present in data.
+   */
+  public static boolean isCompleteItem(@NotNull byte[] data, int offset, int length) {
+    final int end = offset + length;
+    int pos = offset;
+    int depth = 0;
+    while (true) {
+      while (pos < end && isSpace(data[pos]))
+        pos++;
+
+      if (pos >= end)
+        return false;
+
+      final byte first = data[pos++];
+      if (first == '(') {
+        depth++;
+        continue;
+      }
+
+      if (first == ')') {
+        depth--;
+      } else if (isDigit(first)) {
+        long number = first - '0';
+        while (pos < end && isDigit(data[pos])) {
+          number = number * 10 + (data[pos++] - '0');
+          if (number >= MAX_BUFFER_SIZE)
+            return true;
+        }
+        if (pos >= end)
+          return false;
+
+        if (data[pos] == ':') {
+          pos += 1 + number;
+          if (pos > end)
+            return false;
+        } else if (!isSpace(data[pos])) {
+          return true;
+        }
+      } else if (isAlpha(first)) {
+        while (pos < end && (isAlpha(data[pos]) || isDigit(data[pos]) || data[pos] == '-'))
+          pos++;
+
+        if (pos >= end)
+          return false;
+
+        if (!isSpace(data[pos]))
+          return true;
+      } else {
+        return true;
+      }
+
+      if (depth <= 0)
+        return true;
+    }
+  }
+
   /**
    * Чтение элемента указанного типа из потока.
    *
@@ -127,18 +227,53 @@ public final class SvnServerParser {
     throw new IOException("Unexpected character in stream: " + read + " (need 'a'..'z', 'A'..'Z', '0'..'9', ' ' or '\\n')");
   }
 
+  /**
+   * Read string list item without copying it into separate array.
+   * <p>
+   * Returned slice references parser internal buffer and is valid only until next read from parser.
+   *
+   * @return String content or null on list end.
+   */
+  @Nullable
+  public BinarySlice readBinaryItem() throws IOException {
+    final byte read = skipSpaces();
+    if (read == ')') {
+      depth--;
+      if (depth < 0) {
+        throw new IOException("Unexpect end of list token.");
+      }
+      return null;
+    }
+    if (!isDigit(read)) {
+      throw new IOException("Unexpected character in stream: " + read + " (need '0'..'9')");
+    }
+    final int length = readDigits(read);
+    if (buffer[offset - 1] != ':') {
+      throw new IOException("Unexpected token: " + new NumberToken(length) + " (expected: " + StringToken.class.getName() + ')');
+    }
+    return readSlice(length);
+  }
+
   private SvnServerToken readNumberToken(byte first) throws IOException {
+    final int result = readDigits(first);
+    if (buffer[offset - 1] == ':') {
+      return readString(result);
+    }
+    return new NumberToken(result);
+  }
+
+  /**
+   * Read number up to and including terminating ' ', '\n' or ':' character.
+   */
+  private int readDigits(byte first) throws IOException {
     int result = first - '0';
     while (true) {
       while (offset < limit) {
         final byte data = buffer[offset];
         offset++;
         if ((data < '0') || (data > '9')) {
-          if (data == ':') {
-            return readString(result);
-          }
-          if (isSpace(data)) {
-            return new NumberToken(result);
+          if (data == ':' || isSpace(data)) {
+            return result;
           }
           throw new IOException("Unexpected character in stream: " + data + " (need ' ', '\\n' or ':')");
         }
@@ -164,6 +299,9 @@ public final class SvnServerParser {
       if (limit < 0) {
         throw new EOFException();
       }
+      if (buffer == null) {
+        buffer = new byte[bufferSize];
+      }
       offset = 0;
       limit = stream.read(buffer);
     }
@@ -204,7 +342,57 @@ public final class SvnServerParser {
         position += size;
       }
     }
-    return new StringToken(Arrays.copyOf(token, length));
+    return new StringToken(token);
+  }
+
+  @NotNull
+  private BinarySlice readSlice(int length) throws IOException {
+    if (length >= MAX_BUFFER_SIZE) {
+      throw new IOException("Data is too long. Buffer overflow: " + buffer.length);
+    }
+    if (limit < 0) {
+      throw new EOFException();
+    }
+    final int available = limit - offset;
+    if (length <= available) {
+      slice.set(buffer, offset, length);
+      offset += length;
+      return slice;
+    }
+    if (length <= buffer.length) {
+      // Move tail to buffer start and read the rest of string into read buffer
+      System.arraycopy(buffer, offset, buffer, 0, available);
+      offset = 0;
+      limit = available;
+      while (limit < length) {
+        final int size = stream.read(buffer, limit, buffer.length - limit);
+        if (size < 0) {
+          limit = -1;
+          throw new EOFException();
+        }
+        limit += size;
+      }
+      slice.set(buffer, 0, length);
+      offset = length;
+      return slice;
+    }
+    if (stringBuffer == null || stringBuffer.length < length) {
+      stringBuffer = new byte[Math.max(length, stringBuffer == null ? 0 : Math.min(stringBuffer.length * 2, MAX_BUFFER_SIZE))];
+    }
+    System.arraycopy(buffer, offset, stringBuffer, 0, available);
+    offset = 0;
+    limit = 0;
+    int position = available;
+    while (position < length) {
+      final int size = stream.read(stringBuffer, position, length - position);
+      if (size < 0) {
+        limit = -1;
+        throw new EOFException();
+      }
+      position += size;
+    }
+    slice.set(stringBuffer, 0, length);
+    return slice;
   }
 
   private static boolean isAlpha(int data) {
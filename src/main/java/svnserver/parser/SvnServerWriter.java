@@ -9,9 +9,10 @@ package svnserver.parser;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import svnserver.parser.token.*;
+import svnserver.parser.token.ListBeginToken;
+import svnserver.parser.token.ListEndToken;
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -20,16 +21,51 @@ import java.util.Map;
 
 /**
  * Интерфейс для записи данных в поток.
+ * <p>
+ * Data is flushed after each top-level item unless writer is corked.
  *
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  */
 public final class SvnServerWriter implements Closeable {
+  private static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+  private static final int INITIAL_ENCODE_SIZE = 256;
+  // Longer strings are encoded without reusable buffer to avoid holding large arrays.
+  private static final int MAX_ENCODE_SIZE = 64 * 1024;
+  private static final byte[] LIST_BEGIN = {'(', ' '};
+  private static final byte[] LIST_END = {')', ' '};
+
+  /**
+   * Binary item content with unknown length.
+   */
+  @FunctionalInterface
+  public interface BinaryContent {
+    void writeTo(@NotNull OutputStream stream) throws IOException;
+  }
+
   @NotNull
   private final OutputStream stream;
+  @NotNull
+  private final OutputStream bufferStream = new BufferStream();
+  private final int bufferSize;
+  @NotNull
+  private final byte[] digits = new byte[20];
+  @Nullable
+  private byte[] buffer;
+  private int position;
+  @Nullable
+  private byte[] encodeBuffer;
+  @Nullable
+  private ScratchStream scratch;
   private int depth = 0;
+  private int corked = 0;
 
   public SvnServerWriter(@NotNull OutputStream stream) {
-    this.stream = new BufferedOutputStream(stream);
+    this(stream, DEFAULT_BUFFER_SIZE);
+  }
+
+  public SvnServerWriter(@NotNull OutputStream stream, int bufferSize) {
+    this.stream = stream;
+    this.bufferSize = bufferSize;
   }
 
   @NotNull
@@ -44,14 +80,18 @@ public final class SvnServerWriter implements Closeable {
 
   @NotNull
   public SvnServerWriter word(char c) throws IOException {
-    return word(String.valueOf(c));
+    writeByte(asciiByte(c));
+    writeByte(' ');
+    return endItem();
   }
 
   @NotNull
   public SvnServerWriter word(@NotNull String word) throws IOException {
-    WordToken.write(stream, word);
-    if (depth == 0) stream.flush();
-    return this;
+    for (int i = 0; i < word.length(); ++i) {
+      writeByte(asciiByte(word.charAt(i)));
+    }
+    writeByte(' ');
+    return endItem();
   }
 
   @NotNull
@@ -66,7 +106,16 @@ public final class SvnServerWriter implements Closeable {
   @SuppressWarnings("QuestionableName")
   @NotNull
   public SvnServerWriter string(@NotNull String text) throws IOException {
-    return binary(text.getBytes(StandardCharsets.UTF_8));
+    final int maxSize = text.length() * 3;
+    if (maxSize > MAX_ENCODE_SIZE)
+      return binary(text.getBytes(StandardCharsets.UTF_8));
+
+    byte[] encoded = encodeBuffer;
+    if (encoded == null || encoded.length < maxSize) {
+      encoded = new byte[Math.max(INITIAL_ENCODE_SIZE, Integer.highestOneBit(Math.max(maxSize - 1, 1)) << 1)];
+      encodeBuffer = encoded;
+    }
+    return binary(encoded, 0, encodeUtf8(text, encoded));
   }
 
   @NotNull
@@ -76,21 +125,52 @@ public final class SvnServerWriter implements Closeable {
 
   @NotNull
   public SvnServerWriter binary(@NotNull byte[] data, int offset, int length) throws IOException {
-    StringToken.write(stream, data, offset, length);
-    if (depth == 0) stream.flush();
-    return this;
+    writeNumber(length);
+    writeByte(':');
+    writeBytes(data, offset, length);
+    writeByte(' ');
+    return endItem();
+  }
+
+  /**
+   * Write binary item which length is not known before serialization (for example, svndiff window).
+   * <p>
+   * Content is serialized into reusable buffer because item length must precede data.
+   */
+  @NotNull
+  public SvnServerWriter binary(@NotNull BinaryContent content) throws IOException {
+    ScratchStream data = scratch;
+    if (data == null) {
+      data = new ScratchStream();
+      scratch = data;
+    }
+    data.reset();
+    content.writeTo(data);
+    return binary(data.getBuffer(), 0, data.size());
+  }
+
+  /**
+   * Write already serialized top-level items.
+   */
+  @NotNull
+  public SvnServerWriter raw(@NotNull byte[] data, int offset, int length) throws IOException {
+    if (depth != 0)
+      throw new IllegalStateException("Raw data can be written only between top-level items");
+
+    writeBytes(data, offset, length);
+    return endItem();
   }
 
   @NotNull
   public SvnServerWriter number(long number) throws IOException {
-    NumberToken.write(stream, number);
-    if (depth == 0) stream.flush();
-    return this;
+    writeNumber(number);
+    writeByte(' ');
+    return endItem();
   }
 
   @NotNull
   public SvnServerWriter separator() throws IOException {
-    stream.write('\n');
+    writeByte('\n');
     return this;
   }
 
@@ -101,18 +181,21 @@ public final class SvnServerWriter implements Closeable {
 
   @NotNull
   public SvnServerWriter write(@NotNull SvnServerToken token) throws IOException {
-    token.write(stream);
     if (token.equals(ListBeginToken.instance)) {
+      writeBytes(LIST_BEGIN, 0, LIST_BEGIN.length);
       depth++;
     } else if (token.equals(ListEndToken.instance)) {
+      writeBytes(LIST_END, 0, LIST_END.length);
       depth--;
       if (depth < 0) {
         throw new IllegalStateException("Too many closed lists.");
       }
+    } else {
+      token.write(bufferStream);
     }
     if (depth == 0) {
       separator();
-      stream.flush();
+      flushIfUncorked();
     }
     return this;
   }
@@ -143,11 +226,163 @@ public final class SvnServerWriter implements Closeable {
     return this;
   }
 
+  /**
+   * Stop flushing data after each top-level item until matching {@link #uncork()} call.
+   * <p>
+   * Long responses are sent in large chunks this way. Writer must be uncorked before waiting for client data.
+   */
+  public void cork() {
+    corked++;
+  }
+
+  public void uncork() throws IOException {
+    if (corked <= 0)
+      throw new IllegalStateException("Writer is not corked");
+
+    corked--;
+    if (depth == 0)
+      flushIfUncorked();
+  }
+
+  public void flush() throws IOException {
+    flushBuffer();
+    stream.flush();
+  }
+
+  /**
+   * Release buffers of idle writer. Buffers will be allocated again on next write.
+   */
+  public void releaseBuffer() {
+    if (position > 0)
+      throw new IllegalStateException("Can't release buffer with unflushed data");
+
+    buffer = null;
+    encodeBuffer = null;
+    scratch = null;
+  }
+
   @Override
   public void close() throws IOException {
     try (OutputStream ignored = stream) {
+      flushBuffer();
       if (depth != 0)
         throw new IllegalStateException("Unmatched parentheses");
     }
   }
+
+  @NotNull
+  private SvnServerWriter endItem() throws IOException {
+    if (depth == 0) flushIfUncorked();
+    return this;
+  }
+
+  private void flushIfUncorked() throws IOException {
+    if (corked == 0)
+      flush();
+  }
+
+  private void flushBuffer() throws IOException {
+    if (position > 0 && buffer != null) {
+      stream.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+  @NotNull
+  private byte[] reserve(int size) throws IOException {
+    byte[] result = buffer;
+    if (result == null) {
+      result = new byte[bufferSize];
+      buffer = result;
+    }
+    if (result.length - position < size)
+      flushBuffer();
+    return result;
+  }
+
+  private void writeByte(int b) throws IOException {
+    final byte[] buf = reserve(1);
+    buf[position++] = (byte) b;
+  }
+
+  private void writeBytes(@NotNull byte[] data, int offset, int length) throws IOException {
+    if (length >= bufferSize) {
+      flushBuffer();
+      stream.write(data, offset, length);
+      return;
+    }
+    final byte[] buf = reserve(length);
+    System.arraycopy(data, offset, buf, position, length);
+    position += length;
+  }
+
+  private void writeNumber(long number) throws IOException {
+    int index = digits.length;
+    long value = number;
+    do {
+      digits[--index] = (byte) ('0' + Math.abs(value % 10));
+      value /= 10;
+    } while (value != 0);
+    if (number < 0)
+      digits[--index] = '-';
+
+    writeBytes(digits, index, digits.length - index);
+  }
+
+  private static byte asciiByte(char c) {
+    return c < 0x80 ? (byte) c : (byte) '?';
+  }
+
+  /**
+   * Encode string as UTF-8 the same way as {@link String#getBytes(java.nio.charset.Charset)} does.
+   *
+   * @return Encoded size.
+   */
+  private static int encodeUtf8(@NotNull String text, @NotNull byte[] out) {
+    int size = 0;
+    final int length = text.length();
+    for (int i = 0; i < length; ++i) {
+      final char c = text.charAt(i);
+      if (c < 0x80) {
+        out[size++] = (byte) c;
+      } else if (c < 0x800) {
+        out[size++] = (byte) (0xC0 | (c >> 6));
+        out[size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+          final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+          out[size++] = (byte) (0xF0 | (codePoint >> 18));
+          out[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          out[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          out[size++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+          out[size++] = '?';
+        }
+      } else {
+        out[size++] = (byte) (0xE0 | (c >> 12));
+        out[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        out[size++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return size;
+  }
+
+  private final class BufferStream extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      writeByte(b);
+    }
+
+    @Override
+    public void write(@NotNull byte[] b, int off, int len) throws IOException {
+      writeBytes(b, off, len);
+    }
+  }
+
+  private static final class ScratchStream extends ByteArrayOutputStream {
+    @NotNull
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
 }
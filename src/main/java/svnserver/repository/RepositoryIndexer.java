@@ -0,0 +1,199 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import svnserver.Loggers;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lazy repository indexer.
+ * <p>
+ * Repository is indexed on first access or by background warmer, whichever comes first.
+ * Warmer indexes repositories in priority order using limited number of threads.
+ * Repositories accessed before warmer reached them are indexed by separate limited pool.
+ */
+public final class RepositoryIndexer implements AutoCloseable {
+  public static final int DEFAULT_ON_DEMAND_THREADS = Runtime.getRuntime().availableProcessors();
+
+  @NotNull
+  private static final Logger log = Loggers.git;
+  @NotNull
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  @FunctionalInterface
+  public interface Action {
+    void run() throws IOException, SVNException;
+  }
+
+  @NotNull
+  private final ThreadPoolExecutor warmer;
+  @NotNull
+  private final ThreadPoolExecutor onDemand;
+  private final long waitTimeout;
+  @NotNull
+  private final AtomicLong order = new AtomicLong();
+
+  /**
+   * @param threads     Number of background indexing threads.
+   * @param waitTimeout How long (in milliseconds) connection waits for repository indexing. Zero means no wait.
+   */
+  public RepositoryIndexer(int threads, long waitTimeout) {
+    this(threads, DEFAULT_ON_DEMAND_THREADS, waitTimeout);
+  }
+
+  /**
+   * @param threads         Number of background indexing threads.
+   * @param onDemandThreads Number of threads indexing repositories on first access.
+   * @param waitTimeout     How long (in milliseconds) connection waits for repository indexing. Zero means no wait.
+   */
+  public RepositoryIndexer(int threads, int onDemandThreads, long waitTimeout) {
+    this.waitTimeout = waitTimeout;
+    this.warmer = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), r -> createThread(r, "warmer"));
+    this.warmer.allowCoreThreadTimeOut(true);
+    this.onDemand = new ThreadPoolExecutor(onDemandThreads, onDemandThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> createThread(r, "demand"));
+    this.onDemand.allowCoreThreadTimeOut(true);
+  }
+
+  @NotNull
+  private static Thread createThread(@NotNull Runnable r, @NotNull String kind) {
+    final Thread thread = new Thread(r, String.format("RepositoryIndexer-%s-%s", kind, threadNumber.incrementAndGet()));
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Register repository for indexing.
+   *
+   * @param name     Repository name.
+   * @param priority Repository priority. Repositories with higher priority are indexed first.
+   * @param action   Indexing action.
+   */
+  @NotNull
+  public Task schedule(@NotNull String name, long priority, @NotNull Action action) {
+    final Task task = new Task(name, priority, order.incrementAndGet(), action);
+    warmer.execute(task);
+    return task;
+  }
+
+  @Override
+  public void close() {
+    warmer.shutdownNow();
+    onDemand.shutdownNow();
+  }
+
+  public final class Task implements Runnable, Comparable<Task> {
+    @NotNull
+    private final String name;
+    private final long priority;
+    private final long order;
+    @NotNull
+    private final Action action;
+    @NotNull
+    private final AtomicBoolean started = new AtomicBoolean();
+    // Task is queued for on-demand indexing only once
+    @NotNull
+    private final AtomicBoolean demanded = new AtomicBoolean();
+    @NotNull
+    private volatile CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private Task(@NotNull String name, long priority, long order, @NotNull Action action) {
+      this.name = name;
+      this.priority = priority;
+      this.order = order;
+      this.action = action;
+    }
+
+    public boolean isReady() {
+      final CompletableFuture<Void> future = done;
+      return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Start indexing if it is not started yet and wait for it to finish.
+     *
+     * @throws SVNException If indexing is not finished in time or failed.
+     */
+    public void waitReady() throws SVNException {
+      final CompletableFuture<Void> future = done;
+      if (future.isDone() && !future.isCompletedExceptionally())
+        return;
+
+      if (!started.get() && demanded.compareAndSet(false, true)) {
+        try {
+          onDemand.execute(this);
+        } catch (RejectedExecutionException e) {
+          demanded.set(false);
+          throw new SVNException(SVNErrorMessage.create(SVNErrorCode.RA_SVN_CONNECTION_CLOSED, "Server is shutting down"));
+        }
+      }
+      try {
+        future.get(waitTimeout, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        throw new SVNException(SVNErrorMessage.create(SVNErrorCode.RA_SVN_CONNECTION_CLOSED, "Repository " + name + " is being indexed, try again later"));
+      } catch (CancellationException e) {
+        throw new SVNException(SVNErrorMessage.create(SVNErrorCode.RA_SVN_REPOS_NOT_FOUND, "Repository " + name + " is removed"));
+      } catch (ExecutionException e) {
+        throw new SVNException(SVNErrorMessage.create(SVNErrorCode.RA_SVN_CONNECTION_CLOSED, "Repository " + name + " indexing failed, try again later"), e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SVNException(SVNErrorMessage.create(SVNErrorCode.CANCELLED), e);
+      }
+    }
+
+    /**
+     * Drop not started task. Used when repository is removed.
+     */
+    public void cancel() {
+      if (started.compareAndSet(false, true)) {
+        warmer.remove(this);
+        done.cancel(false);
+      }
+    }
+
+    @Override
+    public void run() {
+      if (!started.compareAndSet(false, true))
+        return;
+
+      final CompletableFuture<Void> future = done;
+      try {
+        action.run();
+        future.complete(null);
+      } catch (Throwable e) {
+        log.error("[{}]: failed to index repository", name, e);
+        // Allow next access to retry
+        done = new CompletableFuture<>();
+        demanded.set(false);
+        started.set(false);
+        future.completeExceptionally(e);
+      }
+    }
+
+    @Override
+    public int compareTo(@NotNull Task o) {
+      if (priority != o.priority)
+        return Long.compare(o.priority, priority);
+      return Long.compare(order, o.order);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+}
@@ -39,6 +39,13 @@ public interface RepositoryMapping<T extends BranchProvider> extends Shared {
       return null;
     }
 
+    try {
+      repo.getValue().waitReady();
+    } catch (SVNException e) {
+      BaseCmd.sendError(writer, e.getErrorMessage());
+      return null;
+    }
+
     final String branchPath = repo.getKey().isEmpty() ? path : path.substring(repo.getKey().length() - 1);
     final NavigableMap<String, GitBranch> branches = repo.getValue().getBranches();
 
@@ -8,6 +8,7 @@
 package svnserver.repository.git;
 
 import org.jetbrains.annotations.NotNull;
+import org.tmatesoft.svn.core.SVNException;
 
 import java.util.NavigableMap;
 
@@ -15,4 +16,12 @@ import java.util.NavigableMap;
 public interface BranchProvider {
   @NotNull
   NavigableMap<String, GitBranch> getBranches();
+
+  /**
+   * Wait until branches are ready to be served.
+   *
+   * @throws SVNException If branches are not ready in time.
+   */
+  default void waitReady() throws SVNException {
+  }
 }
@@ -0,0 +1,86 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of branch revision index.
+ * <p>
+ * Allows to restore loaded revisions without replaying every cached revision on startup.
+ */
+final class BranchSnapshot {
+  @NotNull
+  private final List<Revision> revisions;
+  @NotNull
+  private final PathHistoryIndex lastUpdates;
+
+  BranchSnapshot(@NotNull List<Revision> revisions, @NotNull PathHistoryIndex lastUpdates) {
+    this.revisions = revisions;
+    this.lastUpdates = lastUpdates;
+  }
+
+  @NotNull
+  List<Revision> getRevisions() {
+    return revisions;
+  }
+
+  @NotNull
+  PathHistoryIndex getLastUpdates() {
+    return lastUpdates;
+  }
+
+  /**
+   * Svn cache commit of last revision in snapshot.
+   */
+  @NotNull
+  ObjectId getCacheCommit() {
+    return revisions.get(revisions.size() - 1).getCacheCommit();
+  }
+
+  static final class Revision {
+    @NotNull
+    private final ObjectId cacheCommit;
+    @Nullable
+    private final ObjectId gitCommit;
+    private final int commitTime;
+    @NotNull
+    private final Map<String, String> renames;
+
+    Revision(@NotNull ObjectId cacheCommit, @Nullable ObjectId gitCommit, int commitTime, @NotNull Map<String, String> renames) {
+      this.cacheCommit = cacheCommit;
+      this.gitCommit = gitCommit;
+      this.commitTime = commitTime;
+      this.renames = renames;
+    }
+
+    @NotNull
+    ObjectId getCacheCommit() {
+      return cacheCommit;
+    }
+
+    @Nullable
+    ObjectId getGitCommit() {
+      return gitCommit;
+    }
+
+    int getCommitTime() {
+      return commitTime;
+    }
+
+    @NotNull
+    Map<String, String> getRenames() {
+      return renames;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+import org.mapdb.serializer.GroupSerializerObjectArray;
+
+import java.io.IOException;
+import java.util.*;
+
+final class BranchSnapshotSerializer extends GroupSerializerObjectArray<BranchSnapshot> {
+  @NotNull
+  static final BranchSnapshotSerializer instance = new BranchSnapshotSerializer();
+
+  @Override
+  public void serialize(@NotNull DataOutput2 out, @NotNull BranchSnapshot value) throws IOException {
+    out.writeInt(value.getRevisions().size());
+    for (BranchSnapshot.Revision revision : value.getRevisions()) {
+      ObjectIdSerializer.instance.serialize(out, revision.getCacheCommit());
+
+      final ObjectId gitCommit = revision.getGitCommit();
+      out.writeBoolean(gitCommit != null);
+      if (gitCommit != null)
+        ObjectIdSerializer.instance.serialize(out, gitCommit);
+
+      out.writeInt(revision.getCommitTime());
+
+      out.writeInt(revision.getRenames().size());
+      for (Map.Entry<String, String> en : revision.getRenames().entrySet()) {
+        Serializer.STRING.serialize(out, en.getKey());
+        Serializer.STRING.serialize(out, en.getValue());
+      }
+    }
+    value.getLastUpdates().write(out);
+  }
+
+  @Override
+  public BranchSnapshot deserialize(@NotNull DataInput2 input, int available) throws IOException {
+    final int count = input.readInt();
+    final List<BranchSnapshot.Revision> revisions = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      final ObjectId cacheCommit = ObjectIdSerializer.instance.deserialize(input, available);
+      final ObjectId gitCommit = input.readBoolean() ? ObjectIdSerializer.instance.deserialize(input, available) : null;
+      final int commitTime = input.readInt();
+
+      final int renamesCount = input.readInt();
+      final Map<String, String> renames;
+      if (renamesCount == 0) {
+        renames = Collections.emptyMap();
+      } else {
+        renames = new TreeMap<>();
+        for (int j = 0; j < renamesCount; ++j) {
+          renames.put(Serializer.STRING.deserialize(input, available), Serializer.STRING.deserialize(input, available));
+        }
+      }
+      revisions.add(new BranchSnapshot.Revision(cacheCommit, gitCommit, commitTime, renames));
+    }
+    return new BranchSnapshot(revisions, PathHistoryIndex.read(input));
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+import org.mapdb.serializer.GroupSerializerObjectArray;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import svnserver.repository.git.cache.CacheLogEntry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+final class CacheLogSerializer extends GroupSerializerObjectArray<List<CacheLogEntry>> {
+
+  @NotNull
+  static final CacheLogSerializer instance = new CacheLogSerializer();
+
+  @Override
+  public void serialize(@NotNull DataOutput2 out, @NotNull List<CacheLogEntry> value) throws IOException {
+    out.writeInt(value.size());
+    for (CacheLogEntry entry : value) {
+      Serializer.STRING.serialize(out, entry.getPath());
+      out.writeChar(entry.getChange());
+      Serializer.STRING.serialize(out, entry.getKind().toString());
+      out.writeBoolean(entry.isContentModified());
+      out.writeBoolean(entry.isPropertyModified());
+    }
+  }
+
+  @Override
+  public List<CacheLogEntry> deserialize(@NotNull DataInput2 input, int available) throws IOException {
+    final int count = input.readInt();
+    final List<CacheLogEntry> result = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      final String path = Serializer.STRING.deserialize(input, available);
+      final char change = input.readChar();
+      final SVNNodeKind kind = SVNNodeKind.parseKind(Serializer.STRING.deserialize(input, available));
+      final boolean contentModified = input.readBoolean();
+      final boolean propertyModified = input.readBoolean();
+      result.add(new CacheLogEntry(path, change, kind, contentModified, propertyModified));
+    }
+    return result;
+  }
+}
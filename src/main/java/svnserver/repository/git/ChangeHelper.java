@@ -11,6 +11,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import svnserver.StringHelper;
 import svnserver.repository.SvnForbiddenException;
+import svnserver.repository.git.cache.CacheLogEntry;
 
 import java.io.IOException;
 import java.util.*;
@@ -39,6 +40,37 @@ final class ChangeHelper {
     return changes;
   }
 
+  /**
+   * Get changed paths for svn log.
+   *
+   * @param changes     Changes collected by {@link #collectChanges(GitFile, GitFile, boolean)}.
+   * @param fullRemoved Changes contain content of removed directories, it is not reported by svn log.
+   */
+  @NotNull
+  static List<CacheLogEntry> collectLogEntries(@NotNull Map<String, GitLogEntry> changes, boolean fullRemoved) throws IOException {
+    final List<CacheLogEntry> result = new ArrayList<>();
+    for (Map.Entry<String, GitLogEntry> entry : new TreeMap<>(changes).entrySet()) {
+      final String path = entry.getKey();
+      if (fullRemoved && isRemovedDirectory(changes.get(StringHelper.parentDir(path))))
+        continue;
+
+      final GitLogEntry logEntry = entry.getValue();
+      final char change = logEntry.getChange();
+      if (change == 0)
+        continue;
+      result.add(new CacheLogEntry(path, change, logEntry.getKind(), logEntry.isContentModified(), logEntry.isPropertyModified()));
+    }
+    return result;
+  }
+
+  private static boolean isRemovedDirectory(@Nullable GitLogEntry change) {
+    if (change == null)
+      return false;
+    final GitFile oldEntry = change.getOldEntry();
+    final GitFile newEntry = change.getNewEntry();
+    return oldEntry != null && oldEntry.isDirectory() && (newEntry == null || !newEntry.isDirectory());
+  }
+
   private static void collectChanges(@NotNull Map<String, GitLogEntry> changes, Queue<TreeCompareEntry> queue, @NotNull TreeCompareEntry compareEntry, boolean fullRemoved) throws IOException {
     for (GitLogEntry pair : compareEntry) {
       final GitFile newEntry = pair.getNewEntry();
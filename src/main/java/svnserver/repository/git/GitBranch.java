@@ -7,38 +7,48 @@
  */
 package svnserver.repository.git;
 
-import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.RenameDetector;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.treewalk.TreeWalk;
-import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.mapdb.HTreeMap;
+import org.mapdb.Atomic;
 import org.slf4j.Logger;
 import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
 import svnserver.Loggers;
-import svnserver.StringHelper;
 import svnserver.auth.User;
 import svnserver.repository.VcsCopyFrom;
 import svnserver.repository.git.cache.CacheChange;
 import svnserver.repository.git.cache.CacheRevision;
 
+import java.io.IOError;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 
 public final class GitBranch {
-  private static final int revisionCacheVersion = 2;
+  // Version of branch cache layout, part of snapshot name
+  private static final int branchCacheVersion = 2;
+  private static final int snapshotVersion = 1;
+  // Minimal number of new revisions to rewrite snapshot
+  private static final int SNAPSHOT_INTERVAL = 1000;
   private static final int repositoryVersion = 4;
   private static final int REPORT_DELAY = 2500;
-  private static final int MARK_NO_FILE = -1;
+  // Minimal number of new revisions to write svn cache commits into pack instead of loose objects
+  private static final int PACK_THRESHOLD = 100;
+  // Maximum number of revision objects (with parsed commits) kept in memory
+  private static final int REVISION_OBJECTS_CACHE_SIZE = 1000;
   @NotNull
   private static final Logger log = Loggers.git;
   @NotNull
@@ -56,20 +66,32 @@ public final class GitBranch {
    */
   @NotNull
   private final Object pushLock = new Object();
+  /**
+   * Published revisions. Readers use it without locking, writers replace it under {@link #writeLock}.
+   */
   @NotNull
-  private final List<GitRevision> revisions = new ArrayList<>();
-  @NotNull
-  private final TreeMap<Long, GitRevision> revisionByDate = new TreeMap<>();
+  private volatile RevisionTable revisions = new RevisionTable();
+  /**
+   * Recently used revision objects. Revisions never change, so cached objects are valid for every revision table.
+   */
   @NotNull
-  private final Map<ObjectId, GitRevision> revisionByHash = new HashMap<>();
+  private final Cache<Integer, GitRevision> revisionObjects = CacheBuilder.newBuilder()
+      .maximumSize(REVISION_OBJECTS_CACHE_SIZE)
+      .build();
   @NotNull
-  private final HTreeMap<ObjectId, CacheRevision> revisionCache;
+  private final Atomic.Var<BranchSnapshot> snapshot;
+  private int snapshotRevisions;
   @NotNull
-  private final ReadWriteLock lastUpdatesLock = new ReentrantReadWriteLock();
+  private volatile PathHistoryIndex lastUpdates = new PathHistoryIndex();
+  /**
+   * Lock for revision loading and caching.
+   */
   @NotNull
-  private final Map<String, int[]> lastUpdates = new HashMap<>();
+  private final Lock writeLock = new ReentrantLock();
+  // Branch ref changes are tracked by GitRefWatcher
+  private volatile boolean refWatched;
   @NotNull
-  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final RefChangeTracker refChanges = new RefChangeTracker();
 
   public GitBranch(@NotNull GitRepository repository, @NotNull String branch) throws IOException {
     this.repository = repository;
@@ -83,14 +105,14 @@ public final class GitBranch {
         String.format("%s\0%s\0%s", repositoryId, gitBranch, repositoryVersion).getBytes(StandardCharsets.UTF_8)
     ).toString();
 
-    final String revisionCacheName = String.format(
-        "cache-revision.%s.%s.%s.v%s", repository.getContext().getName(), gitBranch, repository.hasRenameDetection() ? 1 : 0, revisionCacheVersion
+    final String snapshotName = String.format(
+        "cache-snapshot.%s.%s.%s.v%s.%s", repository.getContext().getName(), gitBranch, repository.hasRenameDetection() ? 1 : 0, branchCacheVersion, snapshotVersion
+    );
+    this.snapshot = repository.getContext().openCache(
+        snapshotName,
+        db -> db.atomicVar(snapshotName, BranchSnapshotSerializer.instance).createOrOpen(),
+        (target, source) -> target.set(source.get())
     );
-    this.revisionCache = repository.getContext().getShared().getCacheDB().hashMap(
-        revisionCacheName,
-        ObjectIdSerializer.instance,
-        CacheRevisionSerializer.instance
-    ).createOrOpen();
   }
 
   @NotNull
@@ -127,42 +149,153 @@ public final class GitBranch {
 
   @Nullable
   private GitRevision getRevisionInfoUnsafe(int revision) {
-    lock.readLock().lock();
+    final RevisionTable table = revisions;
+    if (revision < 0 || revision >= table.size())
+      return null;
+    return materializeRevision(table, revision);
+  }
+
+  @NotNull
+  private GitRevision materializeRevision(@NotNull RevisionTable table, int revision) {
     try {
-      if (revision >= revisions.size())
-        return null;
-      return revisions.get(revision);
-    } finally {
-      lock.readLock().unlock();
+      return revisionObjects.get(revision, () -> createRevision(table, revision));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw new UncheckedIOException((IOException) cause);
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  @NotNull
+  private GitRevision createRevision(@NotNull RevisionTable table, int revision) throws IOException {
+    final Map<String, VcsCopyFrom> copyFroms = new HashMap<>();
+    for (Map.Entry<String, String> entry : table.getRenames(revision).entrySet()) {
+      copyFroms.put(entry.getKey(), new VcsCopyFrom(revision - 1, entry.getValue()));
+    }
+    try (RevWalk revWalk = new RevWalk(repository.getGit())) {
+      final ObjectId oldCommit = revision == 0 ? null : table.getGitCommit(revision - 1);
+      final ObjectId newCommit = table.getGitCommit(revision);
+      return new GitRevision(
+          this,
+          table.getCacheCommit(revision),
+          revision,
+          copyFroms,
+          oldCommit == null ? null : revWalk.parseCommit(oldCommit),
+          newCommit == null ? null : revWalk.parseCommit(newCommit),
+          table.getCommitTime(revision)
+      );
     }
   }
 
   @NotNull
   public GitRevision getLatestRevision() {
-    lock.readLock().lock();
+    final RevisionTable table = revisions;
+    if (table.size() == 0)
+      throw new IllegalStateException("Branch " + this + " is not loaded yet");
+    return materializeRevision(table, table.size() - 1);
+  }
+
+  public void updateRevisions() throws IOException, SVNException {
+    // Caches of closed repository are released
+    if (!repository.beginWork())
+      return;
     try {
-      return revisions.get(revisions.size() - 1);
+      final int firstRevision = revisions.size();
+      boolean gotNewRevisions = false;
+
+      while (!repository.isClosed()) {
+        loadRevisions();
+        if (!cacheRevisions()) {
+          break;
+        }
+        gotNewRevisions = true;
+      }
+      if (repository.isClosed())
+        return;
+
+      warmMetadata(firstRevision);
+
+      if (gotNewRevisions) {
+        final boolean locksChanged = repository.wrapLockWrite(lockStorage -> lockStorage.cleanupInvalidLocks(this));
+        if (locksChanged)
+          repository.commitCacheDB();
+      }
     } finally {
-      lock.readLock().unlock();
+      repository.endWork();
     }
   }
 
-  public void updateRevisions() throws IOException, SVNException {
-    boolean gotNewRevisions = false;
+  /**
+   * Queue metadata computation of files from revisions loaded since given one.
+   */
+  private void warmMetadata(int firstRevision) {
+    final GitMetadataWarmer warmer = repository.getContext().getShared().get(GitMetadataWarmer.class);
+    final int lastRevision = revisions.size() - 1;
+    if (warmer == null || lastRevision < firstRevision)
+      return;
+
+    if (firstRevision == 0) {
+      // Initial loading: history is too long to check, only head files are needed by checkout
+      warmer.addHead(this);
+      return;
+    }
+    // Newest revisions first: they are most likely requested by next update
+    for (int revision = lastRevision; revision >= firstRevision; --revision)
+      warmer.addRevision(this, revision);
+  }
+
+  /**
+   * @return true if branch is indexed in background on ref change and there is no need to update revisions on connection.
+   */
+  public boolean isRefWatched() {
+    return refWatched;
+  }
+
+  void setRefWatched(boolean refWatched) {
+    this.refWatched = refWatched;
+  }
+
+  /**
+   * @return Time in milliseconds since first ref change that is not indexed yet.
+   */
+  public long getIndexingLag() {
+    return refChanges.getLag();
+  }
+
+  /**
+   * Mark branch ref as changed.
+   *
+   * @return true if branch indexing should be scheduled.
+   */
+  boolean markRefChanged() {
+    return refChanges.markChanged();
+  }
 
+  /**
+   * Index ref changes marked by {@link #markRefChanged()}.
+   *
+   * @return Time in milliseconds between ref change and end of indexing or -1 if branch is not loaded yet.
+   */
+  long indexRefChanges() throws IOException, SVNException {
+    long lag = -1;
     while (true) {
-      loadRevisions();
-      if (!cacheRevisions()) {
-        break;
+      final RefChangeTracker.Round round = refChanges.begin();
+      if (!isEmpty()) {
+        updateRevisions();
+        lag = round.getLag();
       }
-      gotNewRevisions = true;
+      // Repeat if ref was changed during indexing
+      if (refChanges.finish(round))
+        return lag;
     }
+  }
 
-    if (gotNewRevisions) {
-      final boolean locksChanged = repository.wrapLockWrite(lockStorage -> lockStorage.cleanupInvalidLocks(this));
-      if (locksChanged)
-        repository.getContext().getShared().getCacheDB().commit();
-    }
+  private boolean isEmpty() {
+    // Initial loading is done by repository mapping
+    return revisions.size() == 0;
   }
 
   /**
@@ -170,60 +303,151 @@ public final class GitBranch {
    */
   private void loadRevisions() throws IOException {
     // Fast check.
-    lock.readLock().lock();
-    try {
-      final int lastRevision = revisions.size() - 1;
-      final ObjectId lastCommitId;
-      if (lastRevision >= 0) {
-        lastCommitId = revisions.get(lastRevision).getCacheCommit();
-        final Ref head = repository.getGit().exactRef(svnBranch);
-        if (head.getObjectId().equals(lastCommitId)) {
-          return;
-        }
+    final RevisionTable table = revisions;
+    if (table.size() > 0) {
+      final Ref head = repository.getGit().exactRef(svnBranch);
+      if (head.getObjectId().equals(table.getCacheCommit(table.size() - 1))) {
+        return;
       }
-    } finally {
-      lock.readLock().unlock();
     }
     // Real loading.
-    lock.writeLock().lock();
+    writeLock.lock();
     try {
-      final int lastRevision = revisions.size() - 1;
-      final ObjectId lastCommitId = lastRevision < 0 ? null : revisions.get(lastRevision).getCacheCommit();
-      final Ref head = repository.getGit().exactRef(svnBranch);
-      final List<RevCommit> newRevs = new ArrayList<>();
-      final RevWalk revWalk = new RevWalk(repository.getGit());
-      ObjectId objectId = head.getObjectId();
-      while (true) {
-        if (objectId.equals(lastCommitId)) {
-          break;
+      loadRevisionsLocked(true);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void loadRevisionsLocked(boolean useSnapshot) throws IOException {
+    final int lastRevision = revisions.size() - 1;
+    final BranchSnapshot loadedSnapshot = lastRevision < 0 && useSnapshot ? loadSnapshot() : null;
+    final ObjectId lastCommitId;
+    if (loadedSnapshot != null) {
+      lastCommitId = loadedSnapshot.getCacheCommit();
+    } else {
+      lastCommitId = lastRevision < 0 ? null : revisions.getCacheCommit(lastRevision);
+    }
+    final Ref head = repository.getGit().exactRef(svnBranch);
+    final List<RevCommit> newRevs = new ArrayList<>();
+    final RevWalk revWalk = new RevWalk(repository.getGit());
+    ObjectId objectId = head.getObjectId();
+    boolean found = false;
+    while (true) {
+      if (objectId.equals(lastCommitId)) {
+        found = true;
+        break;
+      }
+      final RevCommit commit = revWalk.parseCommit(objectId);
+      newRevs.add(commit);
+      if (commit.getParentCount() == 0) break;
+      objectId = commit.getParent(0);
+    }
+    if (loadedSnapshot != null) {
+      if (found && isSnapshotValid(revWalk, loadedSnapshot)) {
+        applySnapshot(loadedSnapshot);
+      } else {
+        log.warn("[{}]: revision snapshot does not match svn cache history, ignoring it", this);
+        if (found) {
+          loadRevisionsLocked(false);
+          return;
         }
-        final RevCommit commit = revWalk.parseCommit(objectId);
-        newRevs.add(commit);
-        if (commit.getParentCount() == 0) break;
-        objectId = commit.getParent(0);
       }
-      if (newRevs.isEmpty()) {
-        return;
+    }
+    if (newRevs.isEmpty()) {
+      return;
+    }
+    final long beginTime = System.currentTimeMillis();
+    int processed = 0;
+    long reportTime = beginTime;
+    log.info("[{}]: loading cached revision changes: {} revisions", this, newRevs.size());
+    prepareCacheRevisions(newRevs);
+    for (int i = newRevs.size() - 1; i >= 0; i--) {
+      loadRevisionInfo(newRevs.get(i));
+      processed++;
+      long currentTime = System.currentTimeMillis();
+      if (currentTime - reportTime > REPORT_DELAY) {
+        log.info("[{}]: processed cached revision: {}/{} ({} rev/sec)", this, newRevs.size() - i, newRevs.size(), 1000.0f * processed / (currentTime - reportTime));
+        reportTime = currentTime;
+        processed = 0;
       }
-      final long beginTime = System.currentTimeMillis();
-      int processed = 0;
-      long reportTime = beginTime;
-      log.info("[{}]: loading cached revision changes: {} revisions", this, newRevs.size());
-      for (int i = newRevs.size() - 1; i >= 0; i--) {
-        loadRevisionInfo(newRevs.get(i));
-        processed++;
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - reportTime > REPORT_DELAY) {
-          log.info("[{}]: processed cached revision: {}/{} ({} rev/sec)", this, newRevs.size() - i, newRevs.size(), 1000.0f * processed / (currentTime - reportTime));
-          reportTime = currentTime;
-          processed = 0;
-        }
+    }
+    final long endTime = System.currentTimeMillis();
+    log.info("[{}]: {} cached revision loaded: {} ms", this, newRevs.size(), endTime - beginTime);
+
+    if (revisions.size() - snapshotRevisions >= SNAPSHOT_INTERVAL)
+      saveSnapshot();
+  }
+
+  /**
+   * Compute missing revision changes in parallel.
+   * <p>
+   * Every revision depends only on its own and parent trees, so they can be computed independently.
+   * Results are stored into revision cache and then applied in order.
+   */
+  private void prepareCacheRevisions(@NotNull List<RevCommit> newRevs) {
+    final int firstRevision = revisions.size();
+    if (newRevs.size() < 2)
+      return;
+
+    final long beginTime = System.currentTimeMillis();
+    IntStream.range(0, newRevs.size()).parallel().forEach(i -> {
+      final int revisionId = firstRevision + newRevs.size() - 1 - i;
+      try (ObjectReader reader = repository.getGit().newObjectReader()) {
+        loadCacheRevision(reader, newRevs.get(i), revisionId);
+      } catch (IOException | RuntimeException e) {
+        // Revision will be computed again (and error reported) during sequential loading
+        log.warn("[{}]: can't compute changes of revision {}", this, revisionId, e);
       }
-      final long endTime = System.currentTimeMillis();
-      log.info("[{}]: {} cached revision loaded: {} ms", this, newRevs.size(), endTime - beginTime);
-    } finally {
-      lock.writeLock().unlock();
+    });
+    log.info("[{}]: {} revision changes prepared: {} ms", this, newRevs.size(), System.currentTimeMillis() - beginTime);
+  }
+
+  @Nullable
+  private BranchSnapshot loadSnapshot() {
+    try {
+      final BranchSnapshot result = snapshot.get();
+      if (result == null || result.getRevisions().isEmpty())
+        return null;
+      return result;
+    } catch (RuntimeException | IOError e) {
+      log.warn("[{}]: can't read revision snapshot, revisions will be reloaded", this, e);
+      return null;
+    }
+  }
+
+  /**
+   * Check that snapshot size matches revision number of its last svn cache commit.
+   */
+  private boolean isSnapshotValid(@NotNull RevWalk revWalk, @NotNull BranchSnapshot loaded) throws IOException {
+    final int lastRevision = loaded.getRevisions().size() - 1;
+    if (lastRevision == 0)
+      return true;
+    final RevCommit commit = revWalk.parseCommit(loaded.getCacheCommit());
+    return commit.getFullMessage().startsWith("#" + lastRevision + ": ");
+  }
+
+  private void applySnapshot(@NotNull BranchSnapshot loaded) {
+    final long beginTime = System.currentTimeMillis();
+    // Path history must be available before revisions are published
+    lastUpdates = loaded.getLastUpdates();
+    for (BranchSnapshot.Revision entry : loaded.getRevisions()) {
+      addRevision(entry.getCacheCommit(), entry.getCommitTime(), entry.getRenames(), entry.getGitCommit());
+    }
+    snapshotRevisions = revisions.size();
+    log.info("[{}]: {} revisions loaded from snapshot: {} ms", this, revisions.size(), System.currentTimeMillis() - beginTime);
+  }
+
+  private void saveSnapshot() throws IOException {
+    final RevisionTable table = revisions;
+    final List<BranchSnapshot.Revision> entries = new ArrayList<>(table.size());
+    for (int i = 0; i < table.size(); ++i) {
+      entries.add(new BranchSnapshot.Revision(table.getCacheCommit(i), table.getGitCommit(i), table.getCommitTime(i), new TreeMap<>(table.getRenames(i))));
     }
+    snapshot.set(new BranchSnapshot(entries, lastUpdates));
+    repository.commitCacheDB();
+    snapshotRevisions = table.size();
+    log.info("[{}]: revision snapshot saved: {} revisions", this, table.size());
   }
 
   /**
@@ -231,28 +455,23 @@ public final class GitBranch {
    */
   private boolean cacheRevisions() throws IOException {
     // Fast check.
-    lock.readLock().lock();
-    try {
-      final int lastRevision = revisions.size() - 1;
-      if (lastRevision >= 0) {
-        final ObjectId lastCommitId = revisions.get(lastRevision).getGitNewCommit();
-        final Ref master = repository.getGit().exactRef(gitBranch);
-        if ((master == null) || (master.getObjectId().equals(lastCommitId))) {
-          return false;
-        }
+    final RevisionTable table = revisions;
+    if (table.size() > 0) {
+      final ObjectId lastCommitId = table.getGitCommit(table.size() - 1);
+      final Ref master = repository.getGit().exactRef(gitBranch);
+      if ((master == null) || (master.getObjectId().equals(lastCommitId))) {
+        return false;
       }
-    } finally {
-      lock.readLock().unlock();
     }
     // Real update.
-    lock.writeLock().lock();
-    try (ObjectInserter inserter = repository.getGit().newObjectInserter()) {
+    writeLock.lock();
+    try {
       final Ref master = repository.getGit().exactRef(gitBranch);
       final List<RevCommit> newRevs = new ArrayList<>();
       final RevWalk revWalk = new RevWalk(repository.getGit());
       ObjectId objectId = master.getObjectId();
       while (true) {
-        if (revisionByHash.containsKey(objectId)) {
+        if (revisions.findByHash(objectId) >= 0) {
           break;
         }
         final RevCommit commit = revWalk.parseCommit(objectId);
@@ -261,112 +480,111 @@ public final class GitBranch {
         objectId = commit.getParent(0);
       }
       if (!newRevs.isEmpty()) {
-        final long beginTime = System.currentTimeMillis();
-        int processed = 0;
-        long reportTime = beginTime;
-        log.info("[{}]: Loading revision changes: {} revision", this, newRevs.size());
-        int revisionId = revisions.size();
-        ObjectId cacheId = revisions.get(revisions.size() - 1).getCacheCommit();
-        for (int i = newRevs.size() - 1; i >= 0; i--) {
-          final RevCommit revCommit = newRevs.get(i);
-          cacheId = LayoutHelper.createCacheCommit(inserter, cacheId, revCommit, revisionId, Collections.emptyMap());
-          inserter.flush();
+        createCacheCommits(newRevs);
+      }
+      return !newRevs.isEmpty();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void createCacheCommits(@NotNull List<RevCommit> newRevs) throws IOException {
+    try (ObjectInserter inserter = newCacheInserter(newRevs.size())) {
+      final long beginTime = System.currentTimeMillis();
+      int processed = 0;
+      long reportTime = beginTime;
+      log.info("[{}]: Loading revision changes: {} revision", this, newRevs.size());
+      int revisionId = revisions.size();
+      ObjectId cacheId = revisions.getCacheCommit(revisionId - 1);
+      for (int i = newRevs.size() - 1; i >= 0; i--) {
+        final RevCommit revCommit = newRevs.get(i);
+        cacheId = LayoutHelper.createCacheCommit(inserter, cacheId, revCommit, revisionId, Collections.emptyMap());
 
-          processed++;
-          long currentTime = System.currentTimeMillis();
-          if (currentTime - reportTime > REPORT_DELAY) {
-            log.info("  processed revision: {} ({} rev/sec)", newRevs.size() - i, 1000.0f * processed / (currentTime - reportTime));
-            reportTime = currentTime;
-            processed = 0;
+        processed++;
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - reportTime > REPORT_DELAY) {
+          log.info("  processed revision: {} ({} rev/sec)", newRevs.size() - i, 1000.0f * processed / (currentTime - reportTime));
+          reportTime = currentTime;
+          processed = 0;
 
-            final RefUpdate refUpdate = repository.getGit().updateRef(svnBranch);
-            refUpdate.setNewObjectId(cacheId);
-            refUpdate.update();
+          inserter.flush();
+          final RefUpdate refUpdate = repository.getGit().updateRef(svnBranch);
+          refUpdate.setNewObjectId(cacheId);
+          refUpdate.update();
+          if (repository.isClosed()) {
+            log.info("[{}]: repository is closed, loading of revision changes is stopped", this);
+            break;
           }
-          revisionId++;
         }
-        final long endTime = System.currentTimeMillis();
-        log.info("Revision changes loaded: {} ms", endTime - beginTime);
-
-        final RefUpdate refUpdate = repository.getGit().updateRef(svnBranch);
-        refUpdate.setNewObjectId(cacheId);
-        refUpdate.update();
+        revisionId++;
       }
-      return !newRevs.isEmpty();
-    } finally {
-      lock.writeLock().unlock();
+      final long endTime = System.currentTimeMillis();
+      log.info("Revision changes loaded: {} ms", endTime - beginTime);
+
+      inserter.flush();
+      final RefUpdate refUpdate = repository.getGit().updateRef(svnBranch);
+      refUpdate.setNewObjectId(cacheId);
+      refUpdate.update();
     }
   }
 
+  /**
+   * Create inserter for svn cache commits.
+   * <p>
+   * Large batches in local repository are written into single pack instead of two loose objects per revision.
+   */
+  @NotNull
+  private ObjectInserter newCacheInserter(int count) {
+    final ObjectDatabase database = repository.getGit().getObjectDatabase();
+    if (count >= PACK_THRESHOLD && database instanceof ObjectDirectory)
+      return ((ObjectDirectory) database).newPackInserter();
+
+    return database.newInserter();
+  }
+
   private void loadRevisionInfo(@NotNull RevCommit commit) throws IOException {
     final ObjectReader reader = repository.getGit().newObjectReader();
     final CacheRevision cacheRevision = loadCacheRevision(reader, commit, revisions.size());
     final int revisionId = revisions.size();
-    final Map<String, VcsCopyFrom> copyFroms = new HashMap<>();
-    for (Map.Entry<String, String> entry : cacheRevision.getRenames().entrySet()) {
-      copyFroms.put(entry.getKey(), new VcsCopyFrom(revisionId - 1, entry.getValue()));
-    }
-    final RevCommit oldCommit = revisions.isEmpty() ? null : revisions.get(revisions.size() - 1).getGitNewCommit();
-    final RevCommit svnCommit = cacheRevision.getGitCommitId() != null ? new RevWalk(reader).parseCommit(cacheRevision.getGitCommitId()) : null;
 
-    try {
-      lastUpdatesLock.writeLock().lock();
-      for (Map.Entry<String, CacheChange> entry : cacheRevision.getFileChange().entrySet()) {
-        lastUpdates.compute(entry.getKey(), (key, list) -> {
-          final boolean markNoFile = entry.getValue().getNewFile() == null;
-          final int prevLen = (list == null ? 0 : list.length);
-          final int newLen = prevLen + 1 + (markNoFile ? 1 : 0);
-          final int[] result = list == null ? new int[newLen] : Arrays.copyOf(list, newLen);
-
-          result[prevLen] = revisionId;
-          if (markNoFile) {
-            result[prevLen + 1] = MARK_NO_FILE;
-          }
-          return result;
-        });
-      }
-    } finally {
-      lastUpdatesLock.writeLock().unlock();
+    for (Map.Entry<String, CacheChange> entry : cacheRevision.getFileChange().entrySet()) {
+      lastUpdates.add(entry.getKey(), revisionId, entry.getValue().getNewFile() == null);
     }
+    addRevision(commit.getId(), commit.getCommitTime(), cacheRevision.getRenames(), cacheRevision.getGitCommitId());
+  }
 
-    final GitRevision revision = new GitRevision(this, commit.getId(), revisionId, copyFroms, oldCommit, svnCommit, commit.getCommitTime());
-    if (revision.getId() > 0) {
-      if (revisionByDate.isEmpty() || revisionByDate.lastKey() <= revision.getDate()) {
-        revisionByDate.put(revision.getDate(), revision);
-      }
-    }
-    if (svnCommit != null) {
-      revisionByHash.put(svnCommit.getId(), revision);
-    }
-    revisions.add(revision);
+  private void addRevision(@NotNull ObjectId cacheCommit, int commitTime, @NotNull Map<String, String> renames, @Nullable ObjectId svnCommit) {
+    revisions = revisions.append(cacheCommit, svnCommit, commitTime, renames);
   }
 
   @NotNull
   private CacheRevision loadCacheRevision(@NotNull ObjectReader reader, @NotNull RevCommit newCommit, int revisionId) throws IOException {
-    final ObjectId cacheKey = newCommit.copy();
-
-    CacheRevision result = revisionCache.get(cacheKey);
-    if (result == null) {
-      final RevCommit baseCommit = LayoutHelper.loadOriginalCommit(reader, newCommit);
-      final GitFile oldTree = getSubversionTree(reader, newCommit.getParentCount() > 0 ? newCommit.getParent(0) : null, revisionId - 1);
-      final GitFile newTree = getSubversionTree(reader, newCommit, revisionId);
+    final RevCommit baseCommit = LayoutHelper.loadOriginalCommit(reader, newCommit);
+    final RevCommit oldCommit = LayoutHelper.loadOriginalCommit(reader, newCommit.getParentCount() > 0 ? newCommit.getParent(0) : null);
+    return repository.getCacheRevision(oldCommit, baseCommit, () -> {
+      final GitFile oldTree = getSubversionTree(oldCommit, revisionId - 1);
+      final GitFile newTree = getSubversionTree(baseCommit, revisionId);
+      final Map<String, GitLogEntry> changes = ChangeHelper.collectChanges(oldTree, newTree, true);
       final Map<String, CacheChange> fileChange = new TreeMap<>();
-      for (Map.Entry<String, GitLogEntry> entry : ChangeHelper.collectChanges(oldTree, newTree, true).entrySet()) {
+      for (Map.Entry<String, GitLogEntry> entry : changes.entrySet()) {
         fileChange.put(entry.getKey(), new CacheChange(entry.getValue()));
       }
-      result = new CacheRevision(
+      try {
+        repository.putLogEntries(oldCommit, baseCommit, ChangeHelper.collectLogEntries(changes, true));
+      } catch (IOException e) {
+        // Changed paths will be computed on demand
+        log.warn("[{}]: can't collect changed paths of revision {}", this, revisionId, e);
+      }
+      return new CacheRevision(
           baseCommit,
-          collectRename(oldTree, newTree),
+          collectRename(oldTree, newTree, revisionId),
           fileChange
       );
-      revisionCache.put(cacheKey, result);
-    }
-    return result;
+    });
   }
 
   @NotNull
-  private GitFile getSubversionTree(@NotNull ObjectReader reader, @Nullable RevCommit commit, int revisionId) throws IOException {
-    final RevCommit revCommit = LayoutHelper.loadOriginalCommit(reader, commit);
+  private GitFile getSubversionTree(@Nullable RevCommit revCommit, int revisionId) throws IOException {
     if (revCommit == null) {
       return new GitFileEmptyTree(this, "", revisionId - 1);
     }
@@ -374,7 +592,7 @@ public final class GitBranch {
   }
 
   @NotNull
-  private Map<String, String> collectRename(@NotNull GitFile oldTree, @NotNull GitFile newTree) throws IOException {
+  private Map<String, String> collectRename(@NotNull GitFile oldTree, @NotNull GitFile newTree, int revisionId) throws IOException {
     if (!repository.hasRenameDetection()) {
       return Collections.emptyMap();
     }
@@ -383,36 +601,16 @@ public final class GitBranch {
     if (oldTreeId == null || newTreeId == null || !Objects.equals(oldTreeId.getRepo(), newTreeId.getRepo())) {
       return Collections.emptyMap();
     }
-    final TreeWalk tw = new TreeWalk(repository.getGit());
-    tw.setRecursive(true);
-    tw.setFilter(TreeFilter.ANY_DIFF);
-    tw.addTree(oldTreeId.getObject());
-    tw.addTree(newTreeId.getObject());
-
-    final RenameDetector rd = new RenameDetector(repository.getGit());
-    rd.addAll(DiffEntry.scan(tw));
-
-    final Map<String, String> result = new HashMap<>();
-    for (DiffEntry diff : rd.compute(tw.getObjectReader(), null)) {
-      if (diff.getScore() >= rd.getRenameScore()) {
-        result.put(StringHelper.normalize(diff.getNewPath()), StringHelper.normalize(diff.getOldPath()));
-      }
-    }
-    return result;
+    return repository.getRenameDetector().detectRenames(this, revisionId, oldTreeId.getObject(), newTreeId.getObject());
   }
 
   @NotNull
   public GitRevision getRevisionByDate(long dateTime) {
-    lock.readLock().lock();
-    try {
-      final Map.Entry<Long, GitRevision> entry = revisionByDate.floorEntry(dateTime);
-      if (entry != null) {
-        return entry.getValue();
-      }
-      return revisions.get(0);
-    } finally {
-      lock.readLock().unlock();
-    }
+    final RevisionTable table = revisions;
+    final int revision = table.findByDate(dateTime);
+    if (revision < 0)
+      throw new IllegalStateException("Branch " + this + " is not loaded yet");
+    return materializeRevision(table, revision);
   }
 
   @NotNull
@@ -426,43 +624,45 @@ public final class GitBranch {
 
   @NotNull
   public GitRevision getRevision(@NotNull ObjectId revisionId) throws SVNException {
-    lock.readLock().lock();
-    try {
-      final GitRevision revision = revisionByHash.get(revisionId);
-      if (revision == null) {
-        throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision " + revisionId.name()));
-      }
-      return revision;
-    } finally {
-      lock.readLock().unlock();
+    final RevisionTable table = revisions;
+    final int revision = table.findByHash(revisionId);
+    if (revision < 0) {
+      throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision " + revisionId.name()));
     }
+    return materializeRevision(table, revision);
+  }
+
+  /**
+   * Same as {@link GitRevision#getCopyFrom(String)}, but does not load revision commits.
+   */
+  @Nullable
+  public VcsCopyFrom getCopyFrom(int revision, @NotNull String fullPath) {
+    final String oldPath = revisions.getRenameSource(revision, fullPath);
+    return oldPath == null ? null : new VcsCopyFrom(revision - 1, oldPath);
   }
 
   public int getLastChange(@NotNull String nodePath, int beforeRevision) {
     if (nodePath.isEmpty()) return beforeRevision;
 
-    try {
-      lastUpdatesLock.readLock().lock();
-
-      final int[] revs = this.lastUpdates.get(nodePath);
-      if (revs != null) {
-        int prev = 0;
-        for (int i = revs.length - 1; i >= 0; --i) {
-          final int rev = revs[i];
-          if ((rev >= 0) && (rev <= beforeRevision)) {
-            if (prev == MARK_NO_FILE) {
-              return MARK_NO_FILE;
-            }
-            return rev;
-          }
-          prev = rev;
-        }
-      }
-    } finally {
-      lastUpdatesLock.readLock().unlock();
-    }
+    return lastUpdates.getLastChange(nodePath, beforeRevision);
+  }
+
+  /**
+   * @return Revision in which path existing in given revision was created or -1 if path does not exist.
+   */
+  public int getCreatedRevision(@NotNull String nodePath, int revision) {
+    if (nodePath.isEmpty()) return 0;
+
+    return lastUpdates.getCreated(nodePath, revision);
+  }
+
+  /**
+   * @return Revision in which path existing in given revision was removed or -1 if path is not removed yet.
+   */
+  public int getRemovedRevision(@NotNull String nodePath, int revision) {
+    if (nodePath.isEmpty()) return -1;
 
-    return MARK_NO_FILE;
+    return lastUpdates.getRemoved(nodePath, revision);
   }
 
   @NotNull
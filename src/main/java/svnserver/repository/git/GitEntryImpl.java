@@ -33,9 +33,16 @@ class GitEntryImpl implements GitEntry {
   private String fullPathCache;
 
   GitEntryImpl(@NotNull GitProperty[] parentProps, @NotNull String parentPath, @NotNull GitProperty[] props, @NotNull String name, @NotNull FileMode fileMode) {
+    this(parentPath, GitProperty.joinProperties(parentProps, name, fileMode, props), name);
+  }
+
+  /**
+   * @param props Properties already joined with parent properties.
+   */
+  GitEntryImpl(@NotNull String parentPath, @NotNull GitProperty[] props, @NotNull String name) {
     this.parentPath = parentPath;
     this.name = name;
-    this.props = GitProperty.joinProperties(parentProps, name, fileMode, props);
+    this.props = props;
   }
 
   @NotNull
@@ -7,6 +7,7 @@
  */
 package svnserver.repository.git;
 
+import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
@@ -14,6 +15,7 @@ import org.eclipse.jgit.revwalk.RevTree;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.tmatesoft.svn.core.SVNProperty;
+import svnserver.StringHelper;
 import svnserver.repository.VcsCopyFrom;
 import svnserver.repository.VcsSupplier;
 import svnserver.repository.git.filter.GitFilter;
@@ -46,23 +48,73 @@ final class GitFileTreeEntry extends GitEntryImpl implements GitFile {
   @Nullable
   private Iterable<GitFile> treeEntriesCache;
 
-  private GitFileTreeEntry(@NotNull GitBranch branch, @NotNull GitProperty[] parentProps, @NotNull String parentPath, @NotNull GitTreeEntry treeEntry, int revision, @NotNull EntriesCache entriesCache) throws IOException {
-    super(parentProps, parentPath, branch.getRepository().collectProperties(treeEntry, entriesCache), treeEntry.getFileName(), treeEntry.getFileMode());
+  private GitFileTreeEntry(@NotNull GitBranch branch, @NotNull Location location, int revision) {
+    super(location.parentPath, location.props, location.treeEntry.getFileName());
     this.branch = branch;
     this.revision = revision;
-    this.treeEntry = treeEntry;
-    this.entriesCache = entriesCache;
-    this.filter = branch.getRepository().getFilter(treeEntry.getFileMode(), this.getRawProperties());
+    this.treeEntry = location.treeEntry;
+    this.entriesCache = new EntriesCache(branch.getRepository(), treeEntry);
+    this.filter = branch.getRepository().getFilter(treeEntry.getFileMode(), location.props);
   }
 
   @NotNull
   public static GitFile create(@NotNull GitBranch branch, @NotNull RevTree tree, int revision) throws IOException {
-    return create(branch, GitProperty.emptyArray, "", new GitTreeEntry(branch.getRepository().getGit(), FileMode.TREE, tree, ""), revision);
+    final GitRepository repo = branch.getRepository();
+    return new GitFileTreeEntry(branch, Location.create(repo, GitProperty.emptyArray, "", new GitTreeEntry(repo.getGit(), FileMode.TREE, tree, "")), revision);
   }
 
+  /**
+   * Find entry by path.
+   * <p>
+   * Resolved entries are cached by root tree id, so repeated lookups of same path do not walk the tree.
+   */
+  @Nullable
+  public static GitFile create(@NotNull GitBranch branch, @NotNull RevTree tree, int revision, @NotNull String fullPath) throws IOException {
+    final Location location = resolve(branch.getRepository(), tree, normalizePath(fullPath));
+    return location == null ? null : new GitFileTreeEntry(branch, location, revision);
+  }
+
+  @Nullable
+  private static Location resolve(@NotNull GitRepository repo, @NotNull ObjectId tree, @NotNull String path) throws IOException {
+    final GitTreeCache cache = repo.getTreeCache();
+    Location result = cache.getLocation(repo, new PathKey(tree, path));
+    if (result != null)
+      return result;
+
+    if (path.isEmpty()) {
+      result = Location.create(repo, GitProperty.emptyArray, "", new GitTreeEntry(repo.getGit(), FileMode.TREE, tree.copy(), ""));
+    } else {
+      final Location parent = resolve(repo, tree, StringHelper.parentDir(path));
+      if (parent == null)
+        return null;
+
+      final GitTreeEntry entry = repo.loadTreeIndex(parent.treeEntry).get(StringHelper.baseName(path));
+      if (entry == null)
+        return null;
+
+      result = Location.create(repo, parent.props, StringHelper.joinPath(parent.parentPath, parent.treeEntry.getFileName()), entry);
+    }
+    cache.putLocation(repo, new PathKey(tree.copy(), path), result);
+    return result;
+  }
+
+  /**
+   * Convert path to "a/b/c" form.
+   */
   @NotNull
-  private static GitFile create(@NotNull GitBranch branch, @NotNull GitProperty[] parentProps, @NotNull String parentPath, @NotNull GitTreeEntry treeEntry, int revision) throws IOException {
-    return new GitFileTreeEntry(branch, parentProps, parentPath, treeEntry, revision, new EntriesCache(branch.getRepository(), treeEntry));
+  private static String normalizePath(@NotNull String path) {
+    if (!path.startsWith("/") && !path.endsWith("/") && !path.contains("//"))
+      return path;
+
+    final StringBuilder result = new StringBuilder(path.length());
+    for (String pathItem : path.split("/")) {
+      if (pathItem.isEmpty())
+        continue;
+      if (result.length() > 0)
+        result.append('/');
+      result.append(pathItem);
+    }
+    return result.toString();
   }
 
   @NotNull
@@ -158,9 +210,8 @@ final class GitFileTreeEntry extends GitEntryImpl implements GitFile {
   public Iterable<GitFile> getEntries() throws IOException {
     if (treeEntriesCache == null) {
       final List<GitFile> result = new ArrayList<>();
-      final String fullPath = getFullPath();
       for (GitTreeEntry entry : entriesCache.get()) {
-        result.add(GitFileTreeEntry.create(branch, getRawProperties(), fullPath, entry, revision));
+        result.add(createChild(entry));
       }
       treeEntriesCache = result;
     }
@@ -169,12 +220,13 @@ final class GitFileTreeEntry extends GitEntryImpl implements GitFile {
 
   @Nullable
   public GitFile getEntry(@NotNull String name) throws IOException {
-    for (GitTreeEntry entry : entriesCache.get()) {
-      if (entry.getFileName().equals(name)) {
-        return create(branch, getRawProperties(), getFullPath(), entry, revision);
-      }
-    }
-    return null;
+    final GitTreeEntry entry = entriesCache.getIndex().get(name);
+    return entry == null ? null : createChild(entry);
+  }
+
+  @NotNull
+  private GitFile createChild(@NotNull GitTreeEntry entry) throws IOException {
+    return new GitFileTreeEntry(branch, Location.create(branch.getRepository(), getRawProperties(), getFullPath(), entry), revision);
   }
 
   @Override
@@ -200,13 +252,63 @@ final class GitFileTreeEntry extends GitEntryImpl implements GitFile {
         '}';
   }
 
+  /**
+   * Revision independent part of tree entry.
+   */
+  static final class Location {
+    @NotNull
+    private final String parentPath;
+    @NotNull
+    private final GitProperty[] props;
+    @NotNull
+    private final GitTreeEntry treeEntry;
+
+    private Location(@NotNull String parentPath, @NotNull GitProperty[] props, @NotNull GitTreeEntry treeEntry) {
+      this.parentPath = parentPath;
+      this.props = props;
+      this.treeEntry = treeEntry;
+    }
+
+    @NotNull
+    private static Location create(@NotNull GitRepository repo, @NotNull GitProperty[] parentProps, @NotNull String parentPath, @NotNull GitTreeEntry treeEntry) throws IOException {
+      final GitProperty[] props = repo.collectProperties(treeEntry, () -> repo.loadTree(treeEntry));
+      return new Location(parentPath, GitProperty.joinProperties(parentProps, treeEntry.getFileName(), treeEntry.getFileMode(), props), treeEntry);
+    }
+  }
+
+  static final class PathKey {
+    @NotNull
+    private final ObjectId tree;
+    @NotNull
+    private final String path;
+
+    private PathKey(@NotNull ObjectId tree, @NotNull String path) {
+      this.tree = tree;
+      this.path = path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      final PathKey that = (PathKey) o;
+      return AnyObjectId.isEqual(tree, that.tree)
+          && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return tree.hashCode() * 31 + path.hashCode();
+    }
+  }
+
   private static class EntriesCache implements VcsSupplier<Iterable<GitTreeEntry>> {
     @NotNull
     private final GitRepository repo;
     @NotNull
     private final GitTreeEntry treeEntry;
     @Nullable
-    private Iterable<GitTreeEntry> rawEntriesCache;
+    private Map<String, GitTreeEntry> rawEntriesCache;
 
     private EntriesCache(@NotNull GitRepository repo, @NotNull GitTreeEntry treeEntry) {
       this.repo = repo;
@@ -216,8 +318,13 @@ final class GitFileTreeEntry extends GitEntryImpl implements GitFile {
     @Override
     @NotNull
     public Iterable<GitTreeEntry> get() throws IOException {
+      return getIndex().values();
+    }
+
+    @NotNull
+    Map<String, GitTreeEntry> getIndex() throws IOException {
       if (rawEntriesCache == null) {
-        rawEntriesCache = repo.loadTree(treeEntry);
+        rawEntriesCache = repo.loadTreeIndex(treeEntry);
       }
       return rawEntriesCache;
     }
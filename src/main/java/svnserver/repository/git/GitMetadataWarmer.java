@@ -0,0 +1,218 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.lib.Constants;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import svnserver.Loggers;
+import svnserver.context.Shared;
+import svnserver.ext.gitlfs.filter.LfsFilter;
+import svnserver.repository.git.cache.CacheLogEntry;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes md5, size and binary flag of new files in background.
+ * <p>
+ * Without warmer this metadata is computed by first session that needs it, for example, by first checkout after large push.
+ * Work is done by few low priority threads with bounded queue: when queue is full, new tasks are dropped
+ * and metadata is computed on demand as before.
+ * <p>
+ * Warmer is disabled by default. Files stored in Git LFS are skipped: their md5 and size are taken from LFS pointer
+ * and reading their content would download it from LFS storage.
+ */
+public final class GitMetadataWarmer implements Shared {
+  public static final int DEFAULT_THREADS = 0;
+  public static final int DEFAULT_QUEUE_SIZE = 1000;
+  @NotNull
+  private static final Logger log = Loggers.git;
+  @NotNull
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+  // Time to wait for running tasks on close
+  private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+  @NotNull
+  private final ThreadPoolExecutor executor;
+  private final boolean warmHead;
+
+  @NotNull
+  private final AtomicLong files = new AtomicLong();
+  @NotNull
+  private final AtomicLong dropped = new AtomicLong();
+  @NotNull
+  private final AtomicLong failed = new AtomicLong();
+
+  /**
+   * @param threads   Number of worker threads.
+   * @param queueSize Maximum number of queued tasks.
+   * @param warmHead  Compute metadata of all files in branch head after initial branch loading.
+   */
+  public GitMetadataWarmer(int threads, int queueSize, boolean warmHead) {
+    this.warmHead = warmHead;
+    executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+      final Thread thread = new Thread(r, String.format("GitMetadataWarmer-%s", threadNumber.incrementAndGet()));
+      thread.setDaemon(true);
+      // Live sessions have priority
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    }, (r, e) -> dropped.incrementAndGet());
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Queue files added or modified in revision.
+   */
+  void addRevision(@NotNull GitBranch branch, int revision) {
+    submit(() -> warmRevision(branch, revision));
+  }
+
+  /**
+   * Queue all files of branch head if head warming is enabled.
+   */
+  void addHead(@NotNull GitBranch branch) {
+    if (warmHead)
+      submit(() -> warmHead(branch));
+  }
+
+  /**
+   * @return Number of files with computed metadata.
+   */
+  public long getFiles() {
+    return files.get();
+  }
+
+  /**
+   * @return Number of tasks dropped because of full queue.
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * Wait until all queued tasks are done.
+   *
+   * @return false if timeout elapsed.
+   */
+  public boolean awaitIdle(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (executor.getCompletedTaskCount() < executor.getTaskCount()) {
+      if (System.nanoTime() > deadline)
+        return false;
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  private void submit(@NotNull Runnable task) {
+    if (executor.isShutdown())
+      return;
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException ignored) {
+      // Warmer is closed
+    }
+  }
+
+  private void warmRevision(@NotNull GitBranch branch, int revision) {
+    final GitRepository repository = branch.getRepository();
+    // Caches of closed repository are released
+    if (!repository.beginWork())
+      return;
+    try {
+      final GitRevision revisionInfo = branch.getRevisionInfo(revision);
+      // Changed paths are collected during indexing, so this does not compare trees again
+      for (CacheLogEntry entry : revisionInfo.getLogEntries()) {
+        if (isStopped(repository))
+          return;
+        if (entry.getKind() != SVNNodeKind.FILE || (entry.getChange() == 'M' && !entry.isContentModified()))
+          continue;
+
+        final GitFile file = revisionInfo.getFile(entry.getPath());
+        if (file != null)
+          warmFile(file);
+      }
+    } catch (IOException | SVNException | RuntimeException e) {
+      failed.incrementAndGet();
+      log.warn("[{}]: can't compute file metadata of revision {}", branch, revision, e);
+    } finally {
+      repository.endWork();
+    }
+  }
+
+  private void warmHead(@NotNull GitBranch branch) {
+    final GitRepository repository = branch.getRepository();
+    if (!repository.beginWork())
+      return;
+    try {
+      final long beginTime = System.currentTimeMillis();
+      final long before = files.get();
+      final GitFile root = branch.getLatestRevision().getFile("");
+      if (root != null)
+        warmTree(repository, root);
+      log.info("[{}]: metadata of {} head files computed: {} ms", branch, files.get() - before, System.currentTimeMillis() - beginTime);
+    } catch (IOException | RuntimeException e) {
+      failed.incrementAndGet();
+      log.warn("[{}]: can't compute file metadata of head", branch, e);
+    } finally {
+      repository.endWork();
+    }
+  }
+
+  private void warmTree(@NotNull GitRepository repository, @NotNull GitFile dir) throws IOException {
+    for (GitFile file : dir.getEntries()) {
+      if (isStopped(repository))
+        return;
+      if (file.isDirectory()) {
+        // Submodules are not walked into
+        if (file.getFileMode().getObjectType() == Constants.OBJ_TREE)
+          warmTree(repository, file);
+      } else {
+        warmFile(file);
+      }
+    }
+  }
+
+  private static boolean isStopped(@NotNull GitRepository repository) {
+    return Thread.currentThread().isInterrupted() || repository.isClosed();
+  }
+
+  private void warmFile(@NotNull GitFile file) throws IOException {
+    if (file.getFileMode().getObjectType() != Constants.OBJ_BLOB || file.getFilter() instanceof LfsFilter)
+      return;
+    // Md5 is computed in single pass with size and binary flag, properties reuse that binary flag
+    file.getMd5();
+    file.getProperties();
+    files.incrementAndGet();
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    executor.shutdownNow();
+    if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS))
+      log.warn("Metadata warmer tasks are not finished in {} ms", CLOSE_TIMEOUT);
+    log.info("Metadata warmer stats: {}", this);
+  }
+
+  @Override
+  public String toString() {
+    return "GitMetadataWarmer{" +
+        "files=" + files.get() +
+        ", dropped=" + dropped.get() +
+        ", failed=" + failed.get() +
+        '}';
+  }
+}
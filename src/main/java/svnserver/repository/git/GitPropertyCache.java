@@ -0,0 +1,207 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import svnserver.Loggers;
+import svnserver.context.Shared;
+import svnserver.repository.VcsSupplier;
+import svnserver.repository.git.prop.GitProperty;
+import svnserver.repository.git.prop.GitPropertyFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parsed git properties of directories and property files ({@code .gitattributes}, {@code .gitignore}, etc),
+ * shared by all repositories.
+ * <p>
+ * Cache is bounded by approximate memory usage in bytes. Memory used by each repository is accounted separately
+ * and entries of repository are dropped when repository is closed.
+ * <p>
+ * Entries are keyed by repository instance, so closing repository does not drop entries of repository
+ * that replaced it under the same name.
+ */
+public final class GitPropertyCache implements Shared {
+  public static final long DEFAULT_MEMORY_LIMIT = 64 * 1024 * 1024;
+
+  @NotNull
+  private static final Logger log = Loggers.git;
+  // Approximate size of cache entry without value
+  private static final int ENTRY_OVERHEAD = 128;
+
+  @NotNull
+  private final Cache<Key, Value> cache;
+  @NotNull
+  private final ConcurrentMap<GitRepository, LongAdder> repositoryMemory = new ConcurrentHashMap<>();
+
+  public GitPropertyCache() {
+    this(DEFAULT_MEMORY_LIMIT);
+  }
+
+  public GitPropertyCache(long memoryLimit) {
+    cache = CacheBuilder.newBuilder()
+        .maximumWeight(memoryLimit)
+        .weigher((Key key, Value value) -> value.weight)
+        .removalListener(notification -> {
+          final Key key = notification.getKey();
+          final Value value = notification.getValue();
+          // Memory of invalidated repository is not accounted anymore
+          if (key != null && value != null) {
+            final LongAdder memory = repositoryMemory.get(key.repository);
+            if (memory != null)
+              memory.add(-value.weight);
+          }
+        })
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Get properties of directory.
+   *
+   * @param repository Repository.
+   * @param treeId     Directory tree id.
+   */
+  @NotNull
+  GitProperty[] getDirectoryProperties(@NotNull GitRepository repository, @NotNull ObjectId treeId, @NotNull VcsSupplier<GitProperty[]> loader) throws IOException {
+    return get(new Key(repository, null, treeId), () -> {
+      final GitProperty[] properties = loader.get();
+      // Properties are shared with cached property files
+      return new Value(properties, ENTRY_OVERHEAD + properties.length * 8L);
+    });
+  }
+
+  /**
+   * Get properties parsed from file.
+   *
+   * @param repository Repository.
+   * @param factory    Property file parser.
+   * @param objectId   File content.
+   */
+  @NotNull
+  GitProperty[] getFileProperties(@NotNull GitRepository repository, @NotNull GitPropertyFactory factory, @NotNull GitObject<ObjectId> objectId) throws IOException {
+    return get(new Key(repository, factory.getFileName(), objectId.getObject()), () -> {
+      try (ObjectReader reader = objectId.getRepo().newObjectReader()) {
+        final ObjectLoader loader = reader.open(objectId.getObject());
+        final GitProperty[] properties;
+        try (InputStream stream = loader.openStream()) {
+          properties = factory.create(stream);
+        }
+        // Parsed properties are assumed to take about the same memory as file content
+        return new Value(properties.length == 0 ? GitProperty.emptyArray : properties, ENTRY_OVERHEAD + properties.length * 8L + loader.getSize());
+      }
+    });
+  }
+
+  @NotNull
+  private GitProperty[] get(@NotNull Key key, @NotNull VcsSupplier<Value> loader) throws IOException {
+    try {
+      return cache.get(key, () -> {
+        final Value value = loader.get();
+        repositoryMemory.computeIfAbsent(key.repository, repository -> new LongAdder()).add(value.weight);
+        return value;
+      }).properties;
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Drop all cached properties of repository.
+   */
+  void invalidate(@NotNull GitRepository repository) {
+    repositoryMemory.remove(repository);
+    cache.asMap().keySet().removeIf(key -> key.repository == repository);
+  }
+
+  /**
+   * @return Approximate memory used by cached properties of repository in bytes.
+   */
+  public long getMemoryUsage(@NotNull GitRepository repository) {
+    final LongAdder memory = repositoryMemory.get(repository);
+    return memory == null ? 0 : memory.sum();
+  }
+
+  /**
+   * @return Hit, miss and eviction counters.
+   */
+  @NotNull
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  @Override
+  public void close() {
+    final CacheStats stats = cache.stats();
+    log.info("Git property cache: {} hits, {} misses, {} evictions", stats.hitCount(), stats.missCount(), stats.evictionCount());
+    cache.invalidateAll();
+  }
+
+  private static final class Key {
+    // Compared by identity
+    @NotNull
+    private final GitRepository repository;
+    // Property file name or null for directory
+    @Nullable
+    private final String fileName;
+    @NotNull
+    private final ObjectId objectId;
+
+    private Key(@NotNull GitRepository repository, @Nullable String fileName, @NotNull ObjectId objectId) {
+      this.repository = repository;
+      this.fileName = fileName;
+      this.objectId = objectId.copy();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      final Key key = (Key) o;
+      return objectId.equals(key.objectId)
+          && repository == key.repository
+          && (fileName == null ? key.fileName == null : fileName.equals(key.fileName));
+    }
+
+    @Override
+    public int hashCode() {
+      return objectId.hashCode();
+    }
+  }
+
+  private static final class Value {
+    @NotNull
+    private final GitProperty[] properties;
+    private final int weight;
+
+    private Value(@NotNull GitProperty[] properties, long weight) {
+      this.properties = properties;
+      this.weight = (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+  }
+}
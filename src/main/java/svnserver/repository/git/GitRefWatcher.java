@@ -0,0 +1,288 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import svnserver.Loggers;
+import svnserver.context.Shared;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches git refs of repositories and indexes updated branches in background.
+ * <p>
+ * Without watcher every new svn connection checks branch refs and indexes new commits by itself.
+ */
+public final class GitRefWatcher implements Shared {
+  @NotNull
+  private static final Logger log = Loggers.git;
+  @NotNull
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+  // Interval of indexing lag reports in milliseconds
+  private static final long REPORT_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+  // Indexing lag in milliseconds that is reported as warning
+  private static final long LAG_WARNING = TimeUnit.SECONDS.toMillis(30);
+
+  @NotNull
+  private final WatchService watchService;
+  @NotNull
+  private final Thread thread;
+  @NotNull
+  private final ThreadPoolExecutor executor;
+  @NotNull
+  private final Map<WatchKey, Watched> keys = new ConcurrentHashMap<>();
+  @NotNull
+  private final Map<GitRepository, Watched> repositories = new ConcurrentHashMap<>();
+
+  @NotNull
+  private final AtomicLong events = new AtomicLong();
+  @NotNull
+  private final AtomicLong indexed = new AtomicLong();
+  @NotNull
+  private final AtomicLong maxLag = new AtomicLong();
+
+  public GitRefWatcher(int threads) throws IOException {
+    watchService = FileSystems.getDefault().newWatchService();
+    executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      final Thread thread = new Thread(r, String.format("GitRefWatcher-index-%s", threadNumber.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    thread = new Thread(this::run, "GitRefWatcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Start watching repository refs.
+   *
+   * @return false if repository refs can't be watched.
+   */
+  boolean register(@NotNull GitRepository repository) {
+    if (!(repository.getGit() instanceof FileRepository))
+      return false;
+
+    final Path gitDir = repository.getGit().getDirectory().toPath();
+    final Watched watched = new Watched(repository, gitDir);
+    try {
+      // Root directory is watched for packed-refs only
+      watched.add(gitDir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+      registerTree(watched, gitDir.resolve(Constants.R_HEADS));
+    } catch (IOException e) {
+      log.warn("[{}]: can't watch refs, branches will be checked on every connection", repository.getContext().getName(), e);
+      watched.cancel();
+      return false;
+    }
+    repositories.put(repository, watched);
+    return true;
+  }
+
+  void unregister(@NotNull GitRepository repository) {
+    final Watched watched = repositories.remove(repository);
+    if (watched != null)
+      watched.cancel();
+  }
+
+  /**
+   * Notify about possible ref changes from outside, for example, from git server hook.
+   */
+  public void refsChanged(@NotNull GitRepository repository) {
+    for (GitBranch branch : repository.getBranches().values())
+      schedule(branch);
+  }
+
+  public long getEvents() {
+    return events.get();
+  }
+
+  public long getIndexed() {
+    return indexed.get();
+  }
+
+  /**
+   * @return Maximum time in milliseconds between ref change detection and branch indexing.
+   */
+  public long getMaxLag() {
+    return maxLag.get();
+  }
+
+  /**
+   * @return Maximum time in milliseconds since ref change that is not indexed yet.
+   */
+  public long getCurrentLag() {
+    long lag = 0;
+    for (GitRepository repository : repositories.keySet())
+      for (GitBranch branch : repository.getBranches().values())
+        lag = Math.max(lag, branch.getIndexingLag());
+    return lag;
+  }
+
+  private void registerTree(@NotNull Watched watched, @NotNull Path root) throws IOException {
+    if (!Files.isDirectory(root))
+      return;
+
+    try (Stream<Path> stream = Files.walk(root)) {
+      for (Path dir : (Iterable<Path>) stream.filter(Files::isDirectory)::iterator) {
+        watched.add(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+      }
+    }
+  }
+
+  private void run() {
+    long nextReport = System.currentTimeMillis() + REPORT_INTERVAL;
+    while (true) {
+      final WatchKey key;
+      try {
+        key = watchService.poll(Math.max(1, nextReport - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+      if (System.currentTimeMillis() >= nextReport) {
+        report();
+        nextReport = System.currentTimeMillis() + REPORT_INTERVAL;
+      }
+      if (key == null)
+        continue;
+
+      final Watched watched = keys.get(key);
+      if (watched != null) {
+        try {
+          if (processEvents(watched, key))
+            refsChanged(watched.repository);
+        } catch (IOException e) {
+          log.warn("[{}]: can't process ref changes", watched.repository.getContext().getName(), e);
+          refsChanged(watched.repository);
+        }
+      }
+      key.reset();
+    }
+  }
+
+  private void report() {
+    final long lag = getCurrentLag();
+    if (lag >= LAG_WARNING) {
+      log.warn("Ref changes are not indexed for {} ms: {}", lag, this);
+    } else {
+      log.debug("Ref watcher stats: {}", this);
+    }
+  }
+
+  private boolean processEvents(@NotNull Watched watched, @NotNull WatchKey key) throws IOException {
+    final Path dir = (Path) key.watchable();
+    boolean changed = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      events.incrementAndGet();
+      if (event.kind() == OVERFLOW) {
+        changed = true;
+        continue;
+      }
+      final Path path = dir.resolve((Path) event.context());
+      final String name = path.getFileName().toString();
+      if (dir.equals(watched.gitDir)) {
+        if (name.equals(Constants.PACKED_REFS))
+          changed = true;
+        continue;
+      }
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+        // New branch namespace
+        registerTree(watched, path);
+        changed = true;
+      } else if (!name.endsWith(Constants.LOCK_SUFFIX)) {
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  private void schedule(@NotNull GitBranch branch) {
+    if (!branch.markRefChanged())
+      return;
+
+    try {
+      executor.execute(() -> index(branch));
+    } catch (RejectedExecutionException ignored) {
+      // Watcher is closed
+    }
+  }
+
+  private void index(@NotNull GitBranch branch) {
+    try {
+      final long lag = branch.indexRefChanges();
+      if (lag >= 0) {
+        indexed.incrementAndGet();
+        maxLag.accumulateAndGet(lag, Math::max);
+        log.debug("[{}]: indexed {} ms after ref change", branch, lag);
+      }
+    } catch (Exception e) {
+      log.error("[{}]: failed to index ref changes", branch, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    executor.shutdownNow();
+    watchService.close();
+    thread.interrupt();
+    log.info("Ref watcher stats: {}", this);
+  }
+
+  @Override
+  public String toString() {
+    return "GitRefWatcher{" +
+        "repositories=" + repositories.size() +
+        ", events=" + getEvents() +
+        ", indexed=" + getIndexed() +
+        ", maxLag=" + getMaxLag() + "ms" +
+        ", currentLag=" + getCurrentLag() + "ms" +
+        '}';
+  }
+
+  private final class Watched {
+    @NotNull
+    private final GitRepository repository;
+    @NotNull
+    private final Path gitDir;
+    @NotNull
+    private final List<WatchKey> watchKeys = new ArrayList<>();
+
+    private Watched(@NotNull GitRepository repository, @NotNull Path gitDir) {
+      this.repository = repository;
+      this.gitDir = gitDir;
+    }
+
+    private synchronized void add(@Nullable WatchKey key) {
+      if (key == null)
+        return;
+      watchKeys.add(key);
+      keys.put(key, this);
+    }
+
+    private synchronized void cancel() {
+      for (WatchKey key : watchKeys) {
+        keys.remove(key);
+        key.cancel();
+      }
+      watchKeys.clear();
+    }
+  }
+}
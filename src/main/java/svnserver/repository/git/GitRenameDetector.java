@@ -0,0 +1,408 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.SimilarityIndex;
+import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import svnserver.Loggers;
+import svnserver.StringHelper;
+import svnserver.context.Shared;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Rename detection for svn copy-from information.
+ * <p>
+ * Exact renames are paired by blob id in linear time. Only files left after that are compared by content similarity,
+ * which is quadratic, so it is limited by {@link #getRenameLimit()} and skips binary and large files.
+ * Similarity is computed in parallel for large changes.
+ */
+public final class GitRenameDetector implements Shared {
+  public static final int DEFAULT_RENAME_LIMIT = 400;
+
+  @NotNull
+  private static final Logger log = Loggers.git;
+  // Minimal similarity score (percent) of rename, same as in git
+  private static final int RENAME_SCORE = 60;
+  // Files larger than this are not compared by content
+  private static final int MAX_FILE_SIZE = 4 * 1024 * 1024;
+  // Minimal number of files to compare in parallel
+  private static final int PARALLEL_THRESHOLD = 16;
+  // Maximum number of name comparisons for files with same content
+  private static final int MAX_SCORED_PAIRS = 10_000;
+
+  private final int renameLimit;
+
+  public GitRenameDetector() {
+    this(DEFAULT_RENAME_LIMIT);
+  }
+
+  public GitRenameDetector(int renameLimit) {
+    this.renameLimit = renameLimit;
+  }
+
+  /**
+   * @return Limit of content similarity check: it is skipped when product of added and removed files count
+   * exceeds square of this value. Zero means no limit.
+   */
+  public int getRenameLimit() {
+    return renameLimit;
+  }
+
+  /**
+   * Detect renamed files between two trees.
+   *
+   * @return Map of new path to old path.
+   */
+  @NotNull
+  Map<String, String> detectRenames(@NotNull GitBranch branch, int revisionId, @NotNull ObjectId oldTree, @NotNull ObjectId newTree) throws IOException {
+    final long beginTime = System.currentTimeMillis();
+    final Repository git = branch.getRepository().getGit();
+    final List<DiffEntry> added = new ArrayList<>();
+    final List<DiffEntry> deleted = new ArrayList<>();
+    try (TreeWalk tw = new TreeWalk(git)) {
+      tw.setRecursive(true);
+      tw.setFilter(TreeFilter.ANY_DIFF);
+      tw.addTree(oldTree);
+      tw.addTree(newTree);
+      for (DiffEntry entry : DiffEntry.scan(tw)) {
+        if (entry.getChangeType() == DiffEntry.ChangeType.ADD)
+          added.add(entry);
+        else if (entry.getChangeType() == DiffEntry.ChangeType.DELETE)
+          deleted.add(entry);
+      }
+    }
+    if (added.isEmpty() || deleted.isEmpty())
+      return Collections.emptyMap();
+
+    final Map<String, String> result = new HashMap<>();
+    final List<DiffEntry> leftAdded = new ArrayList<>();
+    final List<DiffEntry> leftDeleted = new ArrayList<>();
+    findExactRenames(added, deleted, result, leftAdded, leftDeleted);
+    final int exact = result.size();
+
+    if (!leftAdded.isEmpty() && !leftDeleted.isEmpty()) {
+      if (renameLimit > 0 && (long) leftAdded.size() * leftDeleted.size() > (long) renameLimit * renameLimit) {
+        log.info("[{}]: too many files for rename detection in revision {}: {} added, {} removed (renameLimit: {})",
+            branch, revisionId, leftAdded.size(), leftDeleted.size(), renameLimit);
+      } else {
+        findContentRenames(git, leftAdded, leftDeleted, result);
+      }
+    }
+    log.debug("[{}]: {} renames ({} exact) detected in revision {}: {} ms", branch, result.size(), exact, revisionId, System.currentTimeMillis() - beginTime);
+    return result;
+  }
+
+  private static void findExactRenames(@NotNull List<DiffEntry> added,
+                                       @NotNull List<DiffEntry> deleted,
+                                       @NotNull Map<String, String> result,
+                                       @NotNull List<DiffEntry> leftAdded,
+                                       @NotNull List<DiffEntry> leftDeleted) {
+    final Map<BlobKey, List<DiffEntry>> deletedByBlob = new HashMap<>();
+    for (DiffEntry entry : deleted)
+      deletedByBlob.computeIfAbsent(new BlobKey(entry.getOldId().toObjectId(), entry.getOldMode()), key -> new ArrayList<>()).add(entry);
+
+    final Map<BlobKey, List<DiffEntry>> addedByBlob = new LinkedHashMap<>();
+    for (DiffEntry entry : added) {
+      final BlobKey key = new BlobKey(entry.getNewId().toObjectId(), entry.getNewMode());
+      if (deletedByBlob.containsKey(key))
+        addedByBlob.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+      else
+        leftAdded.add(entry);
+    }
+
+    final Set<DiffEntry> usedDeleted = new HashSet<>();
+    for (Map.Entry<BlobKey, List<DiffEntry>> group : addedByBlob.entrySet()) {
+      final List<DiffEntry> sources = deletedByBlob.get(group.getKey());
+      final List<DiffEntry> targets = group.getValue();
+      final DiffEntry[] pairedSources;
+      if (sources.size() == 1 && targets.size() == 1) {
+        pairedSources = new DiffEntry[]{sources.get(0)};
+        usedDeleted.add(sources.get(0));
+      } else if ((long) sources.size() * targets.size() <= MAX_SCORED_PAIRS) {
+        pairedSources = pairByScore(sources, targets, usedDeleted);
+      } else {
+        pairedSources = pairByName(sources, targets, usedDeleted);
+      }
+      for (int target = 0; target < targets.size(); ++target)
+        result.put(newPath(targets.get(target)), oldPath(pairedSources[target]));
+    }
+    for (DiffEntry entry : deleted) {
+      if (!usedDeleted.contains(entry))
+        leftDeleted.add(entry);
+    }
+  }
+
+  /**
+   * Same content is moved to several places: pair files with most similar names first.
+   *
+   * @return Source of every target.
+   */
+  @NotNull
+  private static DiffEntry[] pairByScore(@NotNull List<DiffEntry> sources, @NotNull List<DiffEntry> targets, @NotNull Set<DiffEntry> usedDeleted) {
+    final List<int[]> pairs = new ArrayList<>();
+    for (int target = 0; target < targets.size(); ++target) {
+      for (int source = 0; source < sources.size(); ++source) {
+        pairs.add(new int[]{nameScore(sources.get(source).getOldPath(), targets.get(target).getNewPath()), target, source});
+      }
+    }
+    pairs.sort((a, b) -> Integer.compare(b[0], a[0]));
+    final DiffEntry[] pairedSources = new DiffEntry[targets.size()];
+    for (int[] pair : pairs) {
+      final DiffEntry source = sources.get(pair[2]);
+      if (pairedSources[pair[1]] == null && usedDeleted.add(source))
+        pairedSources[pair[1]] = source;
+    }
+    // Targets left after all sources are renamed are copies of source with most similar name
+    for (int[] pair : pairs) {
+      if (pairedSources[pair[1]] == null)
+        pairedSources[pair[1]] = sources.get(pair[2]);
+    }
+    return pairedSources;
+  }
+
+  /**
+   * Same content is moved to too many places to compare all names: pair files with same path or file name,
+   * then remaining files in order.
+   *
+   * @return Source of every target.
+   */
+  @NotNull
+  private static DiffEntry[] pairByName(@NotNull List<DiffEntry> sources, @NotNull List<DiffEntry> targets, @NotNull Set<DiffEntry> usedDeleted) {
+    final Map<String, DiffEntry> byPath = new HashMap<>();
+    final Map<String, Deque<DiffEntry>> byName = new HashMap<>();
+    // Not consumed by pairing, used for copies
+    final Map<String, DiffEntry> firstByName = new HashMap<>();
+    for (DiffEntry source : sources) {
+      final String name = StringHelper.baseName(source.getOldPath());
+      byPath.put(source.getOldPath(), source);
+      byName.computeIfAbsent(name, key -> new ArrayDeque<>()).add(source);
+      firstByName.putIfAbsent(name, source);
+    }
+
+    final DiffEntry[] pairedSources = new DiffEntry[targets.size()];
+    for (int target = 0; target < targets.size(); ++target) {
+      final String path = targets.get(target).getNewPath();
+      final DiffEntry source = byPath.get(path);
+      if (source != null && usedDeleted.add(source)) {
+        pairedSources[target] = source;
+        continue;
+      }
+      final Deque<DiffEntry> sameName = byName.get(StringHelper.baseName(path));
+      while (sameName != null && !sameName.isEmpty()) {
+        final DiffEntry candidate = sameName.poll();
+        if (usedDeleted.add(candidate)) {
+          pairedSources[target] = candidate;
+          break;
+        }
+      }
+    }
+
+    final Iterator<DiffEntry> unused = sources.iterator();
+    for (int target = 0; target < targets.size(); ++target) {
+      if (pairedSources[target] != null)
+        continue;
+      while (unused.hasNext() && pairedSources[target] == null) {
+        final DiffEntry candidate = unused.next();
+        if (usedDeleted.add(candidate))
+          pairedSources[target] = candidate;
+      }
+      // Targets left after all sources are renamed are copies of source with same file name, if any
+      if (pairedSources[target] == null)
+        pairedSources[target] = firstByName.getOrDefault(StringHelper.baseName(targets.get(target).getNewPath()), sources.get(0));
+    }
+    return pairedSources;
+  }
+
+  private static void findContentRenames(@NotNull Repository git,
+                                         @NotNull List<DiffEntry> added,
+                                         @NotNull List<DiffEntry> deleted,
+                                         @NotNull Map<String, String> result) throws IOException {
+    final FileIndex[] sources;
+    final FileIndex[] targets;
+    try {
+      sources = createIndexes(git, deleted, DiffEntry.Side.OLD);
+      targets = createIndexes(git, added, DiffEntry.Side.NEW);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    final int[] bestSources = new int[targets.length];
+    range(targets.length, (long) targets.length * sources.length).forEach(target -> {
+      bestSources[target] = -1;
+      final FileIndex dst = targets[target];
+      if (dst == null)
+        return;
+      int bestScore = RENAME_SCORE - 1;
+      for (int source = 0; source < sources.length; ++source) {
+        final FileIndex src = sources[source];
+        if (src == null || !sameType(src.mode, dst.mode))
+          continue;
+        final long max = Math.max(src.size, dst.size);
+        final long min = Math.min(src.size, dst.size);
+        if (max > 0 && min * 100 / max < RENAME_SCORE)
+          continue;
+        // Same formula as in git: content similarity with a bit of name similarity
+        final int contentScore = src.index.score(dst.index, 10000);
+        final int score = (contentScore * 99 + nameScore(src.path, dst.path) * 100) / 10000;
+        if (score > bestScore) {
+          bestScore = score;
+          bestSources[target] = source;
+        }
+      }
+    });
+    for (int target = 0; target < targets.length; ++target) {
+      if (bestSources[target] >= 0)
+        result.put(StringHelper.normalize(targets[target].path), StringHelper.normalize(sources[bestSources[target]].path));
+    }
+  }
+
+  @NotNull
+  private static FileIndex[] createIndexes(@NotNull Repository git, @NotNull List<DiffEntry> entries, @NotNull DiffEntry.Side side) {
+    final FileIndex[] result = new FileIndex[entries.size()];
+    range(entries.size(), entries.size()).forEach(i -> {
+      try (ObjectReader reader = git.newObjectReader()) {
+        result[i] = createIndex(reader, entries.get(i), side);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    return result;
+  }
+
+  @Nullable
+  private static FileIndex createIndex(@NotNull ObjectReader reader, @NotNull DiffEntry entry, @NotNull DiffEntry.Side side) throws IOException {
+    final FileMode mode = entry.getMode(side);
+    if (mode.getObjectType() != Constants.OBJ_BLOB)
+      return null;
+
+    final ObjectLoader loader = reader.open(entry.getId(side).toObjectId(), Constants.OBJ_BLOB);
+    if (loader.getSize() > MAX_FILE_SIZE)
+      return null;
+    final byte[] content = loader.getCachedBytes(MAX_FILE_SIZE);
+    if (RawText.isBinary(content))
+      return null;
+    try {
+      // Index is built from already loaded content instead of second read of blob
+      final SimilarityIndex index = SimilarityIndex.create(new ObjectLoader.SmallObject(Constants.OBJ_BLOB, content));
+      return new FileIndex(entry.getPath(side), mode, content.length, index);
+    } catch (SimilarityIndex.TableFullException e) {
+      return null;
+    }
+  }
+
+  @NotNull
+  private static IntStream range(int count, long work) {
+    final IntStream result = IntStream.range(0, count);
+    return work >= PARALLEL_THRESHOLD ? result.parallel() : result;
+  }
+
+  private static boolean sameType(@NotNull FileMode a, @NotNull FileMode b) {
+    return (a.getBits() & FileMode.TYPE_MASK) == (b.getBits() & FileMode.TYPE_MASK);
+  }
+
+  /**
+   * Path similarity from 0 to 100: directory prefix and suffix and file name suffix.
+   */
+  private static int nameScore(@NotNull String a, @NotNull String b) {
+    final int aDirLen = a.lastIndexOf('/') + 1;
+    final int bDirLen = b.lastIndexOf('/') + 1;
+    final int dirMin = Math.min(aDirLen, bDirLen);
+    final int dirMax = Math.max(aDirLen, bDirLen);
+
+    final int dirScoreLtr;
+    final int dirScoreRtl;
+    if (dirMax == 0) {
+      dirScoreLtr = 100;
+      dirScoreRtl = 100;
+    } else {
+      int dirSim = 0;
+      while (dirSim < dirMin && a.charAt(dirSim) == b.charAt(dirSim))
+        dirSim++;
+      dirScoreLtr = dirSim * 100 / dirMax;
+      if (dirScoreLtr == 100) {
+        dirScoreRtl = 100;
+      } else {
+        dirSim = 0;
+        while (dirSim < dirMin && a.charAt(aDirLen - 1 - dirSim) == b.charAt(bDirLen - 1 - dirSim))
+          dirSim++;
+        dirScoreRtl = dirSim * 100 / dirMax;
+      }
+    }
+
+    final int fileMin = Math.min(a.length() - aDirLen, b.length() - bDirLen);
+    final int fileMax = Math.max(a.length() - aDirLen, b.length() - bDirLen);
+    int fileSim = 0;
+    while (fileSim < fileMin && a.charAt(a.length() - 1 - fileSim) == b.charAt(b.length() - 1 - fileSim))
+      fileSim++;
+    final int fileScore = fileMax == 0 ? 100 : fileSim * 100 / fileMax;
+
+    return ((dirScoreLtr + dirScoreRtl) * 25 + fileScore * 50) / 100;
+  }
+
+  @NotNull
+  private static String newPath(@NotNull DiffEntry entry) {
+    return StringHelper.normalize(entry.getNewPath());
+  }
+
+  @NotNull
+  private static String oldPath(@NotNull DiffEntry entry) {
+    return StringHelper.normalize(entry.getOldPath());
+  }
+
+  private static final class BlobKey {
+    @NotNull
+    private final ObjectId id;
+    private final int type;
+
+    private BlobKey(@NotNull ObjectId id, @NotNull FileMode mode) {
+      this.id = id;
+      this.type = mode.getBits() & FileMode.TYPE_MASK;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      final BlobKey other = (BlobKey) o;
+      return type == other.type && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+      return id.hashCode() * 31 + type;
+    }
+  }
+
+  private static final class FileIndex {
+    @NotNull
+    private final String path;
+    @NotNull
+    private final FileMode mode;
+    private final long size;
+    @NotNull
+    private final SimilarityIndex index;
+
+    private FileIndex(@NotNull String path, @NotNull FileMode mode, long size, @NotNull SimilarityIndex index) {
+      this.path = path;
+      this.mode = mode;
+      this.size = size;
+      this.index = index;
+    }
+  }
+}
@@ -7,6 +7,7 @@
  */
 package svnserver.repository.git;
 
+import com.google.common.util.concurrent.Striped;
 import com.sun.nio.sctp.InvalidStreamException;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -15,14 +16,15 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.mapdb.DB;
 import org.mapdb.HTreeMap;
-import org.mapdb.Serializer;
 import org.tmatesoft.svn.core.SVNException;
-import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import svnserver.MapDbHelper;
 import svnserver.StringHelper;
 import svnserver.context.LocalContext;
 import svnserver.context.SharedContext;
 import svnserver.repository.SvnForbiddenException;
 import svnserver.repository.VcsSupplier;
+import svnserver.repository.git.cache.CacheLogEntry;
+import svnserver.repository.git.cache.CacheRevision;
 import svnserver.repository.git.filter.GitFilter;
 import svnserver.repository.git.filter.GitFilters;
 import svnserver.repository.git.prop.GitProperty;
@@ -33,10 +35,8 @@ import svnserver.repository.locks.LockStorage;
 import svnserver.repository.locks.LockWorker;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -49,6 +49,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public final class GitRepository implements AutoCloseable, BranchProvider {
   @NotNull
   public static final byte[] emptyBytes = {};
+  private static final int revisionCacheVersion = 3;
+  private static final int logCacheVersion = 1;
 
   @NotNull
   private final Repository git;
@@ -57,17 +59,34 @@ public final class GitRepository implements AutoCloseable, BranchProvider {
   @NotNull
   private final LocalContext context;
   private final EmptyDirsSupport emptyDirs;
+  /**
+   * Changes between git commits, shared by all branches.
+   */
   @NotNull
-  private final HTreeMap<String, Boolean> binaryCache;
+  private final HTreeMap<ObjectId, CacheRevision> revisionCache;
+  /**
+   * Changed paths for svn log between git commits, shared by all branches.
+   */
+  @NotNull
+  private final HTreeMap<ObjectId, List<CacheLogEntry>> logCache;
+  // Prevents concurrent computation of the same changes by different branches
+  @NotNull
+  private final Striped<Lock> revisionCacheLocks = Striped.lock(64);
   @NotNull
   private final GitFilters gitFilters;
   @NotNull
-  private final Map<ObjectId, GitProperty[]> directoryPropertyCache = new ConcurrentHashMap<>();
+  private final GitRenameDetector renameDetector;
   @NotNull
-  private final Map<ObjectId, GitProperty[]> filePropertyCache = new ConcurrentHashMap<>();
+  private final GitPropertyCache propertyCache;
+  @NotNull
+  private final GitTreeCache treeCache;
   private final boolean renameDetection;
   @NotNull
   private final ReadWriteLock lockManagerRwLock = new ReentrantReadWriteLock();
+  // Work with repository caches holds read lock, so that close waits until it is finished
+  @NotNull
+  private final ReadWriteLock workLock = new ReentrantReadWriteLock();
+  private volatile boolean closed;
   @NotNull
   private final LockStorage lockStorage;
   @NotNull
@@ -87,9 +106,23 @@ public final class GitRepository implements AutoCloseable, BranchProvider {
     this.emptyDirs = emptyDirs;
     final SharedContext shared = context.getShared();
     shared.getOrCreate(GitSubmodules.class, GitSubmodules::new).register(git);
+    this.renameDetector = shared.getOrCreate(GitRenameDetector.class, GitRenameDetector::new);
+    this.propertyCache = shared.getOrCreate(GitPropertyCache.class, GitPropertyCache::new);
+    this.treeCache = shared.getOrCreate(GitTreeCache.class, GitTreeCache::new);
     this.git = git;
-    db = shared.getCacheDB();
-    this.binaryCache = db.hashMap("cache.binary", Serializer.STRING, Serializer.BOOLEAN).createOrOpen();
+    db = context.getCacheDB();
+    final String revisionCacheName = String.format("cache-revision.%s.%s.v%s", context.getName(), renameDetection ? 1 : 0, revisionCacheVersion);
+    this.revisionCache = context.openCache(
+        revisionCacheName,
+        cacheDb -> cacheDb.hashMap(revisionCacheName, ObjectIdSerializer.instance, CacheRevisionSerializer.instance).createOrOpen(),
+        Map::putAll
+    );
+    final String logCacheName = String.format("cache-log.%s.%s.v%s", context.getName(), renameDetection ? 1 : 0, logCacheVersion);
+    this.logCache = context.openCache(
+        logCacheName,
+        cacheDb -> cacheDb.hashMap(logCacheName, ObjectIdSerializer.instance, CacheLogSerializer.instance).createOrOpen(),
+        Map::putAll
+    );
 
     this.pusher = pusher;
     this.renameDetection = renameDetection;
@@ -97,8 +130,31 @@ public final class GitRepository implements AutoCloseable, BranchProvider {
 
     this.gitFilters = filters;
 
+    deleteBranchCaches(db, branches);
+    if (shared.getCacheDB() != db)
+      deleteBranchCaches(shared.getCacheDB(), branches);
+
     for (String branch : branches)
       this.branches.put(StringHelper.normalizeDir(branch), new GitBranch(this, branch));
+
+    final GitRefWatcher refWatcher = shared.get(GitRefWatcher.class);
+    if (refWatcher != null && refWatcher.register(this)) {
+      for (GitBranch branch : this.branches.values())
+        branch.setRefWatched(true);
+    }
+  }
+
+  /**
+   * Revision changes were cached per branch before they were shared by repository.
+   */
+  private void deleteBranchCaches(@NotNull DB cacheDb, @NotNull Set<String> branches) {
+    for (String branch : branches) {
+      for (int rename = 0; rename <= 1; ++rename) {
+        final String name = String.format("cache-revision.%s.%s%s.%s.v2", context.getName(), Constants.R_HEADS, branch, rename);
+        if (cacheDb.exists(name))
+          MapDbHelper.deleteMap(cacheDb, name, cacheDb.hashMap(name, ObjectIdSerializer.instance, CacheRevisionSerializer.instance).open());
+      }
+    }
   }
 
   @NotNull
@@ -115,22 +171,119 @@ public final class GitRepository implements AutoCloseable, BranchProvider {
     return renameDetection;
   }
 
+  @NotNull
+  GitRenameDetector getRenameDetector() {
+    return renameDetector;
+  }
+
   @NotNull
   public LocalContext getContext() {
     return context;
   }
 
+  /**
+   * Start background work with repository caches. Every successful call must be paired with {@link #endWork()}.
+   *
+   * @return false if repository is closed.
+   */
+  boolean beginWork() {
+    workLock.readLock().lock();
+    if (closed) {
+      workLock.readLock().unlock();
+      return false;
+    }
+    return true;
+  }
+
+  void endWork() {
+    workLock.readLock().unlock();
+  }
+
+  /**
+   * @return true if repository is closed or being closed, so long work should stop.
+   */
+  boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Close repository. Waits for running background work: repository caches may be released right after close.
+   */
   public void close() {
     context.getShared().sure(GitSubmodules.class).unregister(git);
+    final GitRefWatcher refWatcher = context.getShared().get(GitRefWatcher.class);
+    if (refWatcher != null)
+      refWatcher.unregister(this);
+    propertyCache.invalidate(this);
+    treeCache.invalidate(this);
+
+    closed = true;
+    workLock.writeLock().lock();
+    workLock.writeLock().unlock();
+  }
+
+  /**
+   * Get cached changes between two git commits or compute them.
+   * <p>
+   * Changes depend only on commits, so branches with common history share them.
+   */
+  @NotNull
+  CacheRevision getCacheRevision(@Nullable ObjectId oldCommit, @Nullable ObjectId newCommit, @NotNull VcsSupplier<CacheRevision> loader) throws IOException {
+    final ObjectId cacheKey = revisionCacheKey(oldCommit, newCommit);
+    CacheRevision result = revisionCache.get(cacheKey);
+    if (result != null)
+      return result;
+
+    final Lock lock = revisionCacheLocks.get(cacheKey);
+    lock.lock();
+    try {
+      result = revisionCache.get(cacheKey);
+      if (result == null) {
+        result = loader.get();
+        revisionCache.put(cacheKey, result);
+      }
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return Cached changed paths for svn log between two git commits or null if they are not computed yet.
+   */
+  @Nullable
+  List<CacheLogEntry> getLogEntries(@Nullable ObjectId oldCommit, @Nullable ObjectId newCommit) {
+    return logCache.get(revisionCacheKey(oldCommit, newCommit));
+  }
+
+  void putLogEntries(@Nullable ObjectId oldCommit, @Nullable ObjectId newCommit, @NotNull List<CacheLogEntry> entries) {
+    logCache.put(revisionCacheKey(oldCommit, newCommit), entries);
+  }
+
+  @NotNull
+  private static ObjectId revisionCacheKey(@Nullable ObjectId oldCommit, @Nullable ObjectId newCommit) {
+    final byte[] key = new byte[Constants.OBJECT_ID_LENGTH * 2];
+    (oldCommit == null ? ObjectId.zeroId() : oldCommit).copyRawTo(key, 0);
+    (newCommit == null ? ObjectId.zeroId() : newCommit).copyRawTo(key, Constants.OBJECT_ID_LENGTH);
+    return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, key);
   }
 
   @NotNull
   public <T> T wrapLockWrite(@NotNull LockWorker<T> work) throws SVNException, IOException {
     final T result = wrapLock(lockManagerRwLock.writeLock(), work);
-    db.commit();
+    commitCacheDB();
     return result;
   }
 
+  /**
+   * Commit repository cache database and wait until changes are written.
+   * <p>
+   * Database opened by repository is used: context may be already closed by repository removal.
+   */
+  void commitCacheDB() throws IOException {
+    context.getShared().getCacheStore().commit(db);
+  }
+
   @NotNull
   private <T> T wrapLock(@NotNull Lock lock, @NotNull LockWorker<T> work) throws IOException, SVNException {
     lock.lock();
@@ -146,8 +299,7 @@ public final class GitRepository implements AutoCloseable, BranchProvider {
     if (treeEntry.getFileMode().getObjectType() == Constants.OBJ_BLOB)
       return GitProperty.emptyArray;
 
-    GitProperty[] props = directoryPropertyCache.get(treeEntry.getObjectId().getObject());
-    if (props == null) {
+    return propertyCache.getDirectoryProperties(this, treeEntry.getObjectId().getObject(), () -> {
       final List<GitProperty> propList = new ArrayList<>();
       try {
         for (GitTreeEntry entry : entryProvider.get()) {
@@ -158,10 +310,8 @@ public final class GitRepository implements AutoCloseable, BranchProvider {
         }
       } catch (SvnForbiddenException ignored) {
       }
-      props = propList.toArray(GitProperty.emptyArray);
-      directoryPropertyCache.put(treeEntry.getObjectId().getObject(), props);
-    }
-    return props;
+      return propList.toArray(GitProperty.emptyArray);
+    });
   }
 
   @NotNull
@@ -170,24 +320,7 @@ public final class GitRepository implements AutoCloseable, BranchProvider {
     if (factory == null)
       return GitProperty.emptyArray;
 
-    return cachedParseGitProperty(objectId, factory);
-  }
-
-  @NotNull
-  private GitProperty[] cachedParseGitProperty(@NotNull GitObject<ObjectId> objectId, @NotNull GitPropertyFactory factory) throws IOException {
-    GitProperty[] property = filePropertyCache.get(objectId.getObject());
-    if (property == null) {
-      try (ObjectReader reader = objectId.getRepo().newObjectReader();
-           InputStream stream = reader.open(objectId.getObject()).openStream()) {
-        property = factory.create(stream);
-      }
-
-      if (property.length == 0)
-        property = GitProperty.emptyArray;
-
-      filePropertyCache.put(objectId.getObject(), property);
-    }
-    return property;
+    return propertyCache.getFileProperties(this, factory, objectId);
   }
 
   @NotNull
@@ -225,38 +358,51 @@ public final class GitRepository implements AutoCloseable, BranchProvider {
 
   boolean isObjectBinary(@Nullable GitFilter filter, @Nullable GitObject<? extends ObjectId> objectId) throws IOException {
     if (objectId == null || filter == null) return false;
-    final String key = filter.getName() + " " + objectId.getObject().name();
-    Boolean result = binaryCache.get(key);
-    if (result == null) {
-      try (InputStream stream = filter.inputStream(objectId)) {
-        result = SVNFileUtil.detectMimeType(stream) != null;
-      }
-      binaryCache.putIfAbsent(key, result);
-    }
-    return result;
+    return filter.isBinary(objectId);
   }
 
   @NotNull
   Iterable<GitTreeEntry> loadTree(@Nullable GitTreeEntry tree) throws IOException {
+    return loadTreeIndex(tree).values();
+  }
+
+  /**
+   * Load tree entries indexed by name. Iteration order is canonical git order.
+   */
+  @NotNull
+  Map<String, GitTreeEntry> loadTreeIndex(@Nullable GitTreeEntry tree) throws IOException {
     final GitObject<ObjectId> treeId = getTreeObject(tree);
     // Loading tree.
     if (treeId == null) {
-      return Collections.emptyList();
+      return Collections.emptyMap();
     }
-    final List<GitTreeEntry> result = new ArrayList<>();
-    final Repository repo = treeId.getRepo();
-    final CanonicalTreeParser treeParser = new CanonicalTreeParser(GitRepository.emptyBytes, repo.newObjectReader(), treeId.getObject());
-    while (!treeParser.eof()) {
-      result.add(new GitTreeEntry(
-          treeParser.getEntryFileMode(),
-          new GitObject<>(repo, treeParser.getEntryObjectId()),
-          treeParser.getEntryPathString()
-      ));
-      treeParser.next();
+    Map<String, GitTreeEntry> result = treeCache.getTree(this, treeId.getObject());
+    if (result == null) {
+      final Map<String, GitTreeEntry> entries = new LinkedHashMap<>();
+      final Repository repo = treeId.getRepo();
+      try (ObjectReader reader = repo.newObjectReader()) {
+        final CanonicalTreeParser treeParser = new CanonicalTreeParser(GitRepository.emptyBytes, reader, treeId.getObject());
+        while (!treeParser.eof()) {
+          final GitTreeEntry entry = new GitTreeEntry(
+              treeParser.getEntryFileMode(),
+              new GitObject<>(repo, treeParser.getEntryObjectId()),
+              treeParser.getEntryPathString()
+          );
+          entries.put(entry.getFileName(), entry);
+          treeParser.next();
+        }
+      }
+      result = Collections.unmodifiableMap(entries);
+      treeCache.putTree(this, treeId.getObject(), result);
     }
     return result;
   }
 
+  @NotNull
+  GitTreeCache getTreeCache() {
+    return treeCache;
+  }
+
   @Nullable
   private GitObject<ObjectId> getTreeObject(@Nullable GitTreeEntry tree) throws IOException {
     if (tree == null) {
@@ -16,10 +16,12 @@ import org.tmatesoft.svn.core.SVNRevisionProperty;
 import svnserver.StringHelper;
 import svnserver.SvnConstants;
 import svnserver.repository.VcsCopyFrom;
+import svnserver.repository.git.cache.CacheLogEntry;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -118,17 +120,7 @@ public final class GitRevision {
       else
         return null;
     }
-    GitFile result = GitFileTreeEntry.create(branch, gitNewCommit.getTree(), revision);
-    for (String pathItem : fullPath.split("/")) {
-      if (pathItem.isEmpty()) {
-        continue;
-      }
-      result = result.getEntry(pathItem);
-      if (result == null) {
-        return null;
-      }
-    }
-    return result;
+    return GitFileTreeEntry.create(branch, gitNewCommit.getTree(), revision, fullPath);
   }
 
   @NotNull
@@ -142,6 +134,25 @@ public final class GitRevision {
     return ChangeHelper.collectChanges(oldTree, newTree, false);
   }
 
+  /**
+   * Get changed paths for svn log. They are collected during indexing, so this is much cheaper than {@link #getChanges()}.
+   *
+   * @return Changed paths sorted by path.
+   */
+  @NotNull
+  public List<CacheLogEntry> getLogEntries() throws IOException {
+    if (gitNewCommit == null) {
+      return Collections.emptyList();
+    }
+    final GitRepository repository = branch.getRepository();
+    List<CacheLogEntry> result = repository.getLogEntries(gitOldCommit, gitNewCommit);
+    if (result == null) {
+      result = ChangeHelper.collectLogEntries(getChanges(), false);
+      repository.putLogEntries(gitOldCommit, gitNewCommit, result);
+    }
+    return result;
+  }
+
   @Nullable
   public VcsCopyFrom getCopyFrom(@NotNull String fullPath) {
     return renames.get(fullPath);
@@ -0,0 +1,138 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.eclipse.jgit.lib.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import svnserver.Loggers;
+import svnserver.context.Shared;
+
+import java.util.Map;
+
+/**
+ * Loaded git trees and resolved paths, shared by all repositories.
+ * <p>
+ * Entries are keyed by repository instance, so entries of closed repository never leak into repository
+ * that replaced it. Entries of repository are dropped when repository is closed.
+ */
+public final class GitTreeCache implements Shared {
+  public static final long DEFAULT_TREE_ENTRIES = 1_000_000;
+  public static final long DEFAULT_PATH_ENTRIES = 200_000;
+
+  @NotNull
+  private static final Logger log = Loggers.git;
+
+  // Weighted by number of tree entries
+  @NotNull
+  private final Cache<Key<ObjectId>, Map<String, GitTreeEntry>> trees;
+  @NotNull
+  private final Cache<Key<GitFileTreeEntry.PathKey>, GitFileTreeEntry.Location> paths;
+
+  public GitTreeCache() {
+    this(DEFAULT_TREE_ENTRIES, DEFAULT_PATH_ENTRIES);
+  }
+
+  /**
+   * @param treeEntries Total number of tree entries in loaded trees.
+   * @param pathEntries Total number of resolved paths.
+   */
+  public GitTreeCache(long treeEntries, long pathEntries) {
+    trees = CacheBuilder.newBuilder()
+        .maximumWeight(treeEntries)
+        .weigher((Key<ObjectId> key, Map<String, GitTreeEntry> value) -> value.size() + 1)
+        .recordStats()
+        .build();
+    paths = CacheBuilder.newBuilder()
+        .maximumSize(pathEntries)
+        .recordStats()
+        .build();
+  }
+
+  @Nullable
+  Map<String, GitTreeEntry> getTree(@NotNull GitRepository repository, @NotNull ObjectId treeId) {
+    return trees.getIfPresent(new Key<>(repository, treeId));
+  }
+
+  void putTree(@NotNull GitRepository repository, @NotNull ObjectId treeId, @NotNull Map<String, GitTreeEntry> entries) {
+    trees.put(new Key<>(repository, treeId.copy()), entries);
+  }
+
+  @Nullable
+  GitFileTreeEntry.Location getLocation(@NotNull GitRepository repository, @NotNull GitFileTreeEntry.PathKey path) {
+    return paths.getIfPresent(new Key<>(repository, path));
+  }
+
+  void putLocation(@NotNull GitRepository repository, @NotNull GitFileTreeEntry.PathKey path, @NotNull GitFileTreeEntry.Location location) {
+    paths.put(new Key<>(repository, path), location);
+  }
+
+  /**
+   * Drop all cached trees and paths of repository.
+   */
+  void invalidate(@NotNull GitRepository repository) {
+    trees.asMap().keySet().removeIf(key -> key.repository == repository);
+    paths.asMap().keySet().removeIf(key -> key.repository == repository);
+  }
+
+  /**
+   * @return Hit, miss and eviction counters of tree cache.
+   */
+  @NotNull
+  public CacheStats getTreeStats() {
+    return trees.stats();
+  }
+
+  /**
+   * @return Hit, miss and eviction counters of path cache.
+   */
+  @NotNull
+  public CacheStats getPathStats() {
+    return paths.stats();
+  }
+
+  @Override
+  public void close() {
+    final CacheStats treeStats = trees.stats();
+    final CacheStats pathStats = paths.stats();
+    log.info("Git tree cache: {} hits, {} misses, {} evictions", treeStats.hitCount(), treeStats.missCount(), treeStats.evictionCount());
+    log.info("Git path cache: {} hits, {} misses, {} evictions", pathStats.hitCount(), pathStats.missCount(), pathStats.evictionCount());
+    trees.invalidateAll();
+    paths.invalidateAll();
+  }
+
+  private static final class Key<K> {
+    @NotNull
+    private final GitRepository repository;
+    @NotNull
+    private final K key;
+
+    private Key(@NotNull GitRepository repository, @NotNull K key) {
+      this.repository = repository;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      final Key<?> that = (Key<?>) o;
+      return repository == that.repository && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(repository) * 31 + key.hashCode();
+    }
+  }
+}
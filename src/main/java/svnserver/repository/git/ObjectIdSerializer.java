@@ -16,9 +16,9 @@ import org.mapdb.serializer.GroupSerializerObjectArray;
 
 import java.io.IOException;
 
-final class ObjectIdSerializer extends GroupSerializerObjectArray<ObjectId> {
+public final class ObjectIdSerializer extends GroupSerializerObjectArray<ObjectId> {
   @NotNull
-  static final ObjectIdSerializer instance = new ObjectIdSerializer();
+  public static final ObjectIdSerializer instance = new ObjectIdSerializer();
 
   @Override
   public void serialize(@NotNull DataOutput2 out, @NotNull ObjectId value) throws IOException {
@@ -0,0 +1,521 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Revisions in which each path was changed.
+ * <p>
+ * Paths are stored as a tree of nodes: every node refers to its parent node and to its name in name dictionary,
+ * so common path prefixes and repeated file names are stored only once. Characters of all names are packed
+ * into single char array and change lists of all paths are packed into single int array. Each change list
+ * is sorted by revision: removal of path in revision {@code r} is stored as {@code ~r}.
+ * <p>
+ * Lifetimes of paths are stored in the same way as pairs (created revision, removed revision), so revisions in which
+ * path was created and removed are found by binary search.
+ * <p>
+ * Index has single writer. Readers do not take locks unless they run concurrently with modification.
+ */
+final class PathHistoryIndex {
+  static final int MARK_NO_FILE = -1;
+
+  private static final int ROOT = 0;
+  private static final int EMPTY = 0;
+  private static final int ALIVE = Integer.MAX_VALUE;
+
+  @NotNull
+  private final StampedLock lock = new StampedLock();
+
+  // Name dictionary: open addressing hash table of (name id + 1).
+  @NotNull
+  private char[] nameChars = new char[256];
+  // Name i occupies nameChars[nameOffset[i]..nameOffset[i + 1])
+  @NotNull
+  private int[] nameOffset = new int[17];
+  private int nameCount;
+  @NotNull
+  private int[] nameTable = new int[32];
+
+  // Path tree: open addressing hash table of node ids by (parent, name). Root node is not in table.
+  @NotNull
+  private int[] nodeParent = new int[16];
+  @NotNull
+  private int[] nodeName = new int[16];
+  private int nodeCount = 1;
+  @NotNull
+  private int[] nodeTable = new int[32];
+
+  @NotNull
+  private final PackedLists changes = new PackedLists(16, 64);
+  // Lifetime of existing path ends with ALIVE
+  @NotNull
+  private final PackedLists lifetimes = new PackedLists(16, 32);
+
+  /**
+   * Find last change of path.
+   *
+   * @return Last revision, not greater than {@code beforeRevision}, where path was changed, or {@link #MARK_NO_FILE}
+   * if path does not exist in {@code beforeRevision}.
+   */
+  int getLastChange(@NotNull String path, int beforeRevision) {
+    return read(() -> findLastChange(path, beforeRevision));
+  }
+
+  /**
+   * Find beginning of path lifetime.
+   *
+   * @return Revision in which path existing in {@code revision} was created or {@link #MARK_NO_FILE}
+   * if path does not exist in {@code revision}.
+   */
+  int getCreated(@NotNull String path, int revision) {
+    return read(() -> {
+      final int node = findNode(path);
+      final int lifetime = findLifetime(node, revision);
+      return lifetime < 0 ? MARK_NO_FILE : lifetimes.data[lifetimes.offset[node] + lifetime * 2];
+    });
+  }
+
+  /**
+   * Find end of path lifetime.
+   *
+   * @return Revision in which path existing in {@code revision} was removed or {@link #MARK_NO_FILE}
+   * if path does not exist in {@code revision} or was not removed yet.
+   */
+  int getRemoved(@NotNull String path, int revision) {
+    return read(() -> {
+      final int node = findNode(path);
+      final int lifetime = findLifetime(node, revision);
+      if (lifetime < 0)
+        return MARK_NO_FILE;
+
+      final int removed = lifetimes.data[lifetimes.offset[node] + lifetime * 2 + 1];
+      return removed == ALIVE ? MARK_NO_FILE : removed;
+    });
+  }
+
+  /**
+   * Register path change. Revisions of each path must be added in ascending order.
+   *
+   * @param removed Path does not exist after this revision.
+   */
+  void add(@NotNull String path, int revision, boolean removed) {
+    final long stamp = lock.writeLock();
+    try {
+      final int node = getOrCreateNode(path);
+      if (node == ROOT)
+        return;
+
+      final int length = changes.length[node];
+      if (length > 0 && decode(changes.data[changes.offset[node] + length - 1]) >= revision)
+        throw new IllegalStateException("Revisions must be added in ascending order: " + path + "@" + revision);
+
+      final int value = removed ? ~revision : revision;
+      changes.add(node, value);
+      updateLifetime(node, value);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @return Number of indexed paths.
+   */
+  int size() {
+    final long stamp = lock.readLock();
+    try {
+      return nodeCount - 1;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Serialize index. Change lists are written without unused space.
+   */
+  void write(@NotNull DataOutput out) throws IOException {
+    final long stamp = lock.readLock();
+    try {
+      out.writeInt(nameCount);
+      for (int i = 0; i < nameCount; ++i) {
+        final int offset = nameOffset[i];
+        final int length = nameOffset[i + 1] - offset;
+        out.writeInt(length);
+        for (int j = 0; j < length; ++j)
+          out.writeChar(nameChars[offset + j]);
+      }
+      out.writeInt(nodeCount);
+      for (int i = 1; i < nodeCount; ++i) {
+        out.writeInt(nodeParent[i]);
+        out.writeInt(nodeName[i]);
+        final int offset = changes.offset[i];
+        final int length = changes.length[i];
+        out.writeInt(length);
+        for (int j = 0; j < length; ++j)
+          out.writeInt(changes.data[offset + j]);
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Deserialize index written by {@link #write(DataOutput)}.
+   */
+  @NotNull
+  static PathHistoryIndex read(@NotNull DataInput in) throws IOException {
+    final PathHistoryIndex result = new PathHistoryIndex();
+    final int names = in.readInt();
+    final char[] buffer = new char[256];
+    for (int i = 0; i < names; ++i) {
+      final int length = in.readInt();
+      final char[] chars = length <= buffer.length ? buffer : new char[length];
+      for (int j = 0; j < length; ++j)
+        chars[j] = in.readChar();
+      result.addName(new String(chars, 0, length), 0, length);
+    }
+    final int nodes = in.readInt();
+    for (int i = 1; i < nodes; ++i) {
+      final int parent = in.readInt();
+      final int name = in.readInt();
+      if (parent < 0 || parent >= i || name < 0 || name >= names)
+        throw new IOException("Invalid path history node: " + i);
+
+      final int node = result.addNode(parent, name);
+      final int length = in.readInt();
+      final int[] values = new int[length];
+      for (int j = 0; j < length; ++j) {
+        values[j] = in.readInt();
+        result.updateLifetime(node, values[j]);
+      }
+      result.changes.set(node, values);
+    }
+    return result;
+  }
+
+  private int read(@NotNull IntSupplier reader) {
+    final long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        final int result = reader.getAsInt();
+        if (lock.validate(stamp))
+          return result;
+      } catch (RuntimeException ignored) {
+        // Inconsistent state observed during concurrent modification.
+      }
+    }
+
+    final long readStamp = lock.readLock();
+    try {
+      return reader.getAsInt();
+    } finally {
+      lock.unlockRead(readStamp);
+    }
+  }
+
+  private void updateLifetime(int node, int value) {
+    final int length = lifetimes.length[node];
+    final boolean alive = length > 0 && lifetimes.data[lifetimes.offset[node] + length - 1] == ALIVE;
+    if (value < 0) {
+      if (alive)
+        lifetimes.data[lifetimes.offset[node] + length - 1] = ~value;
+    } else if (!alive) {
+      lifetimes.add(node, value);
+      lifetimes.add(node, ALIVE);
+    }
+  }
+
+  /**
+   * @return Index of lifetime that contains revision or -1 if path does not exist in revision.
+   */
+  private int findLifetime(int node, int revision) {
+    if (node == ROOT)
+      return -1;
+
+    final int[] data = lifetimes.data;
+    final int offset = lifetimes.offset[node];
+    int low = 0;
+    int high = lifetimes.length[node] / 2 - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (data[offset + mid * 2] > revision) {
+        high = mid - 1;
+      } else if (data[offset + mid * 2 + 1] <= revision) {
+        low = mid + 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private int findLastChange(@NotNull String path, int beforeRevision) {
+    final int node = findNode(path);
+    if (node == ROOT)
+      return MARK_NO_FILE;
+
+    final int[] data = changes.data;
+    final int offset = changes.offset[node];
+    int low = 0;
+    int high = changes.length[node] - 1;
+    int found = -1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (decode(data[offset + mid]) <= beforeRevision) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (found < 0)
+      return MARK_NO_FILE;
+
+    final int value = data[offset + found];
+    return value < 0 ? MARK_NO_FILE : value;
+  }
+
+  private static int decode(int value) {
+    return value < 0 ? ~value : value;
+  }
+
+  /**
+   * @return Node id or {@link #ROOT} if path is empty or not found.
+   */
+  private int findNode(@NotNull String path) {
+    int node = ROOT;
+    int begin = 0;
+    while (begin < path.length()) {
+      int end = path.indexOf('/', begin);
+      if (end < 0)
+        end = path.length();
+
+      if (end > begin) {
+        final int name = findName(path, begin, end);
+        if (name < 0)
+          return ROOT;
+
+        node = findChild(node, name);
+        if (node == ROOT)
+          return ROOT;
+      }
+      begin = end + 1;
+    }
+    return node;
+  }
+
+  private int getOrCreateNode(@NotNull String path) {
+    int node = ROOT;
+    int begin = 0;
+    while (begin < path.length()) {
+      int end = path.indexOf('/', begin);
+      if (end < 0)
+        end = path.length();
+
+      if (end > begin) {
+        int name = findName(path, begin, end);
+        if (name < 0)
+          name = addName(path, begin, end);
+
+        final int child = findChild(node, name);
+        node = child == ROOT ? addNode(node, name) : child;
+      }
+      begin = end + 1;
+    }
+    return node;
+  }
+
+  private int findName(@NotNull String path, int begin, int end) {
+    final char[] chars = nameChars;
+    final int[] offsets = nameOffset;
+    final int[] table = nameTable;
+    final int mask = table.length - 1;
+    final int length = end - begin;
+    for (int i = mix(hash(path, begin, end)) & mask, probe = 0; probe < table.length; i = (i + 1) & mask, probe++) {
+      final int entry = table[i];
+      if (entry == EMPTY)
+        return -1;
+
+      final int offset = offsets[entry - 1];
+      if (offsets[entry] - offset == length && nameEquals(path, begin, chars, offset, length))
+        return entry - 1;
+    }
+    return -1;
+  }
+
+  private static boolean nameEquals(@NotNull String path, int begin, @NotNull char[] chars, int offset, int length) {
+    for (int i = 0; i < length; ++i) {
+      if (path.charAt(begin + i) != chars[offset + i])
+        return false;
+    }
+    return true;
+  }
+
+  private int addName(@NotNull String path, int begin, int end) {
+    if (nameCount + 1 == nameOffset.length)
+      nameOffset = Arrays.copyOf(nameOffset, nameOffset.length * 2);
+
+    final int offset = nameOffset[nameCount];
+    final int length = end - begin;
+    if (nameChars.length - offset < length)
+      nameChars = Arrays.copyOf(nameChars, Math.max(nameChars.length * 2, offset + length));
+    path.getChars(begin, end, nameChars, offset);
+
+    final int id = nameCount++;
+    nameOffset[nameCount] = offset + length;
+    if (nameCount * 2 > nameTable.length) {
+      nameTable = new int[nameTable.length * 2];
+      for (int i = 0; i < nameCount; ++i)
+        insertName(nameTable, i);
+    } else {
+      insertName(nameTable, id);
+    }
+    return id;
+  }
+
+  private void insertName(@NotNull int[] table, int id) {
+    final int mask = table.length - 1;
+    int i = mix(hash(nameChars, nameOffset[id], nameOffset[id + 1])) & mask;
+    while (table[i] != EMPTY)
+      i = (i + 1) & mask;
+    table[i] = id + 1;
+  }
+
+  private int findChild(int parent, int name) {
+    final int[] parents = nodeParent;
+    final int[] nodeNames = nodeName;
+    final int[] table = nodeTable;
+    final int mask = table.length - 1;
+    for (int i = mix(parent * 31 + name) & mask, probe = 0; probe < table.length; i = (i + 1) & mask, probe++) {
+      final int entry = table[i];
+      if (entry == EMPTY)
+        return ROOT;
+
+      if (parents[entry] == parent && nodeNames[entry] == name)
+        return entry;
+    }
+    return ROOT;
+  }
+
+  private int addNode(int parent, int name) {
+    if (nodeCount == nodeParent.length) {
+      final int size = nodeParent.length * 2;
+      nodeParent = Arrays.copyOf(nodeParent, size);
+      nodeName = Arrays.copyOf(nodeName, size);
+      changes.resize(size);
+      lifetimes.resize(size);
+    }
+    final int id = nodeCount++;
+    nodeParent[id] = parent;
+    nodeName[id] = name;
+    if (nodeCount * 2 > nodeTable.length) {
+      nodeTable = new int[nodeTable.length * 2];
+      for (int i = 1; i < nodeCount; ++i)
+        insertNode(nodeTable, i);
+    } else {
+      insertNode(nodeTable, id);
+    }
+    return id;
+  }
+
+  private void insertNode(@NotNull int[] table, int id) {
+    final int mask = table.length - 1;
+    int i = mix(nodeParent[id] * 31 + nodeName[id]) & mask;
+    while (table[i] != EMPTY)
+      i = (i + 1) & mask;
+    table[i] = id;
+  }
+
+  private static int hash(@NotNull String text, int begin, int end) {
+    int result = 0;
+    for (int i = begin; i < end; ++i)
+      result = result * 31 + text.charAt(i);
+    return result;
+  }
+
+  private static int hash(@NotNull char[] text, int begin, int end) {
+    int result = 0;
+    for (int i = begin; i < end; ++i)
+      result = result * 31 + text[i];
+    return result;
+  }
+
+  private static int mix(int hash) {
+    final int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Int lists of nodes packed into single array. Capacity of each list is derived from its length.
+   */
+  private static final class PackedLists {
+    @NotNull
+    private int[] offset;
+    @NotNull
+    private int[] length;
+    @NotNull
+    private int[] data;
+    private int size;
+
+    private PackedLists(int nodes, int capacity) {
+      offset = new int[nodes];
+      length = new int[nodes];
+      data = new int[capacity];
+    }
+
+    private void resize(int nodes) {
+      offset = Arrays.copyOf(offset, nodes);
+      length = Arrays.copyOf(length, nodes);
+    }
+
+    private void add(int node, int value) {
+      final int listLength = length[node];
+      if (listLength == capacity(listLength)) {
+        // List is full: move it to the end of buffer
+        final int newOffset = allocate(capacity(listLength + 1));
+        System.arraycopy(data, offset[node], data, newOffset, listLength);
+        offset[node] = newOffset;
+      }
+      data[offset[node] + listLength] = value;
+      length[node] = listLength + 1;
+    }
+
+    /**
+     * Replace list of node without reserving space for growth.
+     */
+    private void set(int node, @NotNull int[] values) {
+      final int newOffset = allocate(capacity(values.length));
+      System.arraycopy(values, 0, data, newOffset, values.length);
+      offset[node] = newOffset;
+      length[node] = values.length;
+    }
+
+    private int allocate(int count) {
+      if (data.length - size < count)
+        data = Arrays.copyOf(data, Math.max(data.length * 2, size + count));
+
+      final int result = size;
+      size += count;
+      return result;
+    }
+
+    /**
+     * List capacity: lists grow as 1, 2, 4, 8...
+     */
+    private static int capacity(int length) {
+      return length <= 1 ? length : Integer.highestOneBit(length - 1) << 1;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Branch ref changes that are not indexed yet.
+ * <p>
+ * Change that arrives while branch is indexed is not covered by this indexing, so it keeps its mark
+ * and indexing is repeated.
+ */
+final class RefChangeTracker {
+  @NotNull
+  private final AtomicInteger changes = new AtomicInteger();
+  // Time (System.nanoTime) of first not yet indexed change, zero if there is no such change
+  @NotNull
+  private final AtomicLong changedAt = new AtomicLong();
+
+  /**
+   * Mark ref as changed.
+   *
+   * @return true if indexing should be scheduled.
+   */
+  boolean markChanged() {
+    changedAt.compareAndSet(0, System.nanoTime());
+    return changes.getAndIncrement() == 0;
+  }
+
+  /**
+   * @return Time in milliseconds since first change that is not indexed yet.
+   */
+  long getLag() {
+    return lagSince(changedAt.get());
+  }
+
+  /**
+   * Start indexing of all changes marked so far.
+   */
+  @NotNull
+  Round begin() {
+    return new Round(changes.get(), changedAt.get(), System.nanoTime());
+  }
+
+  /**
+   * Finish indexing started by {@link #begin()}.
+   *
+   * @return false if ref was changed during indexing and indexing must be repeated.
+   */
+  boolean finish(@NotNull Round round) {
+    // Mark set by change that arrived during indexing is kept
+    changedAt.compareAndSet(round.changedAt, 0);
+    if (changes.compareAndSet(round.changes, 0))
+      return true;
+
+    // Change arrived during indexing, but its mark was dropped above: it is not older than indexing start
+    changedAt.compareAndSet(0, round.startedAt);
+    return false;
+  }
+
+  private static long lagSince(long changedAt) {
+    return changedAt == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - changedAt);
+  }
+
+  static final class Round {
+    private final int changes;
+    private final long changedAt;
+    private final long startedAt;
+
+    private Round(int changes, long changedAt, long startedAt) {
+      this.changes = changes;
+      this.changedAt = changedAt;
+      this.startedAt = startedAt;
+    }
+
+    /**
+     * @return Time in milliseconds since first change covered by this indexing.
+     */
+    long getLag() {
+      return lagSince(changedAt);
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of branch revisions with date and commit hash indexes.
+ * <p>
+ * Revisions are stored column-wise in primitive arrays, {@link GitRevision} objects are created by {@link GitBranch} on demand.
+ * <p>
+ * Snapshots share storage: new revisions are written into arrays past the end of current snapshot,
+ * so appending does not copy whole table and already published snapshots never change.
+ * Only the latest snapshot can be appended to, and only by single writer at a time.
+ */
+final class RevisionTable {
+  private static final int ID_WORDS = Constants.OBJECT_ID_LENGTH / 4;
+
+  private final int size;
+  // Svn cache commit ids, ID_WORDS per revision
+  @NotNull
+  private final int[] cacheCommits;
+  // Git commit ids, ID_WORDS per revision, zero id for revision without commit
+  @NotNull
+  private final int[] gitCommits;
+  @NotNull
+  private final int[] commitTimes;
+  // Renames of revision are pairs (new path, old path) in renamePaths[renameEnds[revision - 1] * 2, renameEnds[revision] * 2)
+  @NotNull
+  private final int[] renameEnds;
+  @NotNull
+  private final String[] renamePaths;
+  // Revisions with non-decreasing dates
+  @NotNull
+  private final int[] dateRevisions;
+  private final int dateCount;
+  // Open addressing hash table of git commits: revision + 1 or 0 for empty slot.
+  // Shared between snapshots, revisions outside of snapshot are ignored on lookup.
+  @NotNull
+  private final int[] hashSlots;
+  private final int hashCount;
+
+  RevisionTable() {
+    this(0, new int[16 * ID_WORDS], new int[16 * ID_WORDS], new int[16], new int[16], new String[16], new int[16], 0, new int[32], 0);
+  }
+
+  private RevisionTable(int size,
+                        @NotNull int[] cacheCommits,
+                        @NotNull int[] gitCommits,
+                        @NotNull int[] commitTimes,
+                        @NotNull int[] renameEnds,
+                        @NotNull String[] renamePaths,
+                        @NotNull int[] dateRevisions,
+                        int dateCount,
+                        @NotNull int[] hashSlots,
+                        int hashCount) {
+    this.size = size;
+    this.cacheCommits = cacheCommits;
+    this.gitCommits = gitCommits;
+    this.commitTimes = commitTimes;
+    this.renameEnds = renameEnds;
+    this.renamePaths = renamePaths;
+    this.dateRevisions = dateRevisions;
+    this.dateCount = dateCount;
+    this.hashSlots = hashSlots;
+    this.hashCount = hashCount;
+  }
+
+  int size() {
+    return size;
+  }
+
+  @NotNull
+  ObjectId getCacheCommit(int revision) {
+    checkRevision(revision);
+    return toObjectId(cacheCommits, revision);
+  }
+
+  /**
+   * @return Git commit of revision or null for revision without commit.
+   */
+  @Nullable
+  ObjectId getGitCommit(int revision) {
+    checkRevision(revision);
+    if (isZero(gitCommits, revision))
+      return null;
+    return toObjectId(gitCommits, revision);
+  }
+
+  int getCommitTime(int revision) {
+    checkRevision(revision);
+    return commitTimes[revision];
+  }
+
+  /**
+   * @return Renamed paths of revision: new path to old path.
+   */
+  @NotNull
+  Map<String, String> getRenames(int revision) {
+    checkRevision(revision);
+    final int begin = revision == 0 ? 0 : renameEnds[revision - 1];
+    final int end = renameEnds[revision];
+    if (begin == end)
+      return Collections.emptyMap();
+
+    final Map<String, String> result = new HashMap<>();
+    for (int i = begin; i < end; ++i)
+      result.put(renamePaths[i * 2], renamePaths[i * 2 + 1]);
+    return result;
+  }
+
+  /**
+   * @return Old path of path renamed in revision or null if path was not renamed.
+   */
+  @Nullable
+  String getRenameSource(int revision, @NotNull String path) {
+    checkRevision(revision);
+    final int begin = revision == 0 ? 0 : renameEnds[revision - 1];
+    final int end = renameEnds[revision];
+    for (int i = begin; i < end; ++i) {
+      if (renamePaths[i * 2].equals(path))
+        return renamePaths[i * 2 + 1];
+    }
+    return null;
+  }
+
+  /**
+   * @return Latest revision with date not after given one, first revision or -1 for empty table.
+   */
+  int findByDate(long dateTime) {
+    int low = 0;
+    int high = dateCount - 1;
+    int found = -1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (TimeUnit.SECONDS.toMillis(commitTimes[dateRevisions[mid]]) <= dateTime) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (found >= 0)
+      return dateRevisions[found];
+    return size > 0 ? 0 : -1;
+  }
+
+  /**
+   * @return Revision of given git commit or -1 if commit is not found.
+   */
+  int findByHash(@NotNull AnyObjectId commitId) {
+    final int mask = hashSlots.length - 1;
+    for (int slot = commitId.hashCode() & mask; ; slot = (slot + 1) & mask) {
+      final int revision = hashSlots[slot] - 1;
+      if (revision < 0)
+        return -1;
+      // Slot can be filled by later append
+      if (revision < size && equalsId(gitCommits, revision, commitId))
+        return revision;
+    }
+  }
+
+  /**
+   * Create snapshot with one more revision.
+   *
+   * @param gitCommit Git commit of revision.
+   * @param renames   Renamed paths: new path to old path.
+   */
+  @NotNull
+  RevisionTable append(@NotNull ObjectId cacheCommit, @Nullable ObjectId gitCommit, int commitTime, @NotNull Map<String, String> renames) {
+    final int revision = size;
+    final int capacity = commitTimes.length;
+    final boolean grow = revision == capacity;
+
+    final int[] newCacheCommits = grow ? Arrays.copyOf(cacheCommits, capacity * 2 * ID_WORDS) : cacheCommits;
+    final int[] newGitCommits = grow ? Arrays.copyOf(gitCommits, capacity * 2 * ID_WORDS) : gitCommits;
+    final int[] newCommitTimes = grow ? Arrays.copyOf(commitTimes, capacity * 2) : commitTimes;
+    final int[] newRenameEnds = grow ? Arrays.copyOf(renameEnds, capacity * 2) : renameEnds;
+    cacheCommit.copyRawTo(newCacheCommits, revision * ID_WORDS);
+    (gitCommit == null ? ObjectId.zeroId() : gitCommit).copyRawTo(newGitCommits, revision * ID_WORDS);
+    newCommitTimes[revision] = commitTime;
+
+    final int renameBegin = revision == 0 ? 0 : renameEnds[revision - 1];
+    String[] newRenamePaths = renamePaths;
+    if ((renameBegin + renames.size()) * 2 > renamePaths.length)
+      newRenamePaths = Arrays.copyOf(renamePaths, Math.max(renamePaths.length * 2, (renameBegin + renames.size()) * 2));
+    int renameEnd = renameBegin;
+    for (Map.Entry<String, String> entry : renames.entrySet()) {
+      newRenamePaths[renameEnd * 2] = entry.getKey();
+      newRenamePaths[renameEnd * 2 + 1] = entry.getValue();
+      renameEnd++;
+    }
+    newRenameEnds[revision] = renameEnd;
+
+    int[] newDateRevisions = dateRevisions;
+    int newDateCount = dateCount;
+    if (revision > 0 && (dateCount == 0 || commitTimes[dateRevisions[dateCount - 1]] <= commitTime)) {
+      if (dateCount == dateRevisions.length)
+        newDateRevisions = Arrays.copyOf(dateRevisions, dateRevisions.length * 2);
+      newDateRevisions[dateCount] = revision;
+      newDateCount++;
+    }
+
+    int[] newHashSlots = hashSlots;
+    int newHashCount = hashCount;
+    if (gitCommit != null) {
+      // Keep load factor under 1/2
+      if ((hashCount + 1) * 2 > hashSlots.length) {
+        newHashSlots = new int[hashSlots.length * 2];
+        for (int slotValue : hashSlots) {
+          if (slotValue != 0)
+            insertHash(newHashSlots, toObjectId(newGitCommits, slotValue - 1), slotValue);
+        }
+      }
+      insertHash(newHashSlots, gitCommit, revision + 1);
+      newHashCount++;
+    }
+
+    return new RevisionTable(revision + 1, newCacheCommits, newGitCommits, newCommitTimes, newRenameEnds, newRenamePaths, newDateRevisions, newDateCount, newHashSlots, newHashCount);
+  }
+
+  private void checkRevision(int revision) {
+    if (revision < 0 || revision >= size)
+      throw new IndexOutOfBoundsException("No such revision " + revision + ", size " + size);
+  }
+
+  private static void insertHash(@NotNull int[] slots, @NotNull AnyObjectId commitId, int slotValue) {
+    final int mask = slots.length - 1;
+    int slot = commitId.hashCode() & mask;
+    while (slots[slot] != 0)
+      slot = (slot + 1) & mask;
+    slots[slot] = slotValue;
+  }
+
+  @NotNull
+  private static ObjectId toObjectId(@NotNull int[] ids, int revision) {
+    return ObjectId.fromRaw(ids, revision * ID_WORDS);
+  }
+
+  private static boolean isZero(@NotNull int[] ids, int revision) {
+    for (int i = revision * ID_WORDS; i < (revision + 1) * ID_WORDS; ++i) {
+      if (ids[i] != 0)
+        return false;
+    }
+    return true;
+  }
+
+  private static boolean equalsId(@NotNull int[] ids, int revision, @NotNull AnyObjectId commitId) {
+    // Object id hash code is its second word: cheap check before creating object id
+    return ids[revision * ID_WORDS + 1] == commitId.hashCode() && toObjectId(ids, revision).equals(commitId);
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+/**
+ * Changed path of revision as reported by svn log.
+ * <p>
+ * Copy-from information is not stored: it depends on branch revision numbers and is taken from revision renames.
+ */
+public final class CacheLogEntry {
+  @NotNull
+  private final String path;
+  private final char change;
+  @NotNull
+  private final SVNNodeKind kind;
+  private final boolean contentModified;
+  private final boolean propertyModified;
+
+  public CacheLogEntry(@NotNull String path, char change, @NotNull SVNNodeKind kind, boolean contentModified, boolean propertyModified) {
+    this.path = path;
+    this.change = change;
+    this.kind = kind;
+    this.contentModified = contentModified;
+    this.propertyModified = propertyModified;
+  }
+
+  @NotNull
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * @return Change type: one of {@link org.tmatesoft.svn.core.SVNLogEntryPath} types.
+   */
+  public char getChange() {
+    return change;
+  }
+
+  @NotNull
+  public SVNNodeKind getKind() {
+    return kind;
+  }
+
+  public boolean isContentModified() {
+    return contentModified;
+  }
+
+  public boolean isPropertyModified() {
+    return propertyModified;
+  }
+}
@@ -61,6 +61,14 @@ public interface GitFilter {
    */
   long getSize(@NotNull GitObject<? extends ObjectId> objectId) throws IOException;
 
+  /**
+   * Check if object content is binary.
+   *
+   * @param objectId Object reference.
+   * @return True for binary content.
+   */
+  boolean isBinary(@NotNull GitObject<? extends ObjectId> objectId) throws IOException;
+
   /**
    * Get object stream.
    *
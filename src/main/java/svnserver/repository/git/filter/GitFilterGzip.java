@@ -28,13 +28,10 @@ import java.util.zip.GZIPOutputStream;
 public final class GitFilterGzip implements GitFilter {
 
   @NotNull
-  private final Map<String, String> cacheMd5;
-  @NotNull
-  private final Map<String, Long> cacheSize;
+  private final Map<ObjectId, GitFilterMetadata> cacheMetadata;
 
   public GitFilterGzip(@NotNull LocalContext context) {
-    this.cacheMd5 = GitFilterHelper.getCacheMd5(this, context.getShared().getCacheDB());
-    this.cacheSize = GitFilterHelper.getCacheSize(this, context.getShared().getCacheDB());
+    this.cacheMetadata = GitFilterHelper.getCacheMetadata(this, context.getShared().getCacheStore());
   }
 
   @NotNull
@@ -46,12 +43,17 @@ public final class GitFilterGzip implements GitFilter {
   @NotNull
   @Override
   public String getMd5(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
-    return GitFilterHelper.getMd5(this, cacheMd5, cacheSize, objectId);
+    return GitFilterHelper.getMd5(this, cacheMetadata, objectId);
   }
 
   @Override
   public long getSize(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
-    return GitFilterHelper.getSize(this, cacheMd5, cacheSize, objectId);
+    return GitFilterHelper.getSize(this, cacheMetadata, objectId);
+  }
+
+  @Override
+  public boolean isBinary(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
+    return GitFilterHelper.isBinary(this, cacheMetadata, objectId);
   }
 
   @NotNull
@@ -13,13 +13,18 @@ import org.jetbrains.annotations.Nullable;
 import org.mapdb.DB;
 import org.mapdb.HTreeMap;
 import org.mapdb.Serializer;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
 import svnserver.HashHelper;
-import svnserver.StringHelper;
+import svnserver.MapDbHelper;
+import svnserver.context.CacheStore;
 import svnserver.repository.git.GitObject;
+import svnserver.repository.git.ObjectIdSerializer;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -29,74 +34,185 @@ import java.util.Map;
  */
 public final class GitFilterHelper {
   private static final int BUFFER_SIZE = 32 * 1024;
+  // Same as SVNFileUtil.detectMimeType
+  private static final int BINARY_CHECK_SIZE = 1024;
+  @NotNull
+  private static final String BINARY_CACHE = "cache.binary";
+  @NotNull
+  private static final Object migrationLock = new Object();
 
   private GitFilterHelper() {
   }
 
-  public static long getSize(@NotNull GitFilter filter, @Nullable Map<String, String> cacheMd5, @NotNull Map<String, Long> cacheSize, @NotNull GitObject<? extends ObjectId> objectId) throws IOException {
-    final Long size = cacheSize.get(objectId.getObject().name());
-    if (size != null) {
-      return size;
+  public static long getSize(@NotNull GitFilter filter, @NotNull Map<ObjectId, GitFilterMetadata> cache, @NotNull GitObject<? extends ObjectId> objectId) throws IOException {
+    final GitFilterMetadata metadata = cache.get(objectId.getObject());
+    if (metadata != null && metadata.getSize() != GitFilterMetadata.UNKNOWN_SIZE)
+      return metadata.getSize();
+
+    return createMetadata(filter, cache, objectId).getSize();
+  }
+
+  @NotNull
+  public static String getMd5(@NotNull GitFilter filter, @NotNull Map<ObjectId, GitFilterMetadata> cache, @NotNull GitObject<? extends ObjectId> objectId) throws IOException {
+    final GitFilterMetadata metadata = cache.get(objectId.getObject());
+    final String md5 = metadata == null ? null : metadata.getMd5Hex();
+    if (md5 != null)
+      return md5;
+
+    //noinspection ConstantConditions
+    return createMetadata(filter, cache, objectId).getMd5Hex();
+  }
+
+  public static boolean isBinary(@NotNull GitFilter filter, @NotNull Map<ObjectId, GitFilterMetadata> cache, @NotNull GitObject<? extends ObjectId> objectId) throws IOException {
+    final GitFilterMetadata metadata = cache.get(objectId.getObject());
+    final Boolean binary = metadata == null ? null : metadata.isBinary();
+    if (binary != null)
+      return binary;
+
+    return detectBinary(filter, cache, objectId);
+  }
+
+  /**
+   * Detect binary flag by content header only, so whole content is not read.
+   */
+  private static boolean detectBinary(@NotNull GitFilter filter, @NotNull Map<ObjectId, GitFilterMetadata> cache, @NotNull GitObject<? extends ObjectId> objectId) throws IOException {
+    final byte[] header = new byte[BINARY_CHECK_SIZE];
+    int headerSize = 0;
+    try (InputStream stream = filter.inputStream(objectId)) {
+      while (headerSize < header.length) {
+        final int bytes = stream.read(header, headerSize, header.length - headerSize);
+        if (bytes <= 0) break;
+        headerSize += bytes;
+      }
     }
-    return createMetadata(objectId, filter, cacheMd5, cacheSize).size;
+    final boolean binary = SVNFileUtil.detectMimeType(new ByteArrayInputStream(header, 0, headerSize)) != null;
+    merge(cache, objectId.getObject().copy(), new GitFilterMetadata(GitFilterMetadata.UNKNOWN_SIZE, null, binary));
+    return binary;
   }
 
+  /**
+   * Compute size, md5 and binary flag of content in single pass.
+   */
   @NotNull
-  private static Metadata createMetadata(@NotNull GitObject<? extends ObjectId> objectId, @NotNull GitFilter filter, @Nullable Map<String, String> cacheMd5, @Nullable Map<String, Long> cacheSize) throws IOException {
+  private static GitFilterMetadata createMetadata(@NotNull GitFilter filter, @NotNull Map<ObjectId, GitFilterMetadata> cache, @NotNull GitObject<? extends ObjectId> objectId) throws IOException {
     final byte[] buffer = new byte[BUFFER_SIZE];
-    try (final InputStream stream = filter.inputStream(objectId)) {
-      final MessageDigest digest = cacheMd5 != null ? HashHelper.md5() : null;
-      long totalSize = 0;
+    final byte[] header = new byte[BINARY_CHECK_SIZE];
+    int headerSize = 0;
+    final MessageDigest digest = HashHelper.md5();
+    long totalSize = 0;
+    try (InputStream stream = filter.inputStream(objectId)) {
       while (true) {
-        int bytes = stream.read(buffer);
+        final int bytes = stream.read(buffer);
         if (bytes <= 0) break;
-        if (digest != null) {
-          digest.update(buffer, 0, bytes);
+        if (headerSize < header.length) {
+          final int headerBytes = Math.min(bytes, header.length - headerSize);
+          System.arraycopy(buffer, 0, header, headerSize, headerBytes);
+          headerSize += headerBytes;
         }
+        digest.update(buffer, 0, bytes);
         totalSize += bytes;
       }
-      final String md5;
-      if ((cacheMd5 != null) && (digest != null)) {
-        md5 = StringHelper.toHex(digest.digest());
-        cacheMd5.putIfAbsent(objectId.getObject().name(), md5);
-      } else {
-        md5 = null;
-      }
-      if (cacheSize != null) {
-        cacheSize.putIfAbsent(objectId.getObject().name(), totalSize);
-      }
-      return new Metadata(totalSize, md5);
     }
+    final boolean binary = SVNFileUtil.detectMimeType(new ByteArrayInputStream(header, 0, headerSize)) != null;
+    final GitFilterMetadata metadata = new GitFilterMetadata(totalSize, digest.digest(), binary);
+    merge(cache, objectId.getObject().copy(), metadata);
+    return metadata;
   }
 
+  /**
+   * Open metadata cache of filter. Values of old per-value caches are moved to it.
+   */
   @NotNull
-  public static String getMd5(@NotNull GitFilter filter, @NotNull Map<String, String> cacheMd5, @Nullable Map<String, Long> cacheSize, @NotNull GitObject<? extends ObjectId> objectId) throws IOException {
-    final String md5 = cacheMd5.get(objectId.getObject().name());
-    if (md5 != null) {
-      return md5;
+  public static HTreeMap<ObjectId, GitFilterMetadata> getCacheMetadata(@NotNull GitFilter filter, @NotNull CacheStore cacheStore) {
+    final HTreeMap<ObjectId, GitFilterMetadata> cache = openCacheMetadata(filter.getName(), cacheStore);
+    synchronized (migrationLock) {
+      migrate(filter.getName(), cacheStore, cache);
     }
-    //noinspection ConstantConditions
-    return createMetadata(objectId, filter, cacheMd5, cacheSize).md5;
+    return cache;
   }
 
   @NotNull
-  public static HTreeMap<String, String> getCacheMd5(@NotNull GitFilter filter, @NotNull DB cacheDb) {
-    return cacheDb.hashMap("cache.filter." + filter.getName() + ".md5", Serializer.STRING, Serializer.STRING).createOrOpen();
+  private static HTreeMap<ObjectId, GitFilterMetadata> openCacheMetadata(@NotNull String filterName, @NotNull CacheStore cacheStore) {
+    final DB cacheDb = cacheStore.getSharedDB();
+    return cacheDb
+        .hashMap("cache.filter." + filterName + ".metadata", ObjectIdSerializer.instance, GitFilterMetadataSerializer.instance)
+        // Metadata can be computed again, so nobody waits for its commit
+        .modificationListener((key, oldValue, newValue, triggered) -> cacheStore.commitLater(cacheDb))
+        .createOrOpen();
   }
 
-  @NotNull
-  public static HTreeMap<String, Long> getCacheSize(@NotNull GitFilter filter, @NotNull DB cacheDb) {
-    return cacheDb.hashMap("cache.filter." + filter.getName() + ".size", Serializer.STRING, Serializer.LONG).createOrOpen();
+  /**
+   * Move values of old caches and delete them, so migration is done once per cache database.
+   */
+  private static void migrate(@NotNull String filterName, @NotNull CacheStore cacheStore, @NotNull Map<ObjectId, GitFilterMetadata> cache) {
+    final DB cacheDb = cacheStore.getSharedDB();
+    final String md5Name = "cache.filter." + filterName + ".md5";
+    if (cacheDb.exists(md5Name)) {
+      final HTreeMap<String, String> oldCache = cacheDb.hashMap(md5Name, Serializer.STRING, Serializer.STRING).open();
+      for (Map.Entry<String, String> entry : oldCache.entrySet()) {
+        final ObjectId objectId = parseObjectId(entry.getKey());
+        final byte[] md5 = parseHex(entry.getValue());
+        if (objectId != null && md5 != null)
+          merge(cache, objectId, new GitFilterMetadata(GitFilterMetadata.UNKNOWN_SIZE, md5, null));
+      }
+      MapDbHelper.deleteMap(cacheDb, md5Name, oldCache);
+    }
+
+    final String sizeName = "cache.filter." + filterName + ".size";
+    if (cacheDb.exists(sizeName)) {
+      final HTreeMap<String, Long> oldCache = cacheDb.hashMap(sizeName, Serializer.STRING, Serializer.LONG).open();
+      for (Map.Entry<String, Long> entry : oldCache.entrySet()) {
+        final ObjectId objectId = parseObjectId(entry.getKey());
+        if (objectId != null)
+          merge(cache, objectId, new GitFilterMetadata(entry.getValue(), null, null));
+      }
+      MapDbHelper.deleteMap(cacheDb, sizeName, oldCache);
+    }
+
+    // Binary flags of all filters were stored in single map with "<filter> <object id>" keys
+    if (cacheDb.exists(BINARY_CACHE)) {
+      final HTreeMap<String, Boolean> oldCache = cacheDb.hashMap(BINARY_CACHE, Serializer.STRING, Serializer.BOOLEAN).open();
+      final Map<String, Map<ObjectId, GitFilterMetadata>> caches = new HashMap<>();
+      caches.put(filterName, cache);
+      for (Map.Entry<String, Boolean> entry : oldCache.entrySet()) {
+        final int separator = entry.getKey().indexOf(' ');
+        if (separator < 0)
+          continue;
+
+        final ObjectId objectId = parseObjectId(entry.getKey().substring(separator + 1));
+        if (objectId != null) {
+          final Map<ObjectId, GitFilterMetadata> filterCache = caches.computeIfAbsent(entry.getKey().substring(0, separator), name -> openCacheMetadata(name, cacheStore));
+          merge(filterCache, objectId, new GitFilterMetadata(GitFilterMetadata.UNKNOWN_SIZE, null, entry.getValue()));
+        }
+      }
+      MapDbHelper.deleteMap(cacheDb, BINARY_CACHE, oldCache);
+    }
+  }
+
+  private static void merge(@NotNull Map<ObjectId, GitFilterMetadata> cache, @NotNull ObjectId objectId, @NotNull GitFilterMetadata metadata) {
+    // Map.merge is not used: deserialized values are never equal, so HTreeMap.replace would not succeed
+    final GitFilterMetadata oldMetadata = cache.get(objectId);
+    cache.put(objectId, oldMetadata == null ? metadata : oldMetadata.merge(metadata));
+  }
+
+  @Nullable
+  private static ObjectId parseObjectId(@NotNull String name) {
+    return ObjectId.isId(name) ? ObjectId.fromString(name) : null;
   }
 
-  private static class Metadata {
-    private final long size;
-    @Nullable
-    private final String md5;
+  @Nullable
+  private static byte[] parseHex(@NotNull String hex) {
+    if (hex.length() % 2 != 0)
+      return null;
 
-    private Metadata(long size, @Nullable String md5) {
-      this.size = size;
-      this.md5 = md5;
+    final byte[] result = new byte[hex.length() / 2];
+    for (int i = 0; i < result.length; ++i) {
+      final int high = Character.digit(hex.charAt(i * 2), 16);
+      final int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+      if (high < 0 || low < 0)
+        return null;
+      result[i] = (byte) ((high << 4) | low);
     }
+    return result;
   }
 }
@@ -31,10 +31,10 @@ public final class GitFilterLink implements GitFilter {
   @NotNull
   private static final byte[] LINK_PREFIX = "link ".getBytes(StandardCharsets.ISO_8859_1);
   @NotNull
-  private final Map<String, String> cacheMd5;
+  private final Map<ObjectId, GitFilterMetadata> cacheMetadata;
 
   public GitFilterLink(@NotNull LocalContext context) {
-    this.cacheMd5 = GitFilterHelper.getCacheMd5(this, context.getShared().getCacheDB());
+    this.cacheMetadata = GitFilterHelper.getCacheMetadata(this, context.getShared().getCacheStore());
   }
 
   @NotNull
@@ -46,7 +46,12 @@ public final class GitFilterLink implements GitFilter {
   @NotNull
   @Override
   public String getMd5(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
-    return GitFilterHelper.getMd5(this, cacheMd5, null, objectId);
+    return GitFilterHelper.getMd5(this, cacheMetadata, objectId);
+  }
+
+  @Override
+  public boolean isBinary(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
+    return GitFilterHelper.isBinary(this, cacheMetadata, objectId);
   }
 
   @Override
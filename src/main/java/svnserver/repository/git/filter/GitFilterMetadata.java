@@ -0,0 +1,76 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git.filter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import svnserver.StringHelper;
+
+/**
+ * Metadata of filtered object content: size, md5 and binary flag.
+ * <p>
+ * Metadata computed by filter is always complete. Metadata migrated from old cache format may miss some values.
+ */
+public final class GitFilterMetadata {
+  public static final long UNKNOWN_SIZE = -1;
+
+  private final long size;
+  @Nullable
+  private final byte[] md5;
+  @Nullable
+  private final Boolean binary;
+
+  public GitFilterMetadata(long size, @Nullable byte[] md5, @Nullable Boolean binary) {
+    this.size = size;
+    this.md5 = md5;
+    this.binary = binary;
+  }
+
+  /**
+   * @return Content size or {@link #UNKNOWN_SIZE}.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return Raw content md5 or null if unknown.
+   */
+  @Nullable
+  public byte[] getMd5() {
+    return md5;
+  }
+
+  /**
+   * @return Hex content md5 or null if unknown.
+   */
+  @Nullable
+  public String getMd5Hex() {
+    return md5 == null ? null : StringHelper.toHex(md5);
+  }
+
+  /**
+   * @return Is content binary or null if unknown.
+   */
+  @Nullable
+  public Boolean isBinary() {
+    return binary;
+  }
+
+  /**
+   * @return Metadata with known values of both objects.
+   */
+  @NotNull
+  GitFilterMetadata merge(@NotNull GitFilterMetadata other) {
+    return new GitFilterMetadata(
+        size != UNKNOWN_SIZE ? size : other.size,
+        md5 != null ? md5 : other.md5,
+        binary != null ? binary : other.binary
+    );
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git.filter;
+
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.serializer.GroupSerializerObjectArray;
+
+import java.io.IOException;
+
+final class GitFilterMetadataSerializer extends GroupSerializerObjectArray<GitFilterMetadata> {
+  @NotNull
+  static final GitFilterMetadataSerializer instance = new GitFilterMetadataSerializer();
+
+  private static final int MD5_LENGTH = 16;
+  private static final byte UNKNOWN = 2;
+
+  @Override
+  public void serialize(@NotNull DataOutput2 out, @NotNull GitFilterMetadata value) throws IOException {
+    out.packLong(value.getSize() + 1);
+    final byte[] md5 = value.getMd5();
+    out.writeBoolean(md5 != null);
+    if (md5 != null)
+      out.write(md5);
+    final Boolean binary = value.isBinary();
+    out.writeByte(binary == null ? UNKNOWN : binary ? 1 : 0);
+  }
+
+  @Override
+  public GitFilterMetadata deserialize(@NotNull DataInput2 input, int available) throws IOException {
+    final long size = input.unpackLong() - 1;
+    final byte[] md5;
+    if (input.readBoolean()) {
+      md5 = new byte[MD5_LENGTH];
+      input.readFully(md5);
+    } else {
+      md5 = null;
+    }
+    final byte binary = input.readByte();
+    return new GitFilterMetadata(size, md5, binary == UNKNOWN ? null : binary != 0);
+  }
+
+  @Override
+  public boolean isTrusted() {
+    return true;
+  }
+}
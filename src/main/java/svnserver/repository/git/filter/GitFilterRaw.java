@@ -28,10 +28,10 @@ import java.util.Map;
  */
 public final class GitFilterRaw implements GitFilter {
   @NotNull
-  private final Map<String, String> cacheMd5;
+  private final Map<ObjectId, GitFilterMetadata> cacheMetadata;
 
   public GitFilterRaw(@NotNull LocalContext context) {
-    this.cacheMd5 = GitFilterHelper.getCacheMd5(this, context.getShared().getCacheDB());
+    this.cacheMetadata = GitFilterHelper.getCacheMetadata(this, context.getShared().getCacheStore());
   }
 
   @NotNull
@@ -43,7 +43,12 @@ public final class GitFilterRaw implements GitFilter {
   @NotNull
   @Override
   public String getMd5(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
-    return GitFilterHelper.getMd5(this, cacheMd5, null, objectId);
+    return GitFilterHelper.getMd5(this, cacheMetadata, objectId);
+  }
+
+  @Override
+  public boolean isBinary(@NotNull GitObject<? extends ObjectId> objectId) throws IOException {
+    return GitFilterHelper.isBinary(this, cacheMetadata, objectId);
   }
 
   @Override
@@ -50,9 +50,9 @@ public class LocalLockManager implements LockStorage {
   @NotNull
   public static SortedMap<String, LockDesc> getPersistentStorage(@NotNull LocalContext context) {
     final String lockCacheName = String.format("locks.%s.%s", context.getName(), lockDescCacheVersion);
-    return context.getShared().getCacheDB().treeMap(
+    return context.openCache(lockCacheName, db -> db.treeMap(
         lockCacheName, Serializer.STRING, LockDescSerializer.instance
-    ).createOrOpen();
+    ).createOrOpen(), Map::putAll);
   }
 
   @NotNull
@@ -0,0 +1,61 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits number of concurrent sessions per key (user name, repository name).
+ */
+final class ConnectionLimiter {
+  @NotNull
+  private final Map<String, Integer> counters = new ConcurrentHashMap<>();
+  private final int limit;
+
+  /**
+   * @param limit Maximum number of concurrent sessions per key. Zero or negative value means no limit.
+   */
+  ConnectionLimiter(int limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Try to occupy session slot.
+   *
+   * @return true if slot is acquired and must be released with {@link #release(String)}.
+   */
+  boolean tryAcquire(@NotNull String key) {
+    if (limit <= 0)
+      return true;
+
+    final boolean[] acquired = {false};
+    counters.compute(key, (k, count) -> {
+      final int current = count == null ? 0 : count;
+      if (current >= limit)
+        return count;
+
+      acquired[0] = true;
+      return current + 1;
+    });
+    return acquired[0];
+  }
+
+  void release(@NotNull String key) {
+    if (limit <= 0)
+      return;
+
+    counters.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+  }
+
+  int getCount(@NotNull String key) {
+    return counters.getOrDefault(key, 0);
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection admission counters of {@link SvnServer}.
+ */
+public final class ConnectionStats {
+  @NotNull
+  private final AtomicLong accepted = new AtomicLong();
+  @NotNull
+  private final AtomicLong started = new AtomicLong();
+  @NotNull
+  private final AtomicLong parks = new AtomicLong();
+  @NotNull
+  private final AtomicLong rejectedQueueFull = new AtomicLong();
+  @NotNull
+  private final AtomicLong rejectedQueueTimeout = new AtomicLong();
+  @NotNull
+  private final AtomicLong rejectedUserLimit = new AtomicLong();
+  @NotNull
+  private final AtomicLong rejectedRepositoryLimit = new AtomicLong();
+  @NotNull
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  @NotNull
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  @NotNull
+  private final SvnServer server;
+
+  ConnectionStats(@NotNull SvnServer server) {
+    this.server = server;
+  }
+
+  void onAccepted() {
+    accepted.incrementAndGet();
+  }
+
+  void onStarted(long waitNanos) {
+    started.incrementAndGet();
+    totalWaitNanos.addAndGet(waitNanos);
+    maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+  }
+
+  void onParked() {
+    parks.incrementAndGet();
+  }
+
+  void onQueueFull() {
+    rejectedQueueFull.incrementAndGet();
+  }
+
+  void onQueueTimeout() {
+    rejectedQueueTimeout.incrementAndGet();
+  }
+
+  void onUserLimit() {
+    rejectedUserLimit.incrementAndGet();
+  }
+
+  void onRepositoryLimit() {
+    rejectedRepositoryLimit.incrementAndGet();
+  }
+
+  /**
+   * @return Total number of accepted sockets.
+   */
+  public long getAccepted() {
+    return accepted.get();
+  }
+
+  /**
+   * @return Number of connections that were picked up by worker thread.
+   */
+  public long getStarted() {
+    return started.get();
+  }
+
+  /**
+   * @return Number of connections waiting for free worker thread.
+   */
+  public int getQueueDepth() {
+    return server.getQueueDepth();
+  }
+
+  /**
+   * @return Number of idle connections that are not bound to worker thread.
+   */
+  public int getParked() {
+    return server.getParkedSessions();
+  }
+
+  /**
+   * @return Total number of times idle connections were parked.
+   */
+  public long getParkCount() {
+    return parks.get();
+  }
+
+  /**
+   * @return Number of connections that are currently served by worker threads.
+   */
+  public int getActiveWorkers() {
+    return server.getActiveWorkers();
+  }
+
+  public long getRejectedQueueFull() {
+    return rejectedQueueFull.get();
+  }
+
+  public long getRejectedQueueTimeout() {
+    return rejectedQueueTimeout.get();
+  }
+
+  public long getRejectedUserLimit() {
+    return rejectedUserLimit.get();
+  }
+
+  public long getRejectedRepositoryLimit() {
+    return rejectedRepositoryLimit.get();
+  }
+
+  public long getRejected() {
+    return getRejectedQueueFull() + getRejectedQueueTimeout() + getRejectedUserLimit() + getRejectedRepositoryLimit();
+  }
+
+  /**
+   * @return Total time connections spent in queue, in milliseconds.
+   */
+  public long getTotalWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+  }
+
+  /**
+   * @return Longest time single connection spent in queue, in milliseconds.
+   */
+  public long getMaxWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+  }
+
+  @Override
+  public String toString() {
+    final long startedCount = getStarted();
+    return "ConnectionStats{" +
+        "accepted=" + getAccepted() +
+        ", active=" + getActiveWorkers() +
+        ", queued=" + getQueueDepth() +
+        ", parked=" + getParked() +
+        ", parkCount=" + getParkCount() +
+        ", avgWaitMs=" + (startedCount == 0 ? 0 : getTotalWaitMillis() / startedCount) +
+        ", maxWaitMs=" + getMaxWaitMillis() +
+        ", rejectedQueueFull=" + getRejectedQueueFull() +
+        ", rejectedQueueTimeout=" + getRejectedQueueTimeout() +
+        ", rejectedUserLimit=" + getRejectedUserLimit() +
+        ", rejectedRepositoryLimit=" + getRejectedRepositoryLimit() +
+        '}';
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import svnserver.Loggers;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps idle svn:// sessions without occupying worker threads.
+ * <p>
+ * Parked session channel is switched to non-blocking mode and watched by single selector thread.
+ * Incoming data is accumulated in {@link SessionInputStream} until full command is received,
+ * then channel is switched back to blocking mode and session is resumed on worker thread.
+ */
+final class IdleSessionSelector implements AutoCloseable {
+  // Resume session even if command is not complete yet: worker can read the rest in blocking mode.
+  private static final int MAX_PENDING_SIZE = 64 * 1024;
+  @NotNull
+  private static final Logger log = Loggers.svn;
+
+  interface Session {
+    @NotNull
+    SocketChannel getChannel();
+
+    @NotNull
+    SessionInputStream getInput();
+
+    /**
+     * Called when full command is received and channel is in blocking mode again.
+     */
+    void resume();
+
+    /**
+     * Called on client disconnect or selector shutdown.
+     */
+    void close();
+  }
+
+  @NotNull
+  private final Selector selector;
+  @NotNull
+  private final Queue<Session> registrations = new ConcurrentLinkedQueue<>();
+  @NotNull
+  private final AtomicInteger parked = new AtomicInteger();
+  @NotNull
+  private final Thread thread;
+  private volatile boolean stopped;
+
+  IdleSessionSelector() throws IOException {
+    selector = Selector.open();
+    thread = new Thread(this::run, "SvnServer-selector");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  void park(@NotNull Session session) {
+    parked.incrementAndGet();
+    registrations.add(session);
+    selector.wakeup();
+    if (stopped)
+      closeRegistrations();
+  }
+
+  /**
+   * @return Number of parked sessions.
+   */
+  int getParked() {
+    return parked.get();
+  }
+
+  private void run() {
+    try {
+      while (!stopped) {
+        selector.select();
+        registerPending();
+        final List<Session> resumed = new ArrayList<>();
+        final Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+        while (iter.hasNext()) {
+          final SelectionKey key = iter.next();
+          iter.remove();
+          if (!key.isValid())
+            continue;
+
+          final Session session = (Session) key.attachment();
+          try {
+            final SessionInputStream input = session.getInput();
+            if (input.fill(session.getChannel(), MAX_PENDING_SIZE) < 0) {
+              unpark(key);
+              session.close();
+            } else if (input.hasCompleteItem() || input.pendingSize() >= MAX_PENDING_SIZE) {
+              unpark(key);
+              resumed.add(session);
+            }
+          } catch (IOException e) {
+            unpark(key);
+            session.close();
+          }
+        }
+        if (!resumed.isEmpty()) {
+          // Deregister cancelled keys, channel can't be switched to blocking mode while registered.
+          selector.selectNow();
+          selector.selectedKeys().clear();
+          for (Session session : resumed) {
+            try {
+              session.getChannel().configureBlocking(true);
+            } catch (IOException e) {
+              session.close();
+              continue;
+            }
+            session.resume();
+          }
+        }
+      }
+    } catch (IOException e) {
+      log.error("Idle session selector failed", e);
+    } finally {
+      stopped = true;
+      for (SelectionKey key : selector.keys()) {
+        if (!key.isValid())
+          continue;
+
+        unpark(key);
+        ((Session) key.attachment()).close();
+      }
+      closeRegistrations();
+      try {
+        selector.close();
+      } catch (IOException ignored) {
+        // It's ok
+      }
+    }
+  }
+
+  private void registerPending() {
+    while (true) {
+      final Session session = registrations.poll();
+      if (session == null)
+        break;
+
+      try {
+        final SocketChannel channel = session.getChannel();
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, session);
+      } catch (IOException e) {
+        parked.decrementAndGet();
+        session.close();
+      }
+    }
+  }
+
+  private void closeRegistrations() {
+    while (true) {
+      final Session session = registrations.poll();
+      if (session == null)
+        break;
+
+      parked.decrementAndGet();
+      session.close();
+    }
+  }
+
+  private void unpark(@NotNull SelectionKey key) {
+    key.cancel();
+    parked.decrementAndGet();
+  }
+
+  @Override
+  public void close() {
+    stopped = true;
+    selector.wakeup();
+  }
+
+  void join(long millis) throws InterruptedException {
+    thread.join(millis);
+  }
+}
@@ -30,6 +30,7 @@ import svnserver.server.step.Step;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * SVN client session context.
@@ -120,6 +121,26 @@ public final class SessionContext {
     return SVNDeltaCompression.None;
   }
 
+  @Nullable
+  public SvndiffCache getSvndiffCache() {
+    return server.getSharedContext().get(SvndiffCache.class);
+  }
+
+  /**
+   * @return Worker pool for computing file deltas ahead of time or null if disabled.
+   */
+  @Nullable
+  public ExecutorService getDeltaExecutor() {
+    return server.getDeltaExecutor();
+  }
+
+  /**
+   * @return Maximum amount of data, in bytes, that can be prepared ahead of time during editor drive.
+   */
+  public long getDeltaLookahead() {
+    return server.getDeltaLookahead();
+  }
+
   public void authenticate(boolean allowAnonymous) throws IOException, SVNException {
     if (!user.isAnonymous())
       throw new IllegalStateException();
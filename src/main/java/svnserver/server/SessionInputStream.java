@@ -0,0 +1,154 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import svnserver.parser.SvnServerParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * Client socket input stream that can be filled without blocking while session is parked.
+ * <p>
+ * Data that was read by {@link IdleSessionSelector} is returned before data from socket.
+ */
+final class SessionInputStream extends InputStream {
+  private static final int INITIAL_SIZE = 1024;
+
+  @NotNull
+  private final InputStream socketStream;
+  @Nullable
+  private byte[] pending;
+  private int offset;
+  private int limit;
+
+  SessionInputStream(@NotNull InputStream socketStream) {
+    this.socketStream = socketStream;
+  }
+
+  /**
+   * Read available data from non-blocking channel.
+   *
+   * @return Number of read bytes or -1 on end of stream.
+   */
+  int fill(@NotNull SocketChannel channel, int maxSize) throws IOException {
+    if (pending == null) {
+      pending = new byte[INITIAL_SIZE];
+    } else if (offset > 0) {
+      System.arraycopy(pending, offset, pending, 0, limit - offset);
+      limit -= offset;
+      offset = 0;
+    }
+
+    int total = 0;
+    while (limit < maxSize) {
+      if (limit == pending.length)
+        pending = Arrays.copyOf(pending, Math.min(pending.length * 2, maxSize));
+
+      final int size = channel.read(ByteBuffer.wrap(pending, limit, pending.length - limit));
+      if (size < 0)
+        return total == 0 ? -1 : total;
+      if (size == 0)
+        break;
+
+      limit += size;
+      total += size;
+    }
+    return total;
+  }
+
+  /**
+   * Wait for data from blocking socket.
+   *
+   * @return false if no data arrived within timeout.
+   */
+  boolean await(@NotNull Socket socket, int timeoutMillis) throws IOException {
+    if (offset < limit || socketStream.available() > 0)
+      return true;
+    // Zero socket timeout means infinite wait
+    if (timeoutMillis <= 0)
+      return false;
+
+    final int oldTimeout = socket.getSoTimeout();
+    socket.setSoTimeout(timeoutMillis);
+    try {
+      pending = new byte[INITIAL_SIZE];
+      final int size = socketStream.read(pending, 0, pending.length);
+      // End of stream is returned to reader on next read
+      if (size > 0)
+        limit = size;
+      return true;
+    } catch (SocketTimeoutException e) {
+      return false;
+    } finally {
+      releaseIfDrained();
+      socket.setSoTimeout(oldTimeout);
+    }
+  }
+
+  int pendingSize() {
+    return limit - offset;
+  }
+
+  /**
+   * @return true if full svn:// item is buffered and can be parsed without blocking.
+   */
+  boolean hasCompleteItem() {
+    return pending != null && SvnServerParser.isCompleteItem(pending, offset, limit - offset);
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (offset < limit) {
+      final int result = pending[offset++] & 0xFF;
+      releaseIfDrained();
+      return result;
+    }
+    return socketStream.read();
+  }
+
+  @Override
+  public int read(@NotNull byte[] b, int off, int len) throws IOException {
+    if (len == 0)
+      return 0;
+
+    if (offset < limit) {
+      final int size = Math.min(len, limit - offset);
+      System.arraycopy(pending, offset, b, off, size);
+      offset += size;
+      releaseIfDrained();
+      return size;
+    }
+    return socketStream.read(b, off, len);
+  }
+
+  @Override
+  public int available() throws IOException {
+    return (limit - offset) + socketStream.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    socketStream.close();
+  }
+
+  private void releaseIfDrained() {
+    if (offset >= limit) {
+      pending = null;
+      offset = 0;
+      limit = 0;
+    }
+  }
+}
@@ -8,6 +8,7 @@
 package svnserver.server;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNErrorMessage;
@@ -29,6 +30,11 @@ import svnserver.parser.token.ListEndToken;
 import svnserver.repository.RepositoryInfo;
 import svnserver.repository.RepositoryMapping;
 import svnserver.repository.git.GitBranch;
+import svnserver.repository.git.GitMetadataWarmer;
+import svnserver.repository.git.GitRefWatcher;
+import svnserver.repository.git.GitPropertyCache;
+import svnserver.repository.git.GitRenameDetector;
+import svnserver.repository.git.GitTreeCache;
 import svnserver.server.command.*;
 import svnserver.server.msg.AuthReq;
 import svnserver.server.msg.ClientInfo;
@@ -37,6 +43,8 @@ import svnserver.server.step.Step;
 import java.io.EOFException;
 import java.io.IOException;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
@@ -87,7 +95,7 @@ public final class SvnServer extends Thread {
   @NotNull
   private final Config config;
   @NotNull
-  private final ServerSocket serverSocket;
+  private final ServerSocketChannel serverChannel;
   @NotNull
   private final AtomicBoolean stopped = new AtomicBoolean(false);
   @NotNull
@@ -96,6 +104,18 @@ public final class SvnServer extends Thread {
   private final SharedContext sharedContext;
   @NotNull
   private final ThreadPoolExecutor threadPoolExecutor;
+  @NotNull
+  private final ScheduledThreadPoolExecutor queueTimeoutExecutor;
+  @NotNull
+  private final ConnectionStats connectionStats = new ConnectionStats(this);
+  @NotNull
+  private final ConnectionLimiter userLimiter;
+  @NotNull
+  private final ConnectionLimiter repositoryLimiter;
+  @Nullable
+  private final IdleSessionSelector idleSelector;
+  @Nullable
+  private final ThreadPoolExecutor deltaExecutor;
 
   public SvnServer(@NotNull Path basePath, @NotNull Config config) throws Exception {
     super("SvnServer");
@@ -107,18 +127,51 @@ public final class SvnServer extends Thread {
       thread.setDaemon(true);
       return thread;
     };
+    final int workerThreads = Math.max(1, config.getWorkerThreads());
+    final int queueSize = config.getConnectionQueueSize();
     threadPoolExecutor = new ThreadPoolExecutor(
-        0,
-        Integer.MAX_VALUE,
+        workerThreads,
+        workerThreads,
         60,
         TimeUnit.SECONDS,
-        new SynchronousQueue<>(),
+        queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>(),
         threadFactory,
         new ThreadPoolExecutor.AbortPolicy()
     );
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+    queueTimeoutExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+      final Thread thread = new Thread(r, "SvnServer-queue-timeout");
+      thread.setDaemon(true);
+      return thread;
+    });
+    queueTimeoutExecutor.setRemoveOnCancelPolicy(true);
+
+    if (config.getDeltaLookahead() > 0) {
+      final int deltaThreads = config.getDeltaThreads() > 0 ? config.getDeltaThreads() : Runtime.getRuntime().availableProcessors();
+      final AtomicInteger deltaThreadNumber = new AtomicInteger();
+      deltaExecutor = new ThreadPoolExecutor(deltaThreads, deltaThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+        final Thread thread = new Thread(r, String.format("SvnServer-delta-%s", deltaThreadNumber.incrementAndGet()));
+        thread.setDaemon(true);
+        return thread;
+      });
+      deltaExecutor.allowCoreThreadTimeOut(true);
+    } else {
+      deltaExecutor = null;
+    }
+
+    userLimiter = new ConnectionLimiter(config.getMaxConnectionsPerUser());
+    repositoryLimiter = new ConnectionLimiter(config.getMaxConnectionsPerRepository());
 
     sharedContext = SharedContext.create(basePath, config.getRealm(), config.getCacheConfig().createCache(basePath), config.getShared());
     sharedContext.add(UserDB.class, config.getUserDB().create(sharedContext));
+    if (config.getWatchRefs())
+      sharedContext.add(GitRefWatcher.class, new GitRefWatcher(Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+    sharedContext.add(GitRenameDetector.class, new GitRenameDetector(config.getRenameLimit()));
+    sharedContext.add(GitPropertyCache.class, new GitPropertyCache(config.getPropertyCacheMemory()));
+    sharedContext.add(GitTreeCache.class, new GitTreeCache(config.getTreeCacheSize(), config.getPathCacheSize()));
+    if (config.getMetadataWarmupThreads() > 0)
+      sharedContext.add(GitMetadataWarmer.class, new GitMetadataWarmer(config.getMetadataWarmupThreads(), config.getMetadataWarmupQueue(), config.getMetadataWarmupHead()));
 
     // Keep order as in https://svn.apache.org/repos/asf/subversion/trunk/subversion/libsvn_ra_svn/protocol
 
@@ -151,7 +204,7 @@ public final class SvnServer extends Thread {
     commands.put("get-locks", new GetLocksCmd());
     commands.put("replay", new ReplayCmd());
     commands.put("replay-range", new ReplayRangeCmd());
-    // get-deleted-rev
+    commands.put("get-deleted-rev", new GetDeletedRevCmd());
     commands.put("get-iprops", new GetIPropsCmd());
     // TODO: list (#162)
 
@@ -159,9 +212,11 @@ public final class SvnServer extends Thread {
 
     sharedContext.add(RepositoryMapping.class, repositoryMapping);
 
-    serverSocket = new ServerSocket();
-    serverSocket.setReuseAddress(config.getReuseAddress());
-    serverSocket.bind(new InetSocketAddress(InetAddress.getByName(config.getHost()), config.getPort()));
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().setReuseAddress(config.getReuseAddress());
+    serverChannel.bind(new InetSocketAddress(InetAddress.getByName(config.getHost()), config.getPort()));
+
+    idleSelector = config.getParkIdleConnections() ? new IdleSessionSelector() : null;
 
     boolean success = false;
     try {
@@ -174,7 +229,7 @@ public final class SvnServer extends Thread {
   }
 
   public int getPort() {
-    return serverSocket.getLocalPort();
+    return serverChannel.socket().getLocalPort();
   }
 
   @NotNull
@@ -182,13 +237,30 @@ public final class SvnServer extends Thread {
     return sharedContext;
   }
 
+  @NotNull
+  public ConnectionStats getConnectionStats() {
+    return connectionStats;
+  }
+
+  int getQueueDepth() {
+    return threadPoolExecutor.getQueue().size();
+  }
+
+  int getActiveWorkers() {
+    return threadPoolExecutor.getActiveCount();
+  }
+
+  int getParkedSessions() {
+    return idleSelector == null ? 0 : idleSelector.getParked();
+  }
+
   @Override
   public void run() {
-    log.info("Ready for connections on {}", serverSocket.getLocalSocketAddress());
+    log.info("Ready for connections on {}", serverChannel.socket().getLocalSocketAddress());
     while (!stopped.get()) {
-      final Socket client;
+      final SocketChannel channel;
       try {
-        client = this.serverSocket.accept();
+        channel = serverChannel.accept();
       } catch (IOException e) {
         if (stopped.get()) {
           log.info("Server stopped");
@@ -198,78 +270,60 @@ public final class SvnServer extends Thread {
         continue;
       }
 
-      final long sessionId = lastSessionId.incrementAndGet();
-      connections.put(sessionId, client);
-
-      final Runnable task = () -> {
-        try (Socket clientSocket = client;
-             SvnServerWriter writer = new SvnServerWriter(clientSocket.getOutputStream())) {
-          log.info("New connection from: {}", client.getRemoteSocketAddress());
-          serveClient(clientSocket, writer);
-        } catch (EOFException | SocketException ignore) {
-          // client disconnect is not a error
-        } catch (SVNException | IOException e) {
-          log.warn("Exception:", e);
-        } finally {
-          shutdownConnection(sessionId);
-        }
-      };
-
+      final ClientSession session;
       try {
-        threadPoolExecutor.execute(task);
-      } catch (RejectedExecutionException e) {
-        shutdownConnection(sessionId);
+        session = new ClientSession(lastSessionId.incrementAndGet(), channel);
+      } catch (IOException e) {
+        log.error("Error accepting client connection", e);
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+          // It's ok
+        }
+        continue;
       }
+
+      connections.put(session.sessionId, channel.socket());
+      connectionStats.onAccepted();
+      submit(session);
     }
   }
 
-  private void serveClient(@NotNull Socket socket, @NotNull SvnServerWriter writer) throws IOException, SVNException {
-    socket.setTcpNoDelay(true);
-    final SvnServerParser parser = new SvnServerParser(socket.getInputStream());
-
-    final ClientInfo clientInfo = exchangeCapabilities(parser, writer);
-
-    final RepositoryInfo repositoryInfo = RepositoryMapping.findRepositoryInfo(repositoryMapping, clientInfo.getUrl(), writer);
-    if (repositoryInfo == null)
-      return;
-
-    final SessionContext context = new SessionContext(parser, writer, this, repositoryInfo, clientInfo);
-    context.authenticate(true);
-    final GitBranch branch = context.getBranch();
-    branch.updateRevisions();
-    sendAnnounce(writer, repositoryInfo);
-
-    while (!isInterrupted()) {
+  /**
+   * Schedule session processing on worker thread.
+   */
+  private void submit(@NotNull ClientSession session) {
+    final long generation = session.enqueue();
+    // Timeout is scheduled before execution, so that worker always can cancel it
+    final long queueTimeout = config.getConnectionQueueTimeout();
+    session.timeout = null;
+    if (queueTimeout > 0) {
       try {
-        Step step = context.poll();
-        if (step != null) {
-          step.process(context);
-          continue;
-        }
-
-        parser.readToken(ListBeginToken.class);
+        session.timeout = queueTimeoutExecutor.schedule(() -> session.expire(generation), queueTimeout, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException ignored) {
+        // Server is shutting down
+      }
+    }
 
-        final String cmd = parser.readText();
-        final BaseCmd<?> command = commands.get(cmd);
-        if (command != null) {
-          log.debug("Receive command: {}", cmd);
-          processCommand(context, command, parser);
-        } else {
-          context.skipUnsupportedCommand(cmd);
-        }
-      } catch (SVNException e) {
-        if (WARNING_CODES.contains(e.getErrorMessage().getErrorCode())) {
-          log.warn("Command execution error: {}", e.getMessage());
-        } else {
-          log.error("Command execution error", e);
-        }
-        BaseCmd.sendError(writer, e.getErrorMessage());
+    try {
+      threadPoolExecutor.execute(session);
+    } catch (RejectedExecutionException e) {
+      session.cancelTimeout();
+      if (!session.claim(generation))
+        return;
+      if (!stopped.get()) {
+        connectionStats.onQueueFull();
+        log.warn("Rejecting connection from {}: connection queue is full ({})", session.socket.getRemoteSocketAddress(), connectionStats);
       }
+      session.reject();
     }
   }
 
   private void shutdownConnection(long sessionId) {
     final Socket client = connections.remove(sessionId);
+    if (client == null)
+      return;
+
     log.info("Connection from {} closed", client.getRemoteSocketAddress());
     try {
       client.close();
@@ -278,6 +332,10 @@ public final class SvnServer extends Thread {
     }
   }
 
+  private static void sendBusy(@NotNull SvnServerWriter writer) throws IOException {
+    BaseCmd.sendError(writer, SVNErrorMessage.create(SVNErrorCode.RA_SVN_CONNECTION_CLOSED, "Server is busy, try again later"));
+  }
+
   @NotNull
   private ClientInfo exchangeCapabilities(@NotNull SvnServerParser parser, @NotNull SvnServerWriter writer) throws IOException, SVNException {
     writer
@@ -411,6 +469,11 @@ public final class SvnServer extends Thread {
       forceShutdown();
     }
     join(millis);
+    if (idleSelector != null)
+      idleSelector.join(millis);
+    // Sessions are finished at this point, nobody waits for pending deltas
+    if (deltaExecutor != null)
+      deltaExecutor.shutdownNow();
     sharedContext.close();
     log.info("Server shutdown complete");
   }
@@ -418,8 +481,13 @@ public final class SvnServer extends Thread {
   public void startShutdown() throws IOException {
     if (stopped.compareAndSet(false, true)) {
       log.info("Shutdown server");
-      serverSocket.close();
+      serverChannel.close();
       threadPoolExecutor.shutdown();
+      queueTimeoutExecutor.shutdownNow();
+      // Parked sessions are idle, so there is no work to wait for
+      if (idleSelector != null)
+        idleSelector.close();
+      log.info("Connection stats: {}", connectionStats);
     }
   }
 
@@ -434,4 +502,247 @@ public final class SvnServer extends Thread {
   SVNDeltaCompression getCompressionLevel() {
     return config.getCompressionLevel();
   }
+
+  @Nullable
+  ExecutorService getDeltaExecutor() {
+    return deltaExecutor;
+  }
+
+  long getDeltaLookahead() {
+    return config.getDeltaLookahead();
+  }
+
+  private final class ClientSession implements Runnable, IdleSessionSelector.Session {
+    private final long sessionId;
+    @NotNull
+    private final SocketChannel channel;
+    @NotNull
+    private final Socket socket;
+    @NotNull
+    private final SessionInputStream input;
+    @NotNull
+    private final SvnServerParser parser;
+    @NotNull
+    private final SvnServerWriter writer;
+    /**
+     * Generation of submission waiting for worker, zero if there is no such submission.
+     * Guards against both worker thread and queue timeout handling the same submission
+     * and against timeout of previous submission handling re-submitted session.
+     */
+    @NotNull
+    private final AtomicLong pending = new AtomicLong();
+    // Session is submitted again only after it was claimed, so submissions do not overlap
+    private long lastGeneration;
+    private volatile long enqueuedAt;
+    @Nullable
+    private volatile Future<?> timeout;
+    // Session state is published to next worker thread through executor queue.
+    @Nullable
+    private SessionContext context;
+    @Nullable
+    private String limitedRepository;
+    @Nullable
+    private String limitedUser;
+
+    private ClientSession(long sessionId, @NotNull SocketChannel channel) throws IOException {
+      this.sessionId = sessionId;
+      this.channel = channel;
+      this.socket = channel.socket();
+      this.input = new SessionInputStream(socket.getInputStream());
+      this.parser = new SvnServerParser(input);
+      this.writer = new SvnServerWriter(socket.getOutputStream());
+    }
+
+    /**
+     * @return Generation of new submission.
+     */
+    private long enqueue() {
+      enqueuedAt = System.nanoTime();
+      final long generation = ++lastGeneration;
+      pending.set(generation);
+      return generation;
+    }
+
+    /**
+     * @return false if submission is already handled or session is submitted again.
+     */
+    private boolean claim(long generation) {
+      return pending.compareAndSet(generation, 0);
+    }
+
+    private void cancelTimeout() {
+      final Future<?> timeout = this.timeout;
+      if (timeout != null)
+        timeout.cancel(false);
+    }
+
+    @Override
+    public void run() {
+      final long generation = pending.get();
+      if (generation == 0 || !claim(generation))
+        return;
+
+      cancelTimeout();
+
+      connectionStats.onStarted(System.nanoTime() - enqueuedAt);
+      boolean parked = false;
+      try {
+        if (context == null) {
+          log.info("New connection from: {}", socket.getRemoteSocketAddress());
+          context = open();
+        }
+        if (context != null)
+          parked = serveCommands(context);
+      } catch (EOFException | SocketException ignore) {
+        // client disconnect is not a error
+      } catch (SVNException | IOException e) {
+        log.warn("Exception:", e);
+      } finally {
+        if (!parked)
+          close();
+      }
+    }
+
+    @Nullable
+    private SessionContext open() throws IOException, SVNException {
+      socket.setTcpNoDelay(true);
+
+      final ClientInfo clientInfo = exchangeCapabilities(parser, writer);
+
+      final RepositoryInfo repositoryInfo = RepositoryMapping.findRepositoryInfo(repositoryMapping, clientInfo.getUrl(), writer);
+      if (repositoryInfo == null)
+        return null;
+
+      final String repositoryName = repositoryInfo.getBranch().getRepository().getContext().getName();
+      if (!repositoryLimiter.tryAcquire(repositoryName)) {
+        connectionStats.onRepositoryLimit();
+        log.warn("Rejecting connection to {}: too many concurrent connections to repository", repositoryName);
+        sendBusy(writer);
+        return null;
+      }
+      limitedRepository = repositoryName;
+
+      final SessionContext context = new SessionContext(parser, writer, SvnServer.this, repositoryInfo, clientInfo);
+      context.authenticate(true);
+
+      final User user = context.getUser();
+      if (!user.isAnonymous()) {
+        if (!userLimiter.tryAcquire(user.getUsername())) {
+          connectionStats.onUserLimit();
+          log.warn("Rejecting connection of {}: too many concurrent connections of user", user.getUsername());
+          sendBusy(writer);
+          return null;
+        }
+        limitedUser = user.getUsername();
+      }
+
+      final GitBranch branch = context.getBranch();
+      if (!branch.isRefWatched())
+        branch.updateRevisions();
+      sendAnnounce(writer, repositoryInfo);
+      return context;
+    }
+
+    /**
+     * Process client commands until session becomes idle.
+     *
+     * @return true if session is parked and must not be closed.
+     */
+    private boolean serveCommands(@NotNull SessionContext context) throws IOException {
+      while (!isInterrupted()) {
+        try {
+          Step step = context.poll();
+          if (step != null) {
+            step.process(context);
+            continue;
+          }
+
+          if (idleSelector != null && !parser.hasPendingData() && !input.await(socket, config.getParkIdleDelay())) {
+            parser.releaseBuffer();
+            writer.releaseBuffer();
+            connectionStats.onParked();
+            idleSelector.park(this);
+            return true;
+          }
+
+          parser.readToken(ListBeginToken.class);
+
+          final String cmd = parser.readText();
+          final BaseCmd<?> command = commands.get(cmd);
+          if (command != null) {
+            log.debug("Receive command: {}", cmd);
+            processCommand(context, command, parser);
+          } else {
+            context.skipUnsupportedCommand(cmd);
+          }
+        } catch (SVNException e) {
+          if (WARNING_CODES.contains(e.getErrorMessage().getErrorCode())) {
+            log.warn("Command execution error: {}", e.getMessage());
+          } else {
+            log.error("Command execution error", e);
+          }
+          BaseCmd.sendError(writer, e.getErrorMessage());
+        }
+      }
+      return false;
+    }
+
+    private void expire(long generation) {
+      if (!claim(generation))
+        return;
+
+      threadPoolExecutor.remove(this);
+      connectionStats.onQueueTimeout();
+      log.warn("Rejecting connection from {}: no free worker in {} ms ({})", socket.getRemoteSocketAddress(), config.getConnectionQueueTimeout(), connectionStats);
+      reject();
+    }
+
+    /**
+     * Reply with protocol-level failure and close connection.
+     */
+    private void reject() {
+      try {
+        sendBusy(writer);
+      } catch (IOException e) {
+        log.debug("Failed to send busy reply to {}", socket.getRemoteSocketAddress(), e);
+      } finally {
+        close();
+      }
+    }
+
+    @NotNull
+    @Override
+    public SocketChannel getChannel() {
+      return channel;
+    }
+
+    @NotNull
+    @Override
+    public SessionInputStream getInput() {
+      return input;
+    }
+
+    @Override
+    public void resume() {
+      submit(this);
+    }
+
+    @Override
+    public void close() {
+      if (limitedUser != null) {
+        userLimiter.release(limitedUser);
+        limitedUser = null;
+      }
+      if (limitedRepository != null) {
+        repositoryLimiter.release(limitedRepository);
+        limitedRepository = null;
+      }
+      try {
+        writer.close();
+      } catch (IOException ignored) {
+        // client disconnect is not a error
+      }
+      shutdownConnection(sessionId);
+    }
+  }
 }
@@ -0,0 +1,344 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression;
+import svnserver.Loggers;
+import svnserver.context.Shared;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of fully encoded svndiff streams of added files.
+ * <p>
+ * Entry is a sequence of svndiff windows, each prefixed by its length. Entries are evicted in LRU order
+ * when total size exceeds limit.
+ */
+public final class SvndiffCache implements Shared {
+  @NotNull
+  private static final Logger log = Loggers.svn;
+  @NotNull
+  private static final String SUFFIX = ".svndiff";
+  @NotNull
+  private static final String TEMP_SUFFIX = ".tmp";
+  // Svndiff window holds at most 100 KB of target data, so larger length means broken entry
+  private static final int MAX_WINDOW_SIZE = 1024 * 1024;
+
+  @FunctionalInterface
+  public interface WindowConsumer {
+    void accept(@NotNull byte[] data, int offset, int length) throws IOException, SVNException;
+  }
+
+  @NotNull
+  private final Path root;
+  private final long maxSize;
+  private final long minFileSize;
+  // Access-ordered: first entry is least recently used.
+  @NotNull
+  private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalSize;
+
+  @NotNull
+  private final AtomicLong hits = new AtomicLong();
+  @NotNull
+  private final AtomicLong misses = new AtomicLong();
+  @NotNull
+  private final AtomicLong bytesServed = new AtomicLong();
+  @NotNull
+  private final AtomicLong evicted = new AtomicLong();
+
+  public SvndiffCache(@NotNull Path root, long maxSize, long minFileSize) throws IOException {
+    this.root = root;
+    this.maxSize = maxSize;
+    this.minFileSize = minFileSize;
+    Files.createDirectories(root);
+    load();
+  }
+
+  /**
+   * @return true if svndiff of file with given size should be cached.
+   */
+  public boolean accepts(long fileSize) {
+    // Single entry must not wipe out whole cache
+    return fileSize >= minFileSize && fileSize <= maxSize / 8;
+  }
+
+  @NotNull
+  public static String key(@NotNull String filter, @NotNull String blobId, @NotNull SVNDeltaCompression compression) {
+    return blobId + "." + filter + "." + compression.name().toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Send cached svndiff windows.
+   * <p>
+   * Entry is validated before anything is sent: broken entry is removed, so that caller can generate delta instead.
+   *
+   * @return false if entry is not cached.
+   */
+  public boolean read(@NotNull String key, @NotNull WindowConsumer consumer) throws IOException, SVNException {
+    final Path path = getPath(key);
+    final Long entrySize;
+    synchronized (entries) {
+      entrySize = entries.get(path);
+    }
+    if (entrySize == null) {
+      misses.incrementAndGet();
+      return false;
+    }
+
+    final FileChannel channel;
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      // Evicted concurrently or removed from outside
+      remove(path);
+      misses.incrementAndGet();
+      return false;
+    }
+    try (FileChannel input = channel) {
+      if (input.size() != entrySize || !isValid(input)) {
+        log.warn("Removing broken svndiff cache entry: {}", path);
+        remove(path);
+        Files.deleteIfExists(path);
+        misses.incrementAndGet();
+        return false;
+      }
+
+      hits.incrementAndGet();
+      input.position(0);
+      final DataInputStream stream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(input)));
+      byte[] buffer = new byte[0];
+      for (long position = 0; position < entrySize; position += Integer.BYTES + buffer.length) {
+        final int length = stream.readInt();
+        if (buffer.length != length)
+          buffer = new byte[length];
+        stream.readFully(buffer);
+        consumer.accept(buffer, 0, length);
+        bytesServed.addAndGet(length);
+      }
+    }
+    touch(path);
+    return true;
+  }
+
+  /**
+   * Check that entry consists of whole windows of sane size.
+   */
+  private static boolean isValid(@NotNull FileChannel channel) throws IOException {
+    final long size = channel.size();
+    final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    long position = 0;
+    while (position < size) {
+      header.clear();
+      while (header.hasRemaining()) {
+        if (channel.read(header, position + header.position()) < 0)
+          return false;
+      }
+      final int length = header.getInt(0);
+      if (length < 0 || length > MAX_WINDOW_SIZE || length > size - position - Integer.BYTES)
+        return false;
+
+      position += Integer.BYTES + length;
+    }
+    return true;
+  }
+
+  /**
+   * Create new cache entry. Entry becomes visible only after {@link Writer#commit()}.
+   */
+  @NotNull
+  public Writer create(@NotNull String key) throws IOException {
+    return new Writer(getPath(key));
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getBytesServed() {
+    return bytesServed.get();
+  }
+
+  public long getEvicted() {
+    return evicted.get();
+  }
+
+  public long getSize() {
+    synchronized (entries) {
+      return totalSize;
+    }
+  }
+
+  @Override
+  public void close() {
+    log.info("Svndiff cache stats: {}", this);
+  }
+
+  @Override
+  public String toString() {
+    final long hitCount = getHits();
+    final long total = hitCount + getMisses();
+    return "SvndiffCache{" +
+        "hits=" + hitCount +
+        ", misses=" + getMisses() +
+        ", hitRate=" + (total == 0 ? 0 : hitCount * 100 / total) + "%" +
+        ", bytesServed=" + getBytesServed() +
+        ", size=" + getSize() +
+        ", evicted=" + getEvicted() +
+        '}';
+  }
+
+  @NotNull
+  private Path getPath(@NotNull String key) {
+    return root.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+  }
+
+  private void load() throws IOException {
+    final List<Map.Entry<Path, BasicFileAttributes>> files = new ArrayList<>();
+    try (Stream<Path> stream = Files.walk(root)) {
+      final Iterator<Path> iter = stream.iterator();
+      while (iter.hasNext()) {
+        final Path path = iter.next();
+        final String name = path.getFileName().toString();
+        if (name.endsWith(TEMP_SUFFIX)) {
+          // Leftover of interrupted write
+          Files.deleteIfExists(path);
+        } else if (name.endsWith(SUFFIX)) {
+          files.add(new AbstractMap.SimpleEntry<>(path, Files.readAttributes(path, BasicFileAttributes.class)));
+        }
+      }
+    }
+    files.sort(Comparator.comparing(e -> e.getValue().lastModifiedTime()));
+    synchronized (entries) {
+      for (Map.Entry<Path, BasicFileAttributes> file : files) {
+        entries.put(file.getKey(), file.getValue().size());
+        totalSize += file.getValue().size();
+      }
+    }
+    evict();
+    log.info("Svndiff cache {}: {} entries, {} bytes", root, files.size(), getSize());
+  }
+
+  private void touch(@NotNull Path path) {
+    synchronized (entries) {
+      entries.get(path);
+    }
+    try {
+      // Keep LRU order between restarts
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException ignored) {
+      // Entry could be evicted concurrently
+    }
+  }
+
+  private void remove(@NotNull Path path) {
+    synchronized (entries) {
+      final Long size = entries.remove(path);
+      if (size != null)
+        totalSize -= size;
+    }
+  }
+
+  private void add(@NotNull Path path, long size) {
+    synchronized (entries) {
+      final Long prev = entries.put(path, size);
+      totalSize += size - (prev == null ? 0 : prev);
+    }
+    evict();
+  }
+
+  private void evict() {
+    final List<Path> victims = new ArrayList<>();
+    synchronized (entries) {
+      final Iterator<Map.Entry<Path, Long>> iter = entries.entrySet().iterator();
+      while (totalSize > maxSize && iter.hasNext()) {
+        final Map.Entry<Path, Long> entry = iter.next();
+        totalSize -= entry.getValue();
+        victims.add(entry.getKey());
+        iter.remove();
+      }
+    }
+    for (Path victim : victims) {
+      try {
+        Files.deleteIfExists(victim);
+        evicted.incrementAndGet();
+      } catch (IOException e) {
+        log.warn("Can't remove svndiff cache entry: {}", victim, e);
+      }
+    }
+  }
+
+  public final class Writer implements Closeable {
+    @NotNull
+    private final Path path;
+    @NotNull
+    private final Path tempPath;
+    @NotNull
+    private final DataOutputStream stream;
+    private long size;
+    private boolean closed;
+
+    private Writer(@NotNull Path path) throws IOException {
+      this.path = path;
+      Files.createDirectories(path.getParent());
+      this.tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), TEMP_SUFFIX);
+      this.stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)));
+    }
+
+    public void write(@NotNull byte[] data, int offset, int length) throws IOException {
+      stream.writeInt(length);
+      stream.write(data, offset, length);
+      size += Integer.BYTES + length;
+    }
+
+    public void commit() throws IOException {
+      if (closed)
+        return;
+
+      closed = true;
+      stream.close();
+      try {
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        Files.deleteIfExists(tempPath);
+        throw e;
+      }
+      add(path, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed)
+        return;
+
+      closed = true;
+      try {
+        stream.close();
+      } finally {
+        Files.deleteIfExists(tempPath);
+      }
+    }
+  }
+}
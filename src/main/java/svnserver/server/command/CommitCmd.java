@@ -19,6 +19,7 @@ import org.tmatesoft.svn.core.internal.delta.SVNDeltaReader;
 import svnserver.Loggers;
 import svnserver.StringHelper;
 import svnserver.auth.User;
+import svnserver.parser.BinarySlice;
 import svnserver.parser.MessageParser;
 import svnserver.parser.SvnServerParser;
 import svnserver.parser.SvnServerWriter;
@@ -228,18 +229,6 @@ public final class CommitCmd extends BaseCmd<CommitCmd.CommitParams> {
     }
   }
 
-  public static class DeltaChunkParams {
-    @NotNull
-    private final String token;
-    @NotNull
-    private final byte[] chunk;
-
-    public DeltaChunkParams(@NotNull String token, @NotNull byte[] chunk) {
-      this.token = token;
-      this.chunk = chunk;
-    }
-  }
-
   private static class FileUpdater implements Closeable {
     @NotNull
     private final GitDeltaConsumer deltaConsumer;
@@ -288,6 +277,11 @@ public final class CommitCmd extends BaseCmd<CommitCmd.CommitParams> {
     }
   }
 
+  @FunctionalInterface
+  private interface ParserCmd {
+    void process(@NotNull SvnServerParser parser) throws IOException, SVNException;
+  }
+
   private static final class EditorPipeline implements Closeable {
     @NotNull
     private final EntryUpdater rootEntry;
@@ -295,6 +289,9 @@ public final class CommitCmd extends BaseCmd<CommitCmd.CommitParams> {
     private final Map<String, BaseCmd<?>> commands;
     @NotNull
     private final Map<String, BaseCmd<?>> exitCommands;
+    // Commands that read arguments from parser by themselves
+    @NotNull
+    private final Map<String, ParserCmd> parserCommands;
     @NotNull
     private final String message;
     @NotNull
@@ -331,13 +328,15 @@ public final class CommitCmd extends BaseCmd<CommitCmd.CommitParams> {
       commands.put("open-file", new LambdaCmd<>(OpenParams.class, this::openFile));
       commands.put("close-dir", new LambdaCmd<>(TokenParams.class, this::closeDir));
       commands.put("close-file", new LambdaCmd<>(ChecksumParams.class, this::closeFile));
-      commands.put("textdelta-chunk", new LambdaCmd<>(DeltaChunkParams.class, this::deltaChunk));
       commands.put("textdelta-end", new LambdaCmd<>(TokenParams.class, this::deltaEnd));
       commands.put("apply-textdelta", new LambdaCmd<>(ChecksumParams.class, this::deltaApply));
 
       exitCommands = new HashMap<>();
       exitCommands.put("close-edit", new LambdaCmd<>(NoParams.class, this::closeEdit));
       exitCommands.put("abort-edit", new LambdaCmd<>(NoParams.class, this::abortEdit));
+
+      parserCommands = new HashMap<>();
+      parserCommands.put("textdelta-chunk", this::deltaChunk);
     }
 
     @NotNull
@@ -496,8 +495,22 @@ public final class CommitCmd extends BaseCmd<CommitCmd.CommitParams> {
       }
     }
 
-    private void deltaChunk(@NotNull SessionContext context, @NotNull DeltaChunkParams args) throws SVNException {
-      getFile(args.token).reader.nextWindow(args.chunk, 0, args.chunk.length, "", getFile(args.token).deltaConsumer);
+    /**
+     * Delta chunk is passed to delta reader directly from parser buffer, without intermediate copies.
+     */
+    private void deltaChunk(@NotNull SvnServerParser parser) throws IOException, SVNException {
+      parser.readToken(ListBeginToken.class);
+      final String token = parser.readText();
+      final BinarySlice chunk = parser.readBinaryItem();
+      try {
+        final FileUpdater file = getFile(token);
+        if (chunk != null)
+          file.reader.nextWindow(chunk.getData(), chunk.getOffset(), chunk.getLength(), "", file.deltaConsumer);
+      } finally {
+        if (chunk != null)
+          parser.skipItems();
+        parser.readToken(ListEndToken.class);
+      }
     }
 
     private void deltaEnd(@NotNull SessionContext context, @NotNull TokenParams args) throws SVNException {
@@ -632,8 +645,9 @@ public final class CommitCmd extends BaseCmd<CommitCmd.CommitParams> {
         context.push(this::editorCommand);
         command = commands.get(cmd);
       }
+      final ParserCmd parserCommand = command == null ? parserCommands.get(cmd) : null;
 
-      if (command == null) {
+      if (command == null && parserCommand == null) {
         context.skipUnsupportedCommand(cmd);
         return;
       }
@@ -644,9 +658,13 @@ public final class CommitCmd extends BaseCmd<CommitCmd.CommitParams> {
       }
 
       try {
-        Object param = MessageParser.parse(command.getArguments(), parser);
-        parser.readToken(ListEndToken.class);
-        command.process(context, param);
+        if (parserCommand != null) {
+          parserCommand.process(parser);
+        } else {
+          Object param = MessageParser.parse(command.getArguments(), parser);
+          parser.readToken(ListEndToken.class);
+          command.process(context, param);
+        }
       } catch (SVNException e) {
         aborted = true;
         throw e;
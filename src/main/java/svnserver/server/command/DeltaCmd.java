@@ -7,6 +7,7 @@
  */
 package svnserver.server.command;
 
+import org.eclipse.jgit.lib.ObjectId;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -27,7 +28,10 @@ import svnserver.repository.Depth;
 import svnserver.repository.SvnForbiddenException;
 import svnserver.repository.VcsCopyFrom;
 import svnserver.repository.git.GitFile;
+import svnserver.repository.git.GitObject;
+import svnserver.repository.git.filter.GitFilter;
 import svnserver.server.SessionContext;
+import svnserver.server.SvndiffCache;
 import svnserver.server.step.CheckPermissionStep;
 
 import java.io.*;
@@ -197,6 +201,8 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
     @NotNull
     private final Deque<HeaderEntry> pathStack = new ArrayDeque<>();
     private int lastTokenId;
+    @Nullable
+    private DeltaOutput output;
 
     ReportPipeline(@NotNull DeltaParams params) {
       this.params = params;
@@ -212,7 +218,14 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
       for (HeaderEntry entry : pathStack) {
         entry.write();
       }
-      return context.getWriter();
+      return getOutput(context).getWriter();
+    }
+
+    @NotNull
+    private DeltaOutput getOutput(@NotNull SessionContext context) {
+      if (output == null)
+        output = new DeltaOutput(context.getWriter(), context.getDeltaExecutor(), context.getDeltaLookahead());
+      return output;
     }
 
     private void abortReport(@NotNull SessionContext context, @NotNull NoParams args) throws IOException, SVNException {
@@ -293,12 +306,17 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
 
     private void complete(@NotNull SessionContext context) throws IOException, SVNException {
       final SvnServerWriter writer = getWriter(context);
-      sendDelta(context);
-      writer
-          .listBegin()
-          .word("close-edit")
-          .listBegin().listEnd()
-          .listEnd();
+      writer.cork();
+      try {
+        sendDelta(context);
+        writer
+            .listBegin()
+            .word("close-edit")
+            .listBegin().listEnd()
+            .listEnd();
+      } finally {
+        writer.uncork();
+      }
       final SvnServerParser parser = context.getParser();
       parser.readToken(ListBeginToken.class);
 
@@ -356,6 +374,19 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
     }
 
     void sendDelta(@NotNull SessionContext context) throws IOException, SVNException {
+      final DeltaOutput deltaOutput = getOutput(context);
+      boolean success = false;
+      try {
+        sendEditorDrive(context);
+        deltaOutput.flush();
+        success = true;
+      } finally {
+        if (!success)
+          deltaOutput.cancel();
+      }
+    }
+
+    private void sendEditorDrive(@NotNull SessionContext context) throws IOException, SVNException {
       final String path = params.getPath();
       final int targetRev = params.getRev(context);
       final SetPathParams rootParams = paths.get(wcPath(""));
@@ -393,7 +424,7 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
 
       final GitFile oldFile = getPrevFile(context, path, context.getFile(rootRev, fullPath));
       updateEntry(context, path, oldFile, newFile, tokenId, path.isEmpty(), rootParams.depth, params.getDepth());
-      writer
+      getWriter(context)
           .listBegin()
           .word("close-dir")
           .listBegin().string(tokenId).listEnd()
@@ -518,8 +549,7 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
           .listEnd())) {
         final GitFile oldFile = header.file;
         if (oldFile == null || !newFile.getContentHash().equals(oldFile.getContentHash())) {
-          final SvnServerWriter writer = getWriter(context);
-          writer
+          getWriter(context)
               .listBegin()
               .word("apply-textdelta")
               .listBegin()
@@ -530,46 +560,11 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
               .listEnd();
 
           if (params.sendDeltas()) {
-            final SVNDeltaGenerator deltaGenerator = new SVNDeltaGenerator();
-            try (InputStream source = oldFile == null ? SVNFileUtil.DUMMY_IN : oldFile.openStream();
-                 InputStream target = newFile.openStream()) {
-              final SVNDeltaCompression compression = context.getCompression();
-              final String validateMd5 = deltaGenerator.sendDelta(newFile.getFileName(), source, 0, target, new ISVNDeltaConsumer() {
-                private boolean header = true;
-
-                @Override
-                public void applyTextDelta(String path, String baseChecksum) {
-                }
-
-                @Override
-                public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
-                  try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-                    diffWindow.writeTo(stream, header, compression);
-                    header = false;
-                    writer
-                        .listBegin()
-                        .word("textdelta-chunk")
-                        .listBegin()
-                        .string(tokenId)
-                        .binary(stream.toByteArray())
-                        .listEnd()
-                        .listEnd();
-                    return null;
-                  } catch (IOException e) {
-                    throw new SVNException(SVNErrorMessage.create(SVNErrorCode.IO_WRITE_ERROR), e);
-                  }
-                }
-
-                @Override
-                public void textDeltaEnd(String path) {
-                }
-              }, true);
-              if (!validateMd5.equals(md5)) {
-                throw new IllegalStateException("MD5 checksum mismatch: some shit happends.");
-              }
-            }
+            final SVNDeltaCompression compression = context.getCompression();
+            final SvndiffCache cache = oldFile == null ? context.getSvndiffCache() : null;
+            getOutput(context).writeDelta(deltaWriter -> sendTextDelta(deltaWriter, tokenId, oldFile, newFile, md5, compression, cache), newFile.getSize());
           }
-          writer
+          getWriter(context)
               .listBegin()
               .word("textdelta-end")
               .listBegin()
@@ -581,6 +576,71 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
       }
     }
 
+    private static void sendTextDelta(@NotNull SvnServerWriter writer, @NotNull String tokenId, @Nullable GitFile oldFile, @NotNull GitFile newFile, @NotNull String md5, @NotNull SVNDeltaCompression compression, @Nullable SvndiffCache cache) throws IOException, SVNException {
+      final SvndiffCache.WindowConsumer sender = (data, offset, length) -> writer
+          .listBegin()
+          .word("textdelta-chunk")
+          .listBegin()
+          .string(tokenId)
+          .binary(data, offset, length)
+          .listEnd()
+          .listEnd();
+
+      final GitObject<ObjectId> objectId = newFile.getObjectId();
+      final GitFilter filter = newFile.getFilter();
+      if (cache == null || oldFile != null || objectId == null || filter == null || !cache.accepts(newFile.getSize())) {
+        generateDelta(oldFile, newFile, md5, compression, sender);
+        return;
+      }
+
+      final String key = SvndiffCache.key(filter.getName(), objectId.getObject().name(), compression);
+      if (cache.read(key, sender))
+        return;
+
+      try (SvndiffCache.Writer cacheWriter = cache.create(key)) {
+        generateDelta(null, newFile, md5, compression, (data, offset, length) -> {
+          sender.accept(data, offset, length);
+          cacheWriter.write(data, offset, length);
+        });
+        cacheWriter.commit();
+      }
+    }
+
+    private static void generateDelta(@Nullable GitFile oldFile, @NotNull GitFile newFile, @NotNull String md5, @NotNull SVNDeltaCompression compression, @NotNull SvndiffCache.WindowConsumer consumer) throws IOException, SVNException {
+      final SVNDeltaGenerator deltaGenerator = new SVNDeltaGenerator();
+      final WindowBuffer window = new WindowBuffer();
+      try (InputStream source = oldFile == null ? SVNFileUtil.DUMMY_IN : oldFile.openStream();
+           InputStream target = newFile.openStream()) {
+        final String validateMd5 = deltaGenerator.sendDelta(newFile.getFileName(), source, 0, target, new ISVNDeltaConsumer() {
+          private boolean header = true;
+
+          @Override
+          public void applyTextDelta(String path, String baseChecksum) {
+          }
+
+          @Override
+          public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+            try {
+              window.reset();
+              diffWindow.writeTo(window, header, compression);
+              header = false;
+              consumer.accept(window.getBuffer(), 0, window.size());
+              return null;
+            } catch (IOException e) {
+              throw new SVNException(SVNErrorMessage.create(SVNErrorCode.IO_WRITE_ERROR), e);
+            }
+          }
+
+          @Override
+          public void textDeltaEnd(String path) {
+          }
+        }, true);
+        if (!validateMd5.equals(md5)) {
+          throw new IllegalStateException("MD5 checksum mismatch: some shit happends.");
+        }
+      }
+    }
+
     @NotNull
     private Depth getWcDepth(@NotNull String wcPath, @NotNull Depth parentWcDepth) {
       final SetPathParams params = paths.get(wcPath);
@@ -707,14 +767,14 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
         final VcsCopyFrom copyFrom = getCopyFrom(newFile);
 
         final GitFile entryFile = copyFrom != null ? context.getBranch().getRevisionInfo(copyFrom.getRevision()).getFile(copyFrom.getPath()) : null;
-        final HeaderEntry entry = new HeaderEntry(context, entryFile, writer -> {
+        final HeaderEntry entry = new HeaderEntry(getOutput(context), entryFile, writer -> {
           sendNewEntry(writer, "add-" + type, wcPath, parentTokenId, tokenId, copyFrom);
           sendRevProps(writer, newFile, type, tokenId);
         }, endWriter, pathStack);
         getWriter(context);
         return entry;
       } else {
-        return new HeaderEntry(context, oldFile, writer -> {
+        return new HeaderEntry(getOutput(context), oldFile, writer -> {
           sendOpenEntry(writer, "open-" + type, wcPath, parentTokenId, tokenId, oldFile.getLastChange().getId());
           sendRevProps(writer, newFile, type, tokenId);
         }, endWriter, pathStack);
@@ -772,6 +832,13 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
           .listEnd();
     }
 
+    private static final class WindowBuffer extends ByteArrayOutputStream {
+      @NotNull
+      byte[] getBuffer() {
+        return buf;
+      }
+    }
+
     @FunctionalInterface
     private interface HeaderWriter {
       void write(@NotNull SvnServerWriter writer) throws IOException, SVNException;
@@ -780,7 +847,7 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
     private static class HeaderEntry implements AutoCloseable {
 
       @NotNull
-      private final SessionContext context;
+      private final DeltaOutput output;
       @Nullable
       private final GitFile file;
       @NotNull
@@ -790,8 +857,8 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
       private final Deque<HeaderEntry> pathStack;
       private boolean writed = false;
 
-      private HeaderEntry(@NotNull SessionContext context, @Nullable GitFile file, @NotNull HeaderWriter beginWriter, @NotNull HeaderWriter endWriter, @NotNull Deque<HeaderEntry> pathStack) {
-        this.context = context;
+      private HeaderEntry(@NotNull DeltaOutput output, @Nullable GitFile file, @NotNull HeaderWriter beginWriter, @NotNull HeaderWriter endWriter, @NotNull Deque<HeaderEntry> pathStack) {
+        this.output = output;
         this.file = file;
         this.beginWriter = beginWriter;
         this.endWriter = endWriter;
@@ -802,14 +869,14 @@ public final class DeltaCmd extends BaseCmd<DeltaParams> {
       public void write() throws IOException, SVNException {
         if (!writed) {
           writed = true;
-          beginWriter.write(context.getWriter());
+          beginWriter.write(output.getWriter());
         }
       }
 
       @Override
       public void close() throws IOException, SVNException {
         if (writed) {
-          endWriter.write(context.getWriter());
+          endWriter.write(output.getWriter());
         }
         pathStack.removeLast();
       }
@@ -0,0 +1,196 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tmatesoft.svn.core.SVNException;
+import svnserver.parser.SvnServerWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+
+/**
+ * Ordered output of editor drive with file deltas computed ahead of time.
+ * <p>
+ * File deltas are computed by worker pool while tree walk continues. Commands produced after
+ * pending delta are buffered until delta is ready, so client receives them in original order.
+ * Total size of buffered data is bounded by look-ahead limit.
+ */
+final class DeltaOutput {
+  // Minimal accounted size of single delta, to limit number of pending tiny files.
+  private static final long MIN_DELTA_WEIGHT = 1024;
+  private static final int SEGMENT_WRITER_BUFFER = 4096;
+
+  @FunctionalInterface
+  interface DeltaWriter {
+    void write(@NotNull SvnServerWriter writer) throws IOException, SVNException;
+  }
+
+  @NotNull
+  private final SvnServerWriter writer;
+  @Nullable
+  private final ExecutorService executor;
+  private final long lookahead;
+  @NotNull
+  private final Deque<Chunk> chunks = new ArrayDeque<>();
+  private long chunksSize;
+  // Commands written after last pending chunk.
+  @Nullable
+  private Buffer segment;
+  @Nullable
+  private SvnServerWriter segmentWriter;
+
+  /**
+   * @param executor  Worker pool for delta computation. If null, deltas are computed inline.
+   * @param lookahead Maximum size of buffered data, in bytes.
+   */
+  DeltaOutput(@NotNull SvnServerWriter writer, @Nullable ExecutorService executor, long lookahead) {
+    this.writer = writer;
+    this.executor = lookahead > 0 ? executor : null;
+    this.lookahead = lookahead;
+  }
+
+  /**
+   * Writer for next top-level command.
+   */
+  @NotNull
+  SvnServerWriter getWriter() throws IOException, SVNException {
+    while (!chunks.isEmpty() && chunks.peekFirst().result.isDone())
+      writeFirst();
+
+    if (!chunks.isEmpty()) {
+      if (segment == null) {
+        segment = new Buffer();
+        segmentWriter = new SvnServerWriter(segment, SEGMENT_WRITER_BUFFER);
+      }
+      while (!chunks.isEmpty() && chunksSize + segment.size() > lookahead)
+        writeFirst();
+    }
+
+    if (chunks.isEmpty()) {
+      writeSegment();
+      return writer;
+    }
+    //noinspection ConstantConditions
+    return segmentWriter;
+  }
+
+  /**
+   * Write file delta. Delta is computed by worker pool if it fits into look-ahead window.
+   *
+   * @param size Expected delta size.
+   */
+  void writeDelta(@NotNull DeltaWriter delta, long size) throws IOException, SVNException {
+    if (executor == null || size > lookahead) {
+      flush();
+      delta.write(writer);
+      return;
+    }
+
+    final Future<Buffer> result;
+    try {
+      result = executor.submit(() -> {
+        final Buffer buffer = new Buffer();
+        try (SvnServerWriter deltaWriter = new SvnServerWriter(buffer, SEGMENT_WRITER_BUFFER)) {
+          delta.write(deltaWriter);
+        }
+        return buffer;
+      });
+    } catch (RejectedExecutionException e) {
+      flush();
+      delta.write(writer);
+      return;
+    }
+
+    if (segment != null) {
+      chunks.addLast(new Chunk(CompletableFuture.completedFuture(segment), segment.size()));
+      chunksSize += segment.size();
+      segment = null;
+      segmentWriter = null;
+    }
+    final long weight = Math.max(size, MIN_DELTA_WEIGHT);
+    chunks.addLast(new Chunk(result, weight));
+    chunksSize += weight;
+  }
+
+  /**
+   * Wait for all pending deltas and write buffered data.
+   */
+  void flush() throws IOException, SVNException {
+    while (!chunks.isEmpty())
+      writeFirst();
+
+    writeSegment();
+  }
+
+  /**
+   * Drop pending data after failure.
+   */
+  void cancel() {
+    for (Chunk chunk : chunks)
+      chunk.result.cancel(true);
+
+    chunks.clear();
+    chunksSize = 0;
+    segment = null;
+    segmentWriter = null;
+  }
+
+  private void writeSegment() throws IOException {
+    if (segment != null) {
+      segment.writeTo(writer);
+      segment = null;
+      segmentWriter = null;
+    }
+  }
+
+  private void writeFirst() throws IOException, SVNException {
+    final Chunk chunk = chunks.removeFirst();
+    chunksSize -= chunk.weight;
+    final Buffer buffer;
+    try {
+      buffer = chunk.result.get();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof SVNException)
+        throw (SVNException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IllegalStateException(cause);
+    }
+    buffer.writeTo(writer);
+  }
+
+  private static final class Chunk {
+    @NotNull
+    private final Future<Buffer> result;
+    private final long weight;
+
+    private Chunk(@NotNull Future<Buffer> result, long weight) {
+      this.result = result;
+      this.weight = weight;
+    }
+  }
+
+  private static final class Buffer extends ByteArrayOutputStream {
+    void writeTo(@NotNull SvnServerWriter writer) throws IOException {
+      writer.raw(buf, 0, count);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command;
+
+import org.jetbrains.annotations.NotNull;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import svnserver.parser.SvnServerWriter;
+import svnserver.server.SessionContext;
+
+import java.io.IOException;
+
+/**
+ * <pre>
+ *   get-deleted-rev
+ *     params:   ( path:string peg-rev:number end-rev:number )
+ *     response: ( deleted-rev:number )
+ * </pre>
+ * If path was not deleted, SVN_ERR_ENTRY_MISSING_REVISION error is returned, same as svnserve does.
+ */
+public final class GetDeletedRevCmd extends BaseCmd<GetDeletedRevCmd.Params> {
+  @NotNull
+  @Override
+  public Class<Params> getArguments() {
+    return Params.class;
+  }
+
+  @Override
+  protected void processCommand(@NotNull SessionContext context, @NotNull Params args) throws IOException, SVNException {
+    final int head = context.getBranch().getLatestRevision().getId();
+    // Reversed range is swapped, same as svn_repos_deleted_rev does
+    final int startRev = Math.min(args.pegRev, args.endRev);
+    final int endRev = Math.max(args.pegRev, args.endRev);
+    if (endRev > head)
+      throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision " + endRev));
+
+    final String fullPath = context.getRepositoryPath(args.path);
+    final int deletedRev = context.getBranch().getRemovedRevision(fullPath, startRev);
+    if (deletedRev < 0 || deletedRev > endRev)
+      throw new SVNException(SVNErrorMessage.create(SVNErrorCode.ENTRY_MISSING_REVISION, "Path '" + fullPath + "' was not deleted in r" + startRev + "-" + endRev));
+
+    final SvnServerWriter writer = context.getWriter();
+    writer
+        .listBegin()
+        .word("success")
+        .listBegin()
+        .number(deletedRev)
+        .listEnd()
+        .listEnd();
+  }
+
+  @Override
+  protected void permissionCheck(@NotNull SessionContext context, @NotNull Params args) throws IOException, SVNException {
+    context.checkRead(context.getRepositoryPath(args.path));
+  }
+
+  public static class Params {
+    @NotNull
+    private final String path;
+    private final int pegRev;
+    private final int endRev;
+
+    public Params(@NotNull String path, int pegRev, int endRev) {
+      this.path = path;
+      this.pegRev = pegRev;
+      this.endRev = endRev;
+    }
+  }
+}
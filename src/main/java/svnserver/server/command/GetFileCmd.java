@@ -77,6 +77,7 @@ public final class GetFileCmd extends BaseCmd<GetFileCmd.Params> {
         .listEnd();
     if (args.wantContents) {
       byte[] buffer = new byte[WINDOW_SIZE];
+      writer.cork();
       try (final InputStream stream = fileInfo.openStream()) {
         while (true) {
           int read = StreamHelper.readFully(stream, buffer, 0, buffer.length);
@@ -85,6 +86,8 @@ public final class GetFileCmd extends BaseCmd<GetFileCmd.Params> {
             break;
           }
         }
+      } finally {
+        writer.uncork();
       }
       writer
           .listBegin()
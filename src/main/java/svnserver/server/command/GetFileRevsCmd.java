@@ -25,7 +25,6 @@ import svnserver.repository.git.GitRepository;
 import svnserver.repository.git.GitRevision;
 import svnserver.server.SessionContext;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -61,6 +60,7 @@ public final class GetFileRevsCmd extends BaseCmd<GetFileRevsCmd.Params> {
   @Override
   protected void processCommand(@NotNull SessionContext context, @NotNull Params args) throws IOException, SVNException {
     final SvnServerWriter writer = context.getWriter();
+    writer.cork();
     try {
 
       int startRev = getRevisionOrLatest(args.startRev, context);
@@ -117,10 +117,10 @@ public final class GetFileRevsCmd extends BaseCmd<GetFileRevsCmd.Params> {
 
             @Override
             public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
-              try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-                diffWindow.writeTo(stream, writeHeader, compression);
+              try {
+                final boolean header = writeHeader;
                 writeHeader = false;
-                writer.binary(stream.toByteArray());
+                writer.binary(stream -> diffWindow.writeTo(stream, header, compression));
               } catch (IOException e) {
                 throw new SVNException(SVNErrorMessage.create(SVNErrorCode.IO_ERROR));
               }
@@ -141,9 +141,13 @@ public final class GetFileRevsCmd extends BaseCmd<GetFileRevsCmd.Params> {
         }
       }
     } finally {
-      // Yes, this is ugly. But otherwise, client hangs waiting forever.
-      writer
-          .word("done");
+      try {
+        // Yes, this is ugly. But otherwise, client hangs waiting forever.
+        writer
+            .word("done");
+      } finally {
+        writer.uncork();
+      }
     }
 
     writer
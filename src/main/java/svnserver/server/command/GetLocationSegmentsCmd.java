@@ -13,6 +13,7 @@ import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
 import svnserver.parser.SvnServerWriter;
 import svnserver.repository.VcsCopyFrom;
+import svnserver.repository.git.GitBranch;
 import svnserver.server.SessionContext;
 
 import java.io.IOException;
@@ -45,23 +46,15 @@ public final class GetLocationSegmentsCmd extends BaseCmd<GetLocationSegmentsCmd
       writer.word("done");
       throw new SVNException(SVNErrorMessage.create(SVNErrorCode.UNKNOWN, "Invalid revision range: peg: " + pegRev + ", start: " + startRev + ", end " + endRev));
     }
+    final GitBranch branch = context.getBranch();
     String fullPath = context.getRepositoryPath(args.path);
-    final int lastChange = context.getBranch().getLastChange(fullPath, pegRev);
-    if (lastChange < 0) {
+    int minRev = branch.getCreatedRevision(fullPath, pegRev);
+    if (minRev < 0) {
       writer.word("done");
       throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NOT_FOUND, "File not found: " + fullPath + "@" + pegRev));
     }
     int maxRev = pegRev;
     while (maxRev >= endRev) {
-      int minRev = maxRev;
-      while (true) {
-        int change = context.getBranch().getLastChange(fullPath, minRev - 1);
-        if (change >= 0) {
-          minRev = change;
-        } else {
-          break;
-        }
-      }
       if (minRev <= startRev) {
         writer
             .listBegin()
@@ -70,12 +63,15 @@ public final class GetLocationSegmentsCmd extends BaseCmd<GetLocationSegmentsCmd
             .listBegin().string(fullPath).listEnd()
             .listEnd();
       }
-      final VcsCopyFrom copyFrom = context.getBranch().getRevisionInfo(minRev).getCopyFrom(fullPath);
+      final VcsCopyFrom copyFrom = branch.getCopyFrom(minRev, fullPath);
       if (copyFrom == null || !context.canRead(copyFrom.getPath()))
         break;
 
       maxRev = copyFrom.getRevision();
       fullPath = copyFrom.getPath();
+      minRev = branch.getCreatedRevision(fullPath, maxRev);
+      if (minRev < 0)
+        break;
     }
     writer
         .word("done");
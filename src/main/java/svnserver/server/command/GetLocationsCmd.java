@@ -13,6 +13,7 @@ import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
 import svnserver.parser.SvnServerWriter;
 import svnserver.repository.VcsCopyFrom;
+import svnserver.repository.git.GitBranch;
 import svnserver.server.SessionContext;
 
 import java.io.IOException;
@@ -42,9 +43,10 @@ public final class GetLocationsCmd extends BaseCmd<GetLocationsCmd.Params> {
 
     final int[] sortedRevs = Arrays.copyOf(args.revs, args.revs.length);
     Arrays.sort(sortedRevs);
+    final GitBranch branch = context.getBranch();
     String fullPath = context.getRepositoryPath(args.path);
-    int lastChange = context.getBranch().getLastChange(fullPath, args.pegRev);
-    if (lastChange < 0) {
+    int created = branch.getCreatedRevision(fullPath, args.pegRev);
+    if (created < 0) {
       writer.word("done");
       throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NOT_FOUND, "File not found: " + fullPath + "@" + args.pegRev));
     }
@@ -54,32 +56,27 @@ public final class GetLocationsCmd extends BaseCmd<GetLocationsCmd.Params> {
         writer.word("done");
         throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NOT_FOUND, "File not found: " + fullPath + "@" + args.pegRev + " at revision " + revision));
       }
-      while ((revision < lastChange) && (lastChange >= 0)) {
-        int change = context.getBranch().getLastChange(fullPath, lastChange - 1);
-        if (change >= 0) {
-          lastChange = change;
-          continue;
-        }
-        final VcsCopyFrom copyFrom = context.getBranch().getRevisionInfo(lastChange).getCopyFrom(fullPath);
+      while (revision < created) {
+        final VcsCopyFrom copyFrom = branch.getCopyFrom(created, fullPath);
         if (copyFrom == null || !context.canRead(copyFrom.getPath())) {
-          lastChange = -1;
+          created = -1;
           break;
         }
 
-        lastChange = copyFrom.getRevision();
         fullPath = copyFrom.getPath();
+        created = branch.getCreatedRevision(fullPath, copyFrom.getRevision());
+        if (created < 0)
+          break;
       }
 
-      if (lastChange < 0)
+      if (created < 0)
         break;
 
-      if (revision >= lastChange) {
-        writer
-            .listBegin()
-            .number(revision)
-            .string(fullPath)
-            .listEnd();
-      }
+      writer
+          .listBegin()
+          .number(revision)
+          .string(fullPath)
+          .listEnd();
     }
     writer
         .word("done");
@@ -11,14 +11,17 @@ import org.jetbrains.annotations.NotNull;
 import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
 import svnserver.parser.SvnServerWriter;
 import svnserver.repository.VcsCopyFrom;
-import svnserver.repository.git.GitLogEntry;
+import svnserver.repository.git.GitBranch;
 import svnserver.repository.git.GitRevision;
+import svnserver.repository.git.cache.CacheLogEntry;
 import svnserver.server.SessionContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -50,6 +53,8 @@ import java.util.Map;
  * @author a.navrotskiy
  */
 public final class LogCmd extends BaseCmd<LogCmd.Params> {
+  private static final int FLUSH_ENTRIES = 32;
+
   @NotNull
   @Override
   public Class<Params> getArguments() {
@@ -68,71 +73,84 @@ public final class LogCmd extends BaseCmd<LogCmd.Params> {
       throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision " + Math.max(startRev, endRev)));
     }
 
-    final List<GitRevision> log;
-    if (startRev >= endRev) {
-      log = getLog(context, args, startRev, endRev, args.limit);
-    } else {
-      final List<GitRevision> logReverse = getLog(context, args, endRev, startRev, -1);
-      final int minIndex = args.limit <= 0 ? 0 : Math.max(0, logReverse.size() - args.limit);
-      log = new ArrayList<>(logReverse.size() - minIndex);
-      for (int i = logReverse.size() - 1; i >= minIndex; i--) {
-        log.add(logReverse.get(i));
+    writer.cork();
+    try {
+      final LogWalker walker = new LogWalker(context, args, Math.max(startRev, endRev), Math.min(startRev, endRev));
+      if (startRev >= endRev) {
+        int count = 0;
+        for (int revision = walker.next(); revision >= 0; revision = walker.next()) {
+          writeLogEntry(context, args, revision, ++count);
+          if (count == args.limit) break;
+        }
+      } else {
+        // Walk goes from newest revision to oldest: keep only oldest revisions, without loading them
+        final int[] revisions = walker.collect(args.limit);
+        for (int i = revisions.length - 1; i >= 0; i--)
+          writeLogEntry(context, args, revisions[i], revisions.length - i);
       }
-    }
-    for (GitRevision revisionInfo : log) {
+      writer
+          .word("done");
       writer
           .listBegin()
-          .listBegin();
-      if (args.changedPaths) {
-        final Map<String, GitLogEntry> changes = revisionInfo.getChanges();
-        writer.separator();
-        for (Map.Entry<String, GitLogEntry> entry : changes.entrySet()) {
-          final GitLogEntry logEntry = entry.getValue();
-          final char change = logEntry.getChange();
-          if (change == 0) continue;
-          writer
-              .listBegin()
-              .string(entry.getKey()) // Path
-              .word(change)
-              .listBegin();
-          final VcsCopyFrom copyFrom = logEntry.getCopyFrom();
-          if (copyFrom != null) {
-            writer.string(copyFrom.getPath());
-            writer.number(copyFrom.getRevision());
-          }
-          writer.listEnd()
-              .listBegin()
-              .string(logEntry.getKind().toString())
-              .bool(logEntry.isContentModified()) // text-mods
-              .bool(logEntry.isPropertyModified()) // prop-mods
-              .listEnd()
-              .listEnd()
-              .separator();
-        }
-      }
-
-      final Map<String, String> revProps = revisionInfo.getProperties(false);
-
-      writer.listEnd()
-          .number(revisionInfo.getId())
-          .stringNullable(revisionInfo.getAuthor())
-          .stringNullable(revisionInfo.getDateString())
-          .stringNullable(revisionInfo.getLog())
-          .bool(false)
-          .bool(false)
-          .number(revProps.size())
-          .writeMap(revProps)
+          .word("success")
+          .listBegin()
           .listEnd()
-          .separator();
+          .listEnd();
+    } finally {
+      writer.uncork();
     }
-    writer
-        .word("done");
+  }
+
+  /**
+   * @param count Number of entry in response, starting from 1.
+   */
+  private static void writeLogEntry(@NotNull SessionContext context, @NotNull Params args, int revision, int count) throws IOException, SVNException {
+    final SvnServerWriter writer = context.getWriter();
+    final GitRevision revisionInfo = context.getBranch().getRevisionInfo(revision);
     writer
         .listBegin()
-        .word("success")
-        .listBegin()
+        .listBegin();
+    if (args.changedPaths) {
+      writer.separator();
+      for (CacheLogEntry logEntry : revisionInfo.getLogEntries()) {
+        writer
+            .listBegin()
+            .string(logEntry.getPath())
+            .word(logEntry.getChange())
+            .listBegin();
+        final VcsCopyFrom copyFrom = logEntry.getChange() == SVNLogEntryPath.TYPE_DELETED ? null : revisionInfo.getCopyFrom(logEntry.getPath());
+        if (copyFrom != null) {
+          writer.string(copyFrom.getPath());
+          writer.number(copyFrom.getRevision());
+        }
+        writer.listEnd()
+            .listBegin()
+            .string(logEntry.getKind().toString())
+            .bool(logEntry.isContentModified()) // text-mods
+            .bool(logEntry.isPropertyModified()) // prop-mods
+            .listEnd()
+            .listEnd()
+            .separator();
+      }
+    }
+
+    final Map<String, String> revProps = revisionInfo.getProperties(false);
+
+    writer.listEnd()
+        .number(revisionInfo.getId())
+        .stringNullable(revisionInfo.getAuthor())
+        .stringNullable(revisionInfo.getDateString())
+        .stringNullable(revisionInfo.getLog())
+        .bool(false)
+        .bool(false)
+        .number(revProps.size())
+        .writeMap(revProps)
         .listEnd()
-        .listEnd();
+        .separator();
+
+    // Let client show first entries while rest of log is collected
+    if (count == 1 || count % FLUSH_ENTRIES == 0)
+      writer.flush();
   }
 
   @Override
@@ -142,42 +160,58 @@ public final class LogCmd extends BaseCmd<LogCmd.Params> {
   }
 
   /**
-   * TODO: This method is very similar to GetFileRevsCmd#walkFileHistory. Maybe they can be combined?
+   * Walks revisions that changed target paths from newest to oldest, following copies.
+   * <p>
+   * Uses only path history index and revision renames, so revisions are not loaded during walk.
+   * <p>
+   * TODO: This class is very similar to GetFileRevsCmd#walkFileHistory. Maybe they can be combined?
    */
-  @NotNull
-  private List<GitRevision> getLog(@NotNull SessionContext context, @NotNull Params args, int endRev, int startRev, int limit) throws SVNException {
-    final List<VcsCopyFrom> targetPaths = new ArrayList<>();
-    int revision = -1;
-    for (String target : args.targetPath) {
-      final String fullTargetPath = context.getRepositoryPath(target);
-      final int lastChange = context.getBranch().getLastChange(fullTargetPath, endRev);
-      if (lastChange >= startRev) {
-        targetPaths.add(new VcsCopyFrom(lastChange, fullTargetPath));
-        revision = Math.max(revision, lastChange);
+  private static final class LogWalker {
+    @NotNull
+    private final GitBranch branch;
+    private final boolean strictNode;
+    private final int startRev;
+    @NotNull
+    private final List<VcsCopyFrom> targetPaths = new ArrayList<>();
+    private int revision = -1;
+
+    private LogWalker(@NotNull SessionContext context, @NotNull Params args, int endRev, int startRev) throws SVNException {
+      this.branch = context.getBranch();
+      this.strictNode = args.strictNode;
+      this.startRev = startRev;
+      for (String target : args.targetPath) {
+        final String fullTargetPath = context.getRepositoryPath(target);
+        final int lastChange = branch.getLastChange(fullTargetPath, endRev);
+        if (lastChange >= startRev) {
+          targetPaths.add(new VcsCopyFrom(lastChange, fullTargetPath));
+          revision = Math.max(revision, lastChange);
+        }
       }
     }
-    final List<GitRevision> result = new ArrayList<>();
-    int logLimit = limit;
-    while (revision >= startRev) {
-      final GitRevision revisionInfo = context.getBranch().getRevisionInfo(revision);
-      result.add(revisionInfo);
-      if (--logLimit == 0) break;
 
+    /**
+     * @return Next revision or -1 if there are no more revisions.
+     */
+    private int next() {
+      if (revision < startRev)
+        return -1;
+
+      final int result = revision;
       int nextRevision = -1;
       final ListIterator<VcsCopyFrom> iter = targetPaths.listIterator();
       while (iter.hasNext()) {
         final VcsCopyFrom entry = iter.next();
-        if (revision == entry.getRevision()) {
-          final int lastChange = context.getBranch().getLastChange(entry.getPath(), revision - 1);
-          if (lastChange >= revision) {
+        if (result == entry.getRevision()) {
+          final int lastChange = branch.getLastChange(entry.getPath(), result - 1);
+          if (lastChange >= result) {
             throw new IllegalStateException();
           }
           if (lastChange < 0) {
-            if (args.strictNode) {
+            if (strictNode) {
               iter.remove();
               continue;
             }
-            final VcsCopyFrom copyFrom = revisionInfo.getCopyFrom(entry.getPath());
+            final VcsCopyFrom copyFrom = branch.getCopyFrom(result, entry.getPath());
             if (copyFrom != null) {
               iter.set(copyFrom);
               nextRevision = Math.max(nextRevision, copyFrom.getRevision());
@@ -191,8 +225,35 @@ public final class LogCmd extends BaseCmd<LogCmd.Params> {
         }
       }
       revision = nextRevision;
+      return result;
+    }
+
+    /**
+     * Walk all remaining revisions.
+     *
+     * @param limit Maximum number of revisions to return, zero or negative for unlimited.
+     * @return Oldest revisions up to limit, from newest to oldest.
+     */
+    @NotNull
+    private int[] collect(int limit) {
+      // Ring buffer of last found revisions
+      int[] found = new int[limit > 0 ? Math.min(limit, 64) : 64];
+      int total = 0;
+      for (int rev = next(); rev >= 0; rev = next()) {
+        if (total == found.length && (limit <= 0 || total < limit))
+          found = Arrays.copyOf(found, limit > 0 ? Math.min(limit, total * 2) : total * 2);
+        found[total % found.length] = rev;
+        total++;
+      }
+      if (total <= found.length)
+        return Arrays.copyOf(found, total);
+
+      final int[] result = new int[found.length];
+      final int first = total % found.length;
+      System.arraycopy(found, first, result, 0, found.length - first);
+      System.arraycopy(found, 0, result, found.length - first, first);
+      return result;
     }
-    return result;
   }
 
   public static class Params {
@@ -39,14 +39,18 @@ public final class ReplayCmd extends BaseCmd<ReplayCmd.Params> {
 
   @Override
   protected void processCommand(@NotNull SessionContext context, @NotNull Params args) throws IOException, SVNException {
-    replayRevision(context, args.revision, args.lowRevision, args.sendDeltas);
-
     final SvnServerWriter writer = context.getWriter();
-    writer
-        .listBegin()
-        .word("success")
-        .listBegin().listEnd()
-        .listEnd();
+    writer.cork();
+    try {
+      replayRevision(context, args.revision, args.lowRevision, args.sendDeltas);
+      writer
+          .listBegin()
+          .word("success")
+          .listBegin().listEnd()
+          .listEnd();
+    } finally {
+      writer.uncork();
+    }
   }
 
   @Override
@@ -48,20 +48,25 @@ public final class ReplayRangeCmd extends BaseCmd<ReplayRangeCmd.Params> {
       throw new SVNException(SVNErrorMessage.create(SVNErrorCode.UNKNOWN, "Invalid revision range: start: " + args.startRev + ", end " + args.endRev));
     }
     final SvnServerWriter writer = context.getWriter();
-    for (int revision = args.startRev; revision <= args.endRev; revision++) {
-      final GitRevision revisionInfo = context.getBranch().getRevisionInfo(revision);
+    writer.cork();
+    try {
+      for (int revision = args.startRev; revision <= args.endRev; revision++) {
+        final GitRevision revisionInfo = context.getBranch().getRevisionInfo(revision);
+        writer
+            .listBegin()
+            .word("revprops")
+            .writeMap(revisionInfo.getProperties(true))
+            .listEnd();
+        ReplayCmd.replayRevision(context, revision, args.lowRevision, args.sendDeltas);
+      }
       writer
           .listBegin()
-          .word("revprops")
-          .writeMap(revisionInfo.getProperties(true))
+          .word("success")
+          .listBegin().listEnd()
           .listEnd();
-      ReplayCmd.replayRevision(context, revision, args.lowRevision, args.sendDeltas);
+    } finally {
+      writer.uncork();
     }
-    writer
-        .listBegin()
-        .word("success")
-        .listBegin().listEnd()
-        .listEnd();
   }
 
   @Override
@@ -39,12 +39,14 @@ import svnserver.repository.VcsAccess;
 import svnserver.repository.git.EmptyDirsSupport;
 import svnserver.repository.git.GitRepository;
 import svnserver.repository.git.push.GitPushEmbedded;
+import svnserver.server.ConnectionStats;
 import svnserver.server.SvnServer;
 import svnserver.tester.SvnTester;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -94,6 +96,7 @@ public final class SvnTestServer implements SvnTester {
                         boolean anonymousRead,
                         @NotNull LfsMode lfsMode,
                         @NotNull EmptyDirsSupport emptyDirs,
+                        @Nullable Consumer<Config> configCustomizer,
                         @NotNull SharedConfig... shared) throws Exception {
     SVNFileUtil.setSleepForTimestamp(false);
     this.repository = repository;
@@ -146,6 +149,8 @@ public final class SvnTestServer implements SvnTester {
     }
 
     Collections.addAll(config.getShared(), shared);
+    if (configCustomizer != null)
+      configCustomizer.accept(config);
 
     server = new SvnServer(tempDirectory, config);
     server.start();
@@ -214,7 +219,7 @@ public final class SvnTestServer implements SvnTester {
 
   @NotNull
   public static SvnTestServer createEmpty(@Nullable UserDBConfig userDBConfig, @Nullable Function<Path, RepositoryMappingConfig> mappingConfigCreator, boolean anonymousRead, @NotNull LfsMode lfsMode, @NotNull EmptyDirsSupport emptyDirs, @NotNull SharedConfig... shared) throws Exception {
-    return new SvnTestServer(TestHelper.emptyRepository(), Constants.MASTER, "", false, userDBConfig, mappingConfigCreator, anonymousRead, lfsMode, emptyDirs, shared);
+    return new SvnTestServer(TestHelper.emptyRepository(), Constants.MASTER, "", false, userDBConfig, mappingConfigCreator, anonymousRead, lfsMode, emptyDirs, null, shared);
   }
 
   @NotNull
@@ -227,6 +232,11 @@ public final class SvnTestServer implements SvnTester {
     return createEmpty(userDBConfig, null, anonymousRead, lfsMode, EmptyDirsSupport.Disabled, shared);
   }
 
+  @NotNull
+  public static SvnTestServer createEmpty(@NotNull Consumer<Config> configCustomizer) throws Exception {
+    return new SvnTestServer(TestHelper.emptyRepository(), Constants.MASTER, "", false, null, null, false, LfsMode.Memory, EmptyDirsSupport.Disabled, configCustomizer);
+  }
+
   @NotNull
   public static SvnTestServer createEmpty(@NotNull EmptyDirsSupport emptyDirs) throws Exception {
     return createEmpty(null, false, LfsMode.Memory, emptyDirs);
@@ -239,7 +249,7 @@ public final class SvnTestServer implements SvnTester {
 
   @NotNull
   public static SvnTestServer createMasterRepository() throws Exception {
-    return new SvnTestServer(new FileRepository(TestHelper.findGitPath().toFile()), null, "", true, null, null, true, LfsMode.Memory, EmptyDirsSupport.Disabled);
+    return new SvnTestServer(new FileRepository(TestHelper.findGitPath().toFile()), null, "", true, null, null, true, LfsMode.Memory, EmptyDirsSupport.Disabled, null);
   }
 
   @NotNull
@@ -300,6 +310,11 @@ public final class SvnTestServer implements SvnTester {
     return server.getSharedContext();
   }
 
+  @NotNull
+  public ConnectionStats getConnectionStats() {
+    return server.getConnectionStats();
+  }
+
   public enum LfsMode {
     None,
     Memory,
@@ -9,12 +9,22 @@ package svnserver;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.CharSequenceInputStream;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
 import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
-import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import svnserver.config.GitRepositoryConfig;
+import svnserver.context.LocalContext;
+import svnserver.context.SharedContext;
+import svnserver.repository.git.EmptyDirsSupport;
+import svnserver.repository.git.GitRepository;
+import svnserver.repository.git.push.GitPushEmbedded;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -22,6 +32,9 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
 
 /**
  * Common test functions.
@@ -67,9 +80,67 @@ public final class TestHelper {
   }
 
   @NotNull
-  static Repository emptyRepository() throws IOException {
+  public static Repository emptyRepository() throws IOException {
     final Repository repository = new InMemoryRepository(new DfsRepositoryDescription(null));
     repository.create();
     return repository;
   }
+
+  /**
+   * Open repository with rename detection and without LFS.
+   */
+  @NotNull
+  public static GitRepository createRepository(@NotNull SharedContext shared, @NotNull Repository git, @NotNull String... branches) throws IOException {
+    final LocalContext local = new LocalContext(shared, "test");
+    return GitRepositoryConfig.createRepository(
+        local,
+        null,
+        git,
+        new GitPushEmbedded(local, null, false),
+        new HashSet<>(Arrays.asList(branches)),
+        true,
+        EmptyDirsSupport.Disabled
+    );
+  }
+
+  /**
+   * Create commit with given files in master branch.
+   *
+   * @param files Content of files by path.
+   */
+  @NotNull
+  public static ObjectId addCommit(@NotNull Repository git, @Nullable ObjectId parent, @NotNull Map<String, String> files) throws IOException {
+    final ObjectId commitId;
+    try (ObjectInserter inserter = git.newObjectInserter()) {
+      final DirCache cache = DirCache.newInCore();
+      final DirCacheBuilder builder = cache.builder();
+      for (Map.Entry<String, String> file : files.entrySet()) {
+        final DirCacheEntry entry = new DirCacheEntry(file.getKey());
+        entry.setFileMode(FileMode.REGULAR_FILE);
+        entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, file.getValue().getBytes(StandardCharsets.UTF_8)));
+        builder.add(entry);
+      }
+      builder.finish();
+
+      final CommitBuilder commit = new CommitBuilder();
+      final PersonIdent ident = new PersonIdent("Test", "test@example.com");
+      commit.setAuthor(ident);
+      commit.setCommitter(ident);
+      commit.setMessage("Commit");
+      commit.setTreeId(cache.writeTree(inserter));
+      if (parent != null)
+        commit.setParentId(parent);
+      commitId = inserter.insert(commit);
+      inserter.flush();
+    }
+    updateMaster(git, commitId);
+    return commitId;
+  }
+
+  public static void updateMaster(@NotNull Repository git, @NotNull ObjectId commitId) throws IOException {
+    final RefUpdate refUpdate = git.updateRef(Constants.R_HEADS + Constants.MASTER);
+    refUpdate.setNewObjectId(commitId);
+    refUpdate.setForceUpdate(true);
+    refUpdate.update();
+  }
 }
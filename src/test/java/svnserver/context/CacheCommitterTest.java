@@ -0,0 +1,150 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.context;
+
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.TestHelper;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Group commit test.
+ */
+public final class CacheCommitterTest {
+  /**
+   * Concurrent commits within delay are written by single commit.
+   */
+  @Test(timeOut = 30_000)
+  public void groupCommit() throws Exception {
+    final int threads = 16;
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final DB db = openDB(basePath);
+      final CacheCommitter committer = new CacheCommitter(500, 1000);
+      final CyclicBarrier barrier = new CyclicBarrier(threads);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; ++i) {
+        final String key = "key" + i;
+        futures.add(executor.submit(() -> {
+          barrier.await();
+          map(db).put(key, "value");
+          committer.commit(db);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures)
+        future.get();
+      Assert.assertTrue(committer.getCommits() < threads / 2, "commits: " + committer.getCommits());
+
+      // Committed changes survive rollback
+      db.rollback();
+      Assert.assertEquals(map(db).size(), threads);
+      committer.close();
+      db.close();
+    } finally {
+      executor.shutdownNow();
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  /**
+   * Full batch is committed without waiting for delay.
+   */
+  @Test(timeOut = 30_000)
+  public void fullBatch() throws Exception {
+    final int threads = 4;
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final DB db = openDB(basePath);
+      final CacheCommitter committer = new CacheCommitter(TimeUnit.HOURS.toMillis(1), threads);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; ++i) {
+        final String key = "key" + i;
+        futures.add(executor.submit(() -> {
+          map(db).put(key, "value");
+          committer.commit(db);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures)
+        future.get();
+      Assert.assertEquals(committer.getCommits(), 1);
+      committer.close();
+      db.close();
+    } finally {
+      executor.shutdownNow();
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  /**
+   * Background commits are written on close.
+   */
+  @Test
+  public void commitLater() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try {
+      final DB db = openDB(basePath);
+      final CacheCommitter committer = new CacheCommitter(0, 1);
+      map(db).put("key", "value");
+      committer.commitLater(db);
+      Assert.assertEquals(committer.getCommits(), 0);
+      committer.close();
+      Assert.assertEquals(committer.getCommits(), 1);
+      db.rollback();
+      Assert.assertEquals(map(db).get("key"), "value");
+      db.close();
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  /**
+   * Commits requested after close are done by requesting thread.
+   */
+  @Test(timeOut = 30_000)
+  public void afterClose() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try {
+      final DB db = openDB(basePath);
+      final CacheCommitter committer = new CacheCommitter(TimeUnit.HOURS.toMillis(1), 1000);
+      committer.close();
+      map(db).put("key", "value");
+      committer.commitLater(db);
+      Assert.assertEquals(committer.getCommits(), 1);
+      committer.commit(db);
+      Assert.assertEquals(committer.getCommits(), 2);
+      db.rollback();
+      Assert.assertEquals(map(db).get("key"), "value");
+      db.close();
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  @NotNull
+  private static DB openDB(@NotNull Path basePath) {
+    return DBMaker.fileDB(basePath.resolve("cache.mapdb").toFile()).transactionEnable().make();
+  }
+
+  @NotNull
+  private static Map<String, String> map(@NotNull DB db) {
+    return db.hashMap("test", Serializer.STRING, Serializer.STRING).createOrOpen();
+  }
+}
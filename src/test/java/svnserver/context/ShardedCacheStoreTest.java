@@ -0,0 +1,139 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.context;
+
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.Atomic;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.TestHelper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Per-repository cache databases test.
+ */
+public final class ShardedCacheStoreTest {
+  @Test
+  public void separateDatabases() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try {
+      final Path shardsPath = basePath.resolve("shards");
+      try (SharedContext shared = SharedContext.create(basePath, "test", createStore(basePath), Collections.emptyList())) {
+        final LocalContext first = new LocalContext(shared, "group/first");
+        final LocalContext second = new LocalContext(shared, "second");
+        Assert.assertNotSame(first.getCacheDB(), shared.getCacheDB());
+        Assert.assertNotSame(first.getCacheDB(), second.getCacheDB());
+        Assert.assertSame(first.getCacheDB(), first.getCacheDB());
+
+        // Commit of one repository does not touch others
+        map(first.getCacheDB()).put("key", "first");
+        first.getCacheDB().commit();
+        map(second.getCacheDB()).put("key", "second");
+        Assert.assertNull(map(shared.getCacheDB()).get("key"));
+
+        // Same repository opened twice shares database
+        final LocalContext again = new LocalContext(shared, "group/first");
+        Assert.assertSame(again.getCacheDB(), first.getCacheDB());
+        first.close();
+        Assert.assertFalse(again.getCacheDB().isClosed());
+        final DB closed = again.getCacheDB();
+        again.close();
+        Assert.assertTrue(closed.isClosed());
+        // Closed context does not reopen database
+        Assert.expectThrows(IllegalStateException.class, again::getCacheDB);
+
+        // Database in use is deleted after release
+        final LocalContext reopened = new LocalContext(shared, "group/first");
+        Assert.assertEquals(map(reopened.getCacheDB()).get("key"), "first");
+        Assert.assertTrue(shared.getCacheStore().drop("group/first"));
+        Assert.assertTrue(countFiles(shardsPath, "repo-group") > 0);
+        reopened.close();
+        Assert.assertEquals(countFiles(shardsPath, "repo-group"), 0);
+
+        final LocalContext dropped = new LocalContext(shared, "group/first");
+        Assert.assertNull(map(dropped.getCacheDB()).get("key"));
+        dropped.close();
+      }
+      // Databases are committed on close
+      try (SharedContext shared = SharedContext.create(basePath, "test", createStore(basePath), Collections.emptyList())) {
+        final LocalContext second = new LocalContext(shared, "second");
+        Assert.assertEquals(map(second.getCacheDB()).get("key"), "second");
+      }
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  /**
+   * Repository caches stored in shared database before are moved to repository database.
+   */
+  @Test
+  public void moveFromShared() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try {
+      final DB oldDB = openDB(basePath.resolve("shared.mapdb"));
+      map(oldDB).put("key", "value");
+      oldDB.atomicVar("var", Serializer.STRING).createOrOpen().set("value");
+      oldDB.commit();
+      oldDB.close();
+
+      try (SharedContext shared = SharedContext.create(basePath, "test", createStore(basePath), Collections.emptyList())) {
+        final LocalContext local = new LocalContext(shared, "first");
+        final Map<String, String> map = local.openCache("test", ShardedCacheStoreTest::map, Map::putAll);
+        Assert.assertEquals(map.get("key"), "value");
+        final Atomic.Var<String> var = local.openCache(
+            "var",
+            db -> db.atomicVar("var", Serializer.STRING).createOrOpen(),
+            (target, source) -> target.set(source.get())
+        );
+        Assert.assertEquals(var.get(), "value");
+        Assert.assertFalse(shared.getCacheDB().exists("test"));
+        Assert.assertFalse(shared.getCacheDB().exists("var"));
+        local.close();
+      }
+      // Moved caches are committed
+      try (SharedContext shared = SharedContext.create(basePath, "test", createStore(basePath), Collections.emptyList())) {
+        Assert.assertFalse(shared.getCacheDB().exists("test"));
+        final LocalContext local = new LocalContext(shared, "first");
+        Assert.assertEquals(map(local.getCacheDB()).get("key"), "value");
+        local.close();
+      }
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  private static long countFiles(@NotNull Path path, @NotNull String prefix) throws Exception {
+    try (Stream<Path> files = Files.list(path)) {
+      return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+    }
+  }
+
+  @NotNull
+  private static CacheStore createStore(@NotNull Path basePath) throws Exception {
+    return new ShardedCacheStore(openDB(basePath.resolve("shared.mapdb")), basePath.resolve("shards"), ShardedCacheStoreTest::openDB);
+  }
+
+  @NotNull
+  private static DB openDB(@NotNull Path path) {
+    return DBMaker.fileDB(path.toFile()).transactionEnable().make();
+  }
+
+  @NotNull
+  private static Map<String, String> map(@NotNull DB db) {
+    return db.hashMap("test", Serializer.STRING, Serializer.STRING).createOrOpen();
+  }
+}
@@ -7,7 +7,9 @@
  */
 package svnserver.parser;
 
+import org.jetbrains.annotations.NotNull;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import org.testng.internal.junit.ArrayAsserts;
 import svnserver.parser.token.*;
@@ -142,4 +144,134 @@ public final class SvnServerParserTest {
       Assert.assertEquals(parser.readToken(WordToken.class), new WordToken("end"));
     }
   }
+
+  @Test
+  public void testCompleteItem() {
+    Assert.assertTrue(isComplete("( get-latest-rev ( ) ) "));
+    Assert.assertTrue(isComplete("  ( stat ( 0: ( 1 ) ) ) "));
+    Assert.assertTrue(isComplete("( 5:a b c ) "));
+    Assert.assertTrue(isComplete("word "));
+    Assert.assertFalse(isComplete(""));
+    Assert.assertFalse(isComplete("  "));
+    Assert.assertFalse(isComplete("( get-latest-rev ( ) "));
+    Assert.assertFalse(isComplete("( 5:a b"));
+    Assert.assertFalse(isComplete("( 12"));
+    Assert.assertFalse(isComplete("( wor"));
+    Assert.assertFalse(isComplete("word"));
+    // Malformed data is left for regular parser
+    Assert.assertTrue(isComplete("( ! "));
+  }
+
+  private static boolean isComplete(@NotNull String data) {
+    final byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+    return SvnServerParser.isCompleteItem(bytes, 0, bytes.length);
+  }
+
+  @Test
+  public void testPendingData() throws IOException {
+    try (InputStream stream = new ByteArrayInputStream("( word ) ( next ) ".getBytes(StandardCharsets.UTF_8))) {
+      final SvnServerParser parser = new SvnServerParser(stream);
+      Assert.assertEquals(parser.readToken(ListBeginToken.class), ListBeginToken.instance);
+      Assert.assertEquals(parser.readToken(WordToken.class), new WordToken("word"));
+      Assert.assertEquals(parser.readToken(ListEndToken.class), ListEndToken.instance);
+      Assert.assertTrue(parser.hasPendingData());
+      Assert.assertEquals(parser.readToken(ListBeginToken.class), ListBeginToken.instance);
+      Assert.assertEquals(parser.readToken(WordToken.class), new WordToken("next"));
+      Assert.assertEquals(parser.readToken(ListEndToken.class), ListEndToken.instance);
+      Assert.assertFalse(parser.hasPendingData());
+      parser.releaseBuffer();
+      try {
+        parser.readToken(ListBeginToken.class);
+        Assert.fail();
+      } catch (EOFException ignored) {
+      }
+    }
+  }
+
+  @DataProvider
+  public static Object[][] providerBinarySlice() {
+    return new Object[][]{
+        new Object[]{10, 5},
+        new Object[]{10, 40},
+        new Object[]{100, 40},
+        new Object[]{1024, 40},
+        new Object[]{10, 3000},
+    };
+  }
+
+  @Test(dataProvider = "providerBinarySlice")
+  public void testBinarySlice(int bufferSize, int dataSize) throws IOException {
+    final byte[] data = new byte[dataSize];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = (byte) i;
+    }
+    final byte[] streamData;
+    try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+         final SvnServerWriter writer = new SvnServerWriter(outputStream)) {
+      writer.listBegin();
+      for (int i = 0; i < 3; ++i) {
+        writer.binary(data);
+      }
+      writer.listEnd();
+      writer.word("end");
+      streamData = outputStream.toByteArray();
+    }
+    try (ByteArrayInputStream inputStream = new ByteArrayInputStream(streamData)) {
+      final SvnServerParser parser = new SvnServerParser(inputStream, bufferSize);
+      Assert.assertEquals(parser.readToken(ListBeginToken.class), ListBeginToken.instance);
+      for (int i = 0; i < 3; ++i) {
+        final BinarySlice slice = parser.readBinaryItem();
+        Assert.assertNotNull(slice);
+        ArrayAsserts.assertArrayEquals(data, slice.toByteArray());
+      }
+      Assert.assertNull(parser.readBinaryItem());
+      Assert.assertEquals(parser.readToken(WordToken.class), new WordToken("end"));
+    }
+  }
+
+  @Test
+  public void testMessageOptionalParams() throws IOException {
+    try (InputStream stream = new ByteArrayInputStream("( 3:foo ( 1 2 3 4 5 ) 7 true 2:xy extra ( 1 ) ) ( ) ( 3:bar ) test ".getBytes(StandardCharsets.UTF_8))) {
+      final SvnServerParser parser = new SvnServerParser(stream);
+
+      final OptionalParams full = MessageParser.parse(OptionalParams.class, parser);
+      Assert.assertEquals(full.name, "foo");
+      ArrayAsserts.assertArrayEquals(new int[]{1, 2, 3, 4, 5}, full.revs);
+      Assert.assertEquals(full.rev, 7);
+      Assert.assertTrue(full.flag);
+      ArrayAsserts.assertArrayEquals("xy".getBytes(StandardCharsets.UTF_8), full.data);
+
+      final OptionalParams empty = MessageParser.parse(OptionalParams.class, parser);
+      Assert.assertEquals(empty.name, "");
+      Assert.assertEquals(empty.revs.length, 0);
+
+      final OptionalParams partial = MessageParser.parse(OptionalParams.class, parser);
+      Assert.assertEquals(partial.name, "bar");
+      Assert.assertEquals(partial.revs.length, 0);
+      Assert.assertEquals(partial.rev, 0);
+      Assert.assertFalse(partial.flag);
+      Assert.assertEquals(partial.data.length, 0);
+
+      Assert.assertEquals(parser.readText(), "test");
+    }
+  }
+
+  private static final class OptionalParams {
+    @NotNull
+    private final String name;
+    @NotNull
+    private final int[] revs;
+    private final int rev;
+    private final boolean flag;
+    @NotNull
+    private final byte[] data;
+
+    private OptionalParams(@NotNull String name, @NotNull int[] revs, int rev, boolean flag, @NotNull byte[] data) {
+      this.name = name;
+      this.revs = revs;
+      this.rev = rev;
+      this.flag = flag;
+      this.data = data;
+    }
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.parser;
+
+import org.jetbrains.annotations.NotNull;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests for SvnServerWriter.
+ */
+public final class SvnServerWriterTest {
+  @DataProvider
+  public static Object[][] providerStrings() {
+    return new Object[][]{
+        {""},
+        {"simple"},
+        {"Тест"},
+        {"€ 😀 é"},
+        {"broken \uD800 surrogate \uDC00"},
+    };
+  }
+
+  @Test(dataProvider = "providerStrings")
+  public void testString(@NotNull String text) throws IOException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try (SvnServerWriter writer = new SvnServerWriter(stream)) {
+      writer.string(text);
+    }
+    final byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+    final ByteArrayOutputStream expectedStream = new ByteArrayOutputStream();
+    expectedStream.write((expected.length + ":").getBytes(StandardCharsets.US_ASCII));
+    expectedStream.write(expected);
+    expectedStream.write(' ');
+    Assert.assertEquals(stream.toByteArray(), expectedStream.toByteArray());
+  }
+
+  @Test
+  public void testTokens() throws IOException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try (SvnServerWriter writer = new SvnServerWriter(stream, 8)) {
+      writer
+          .listBegin()
+          .word("success")
+          .number(0)
+          .number(-42)
+          .number(Long.MIN_VALUE)
+          .bool(true)
+          .binary(out -> out.write("large binary data".getBytes(StandardCharsets.US_ASCII)))
+          .stringNullable(null)
+          .listEnd();
+    }
+    Assert.assertEquals(new String(stream.toByteArray(), StandardCharsets.US_ASCII),
+        "( success 0 -42 -9223372036854775808 true 17:large binary data ( ) ) \n");
+  }
+
+  @Test
+  public void testCork() throws IOException {
+    final CountingStream stream = new CountingStream();
+    final SvnServerWriter writer = new SvnServerWriter(stream);
+
+    writer.listBegin().word("first").listEnd();
+    Assert.assertEquals(stream.writes, 1);
+
+    writer.cork();
+    for (int i = 0; i < 100; ++i) {
+      writer.listBegin().word("item").number(i).listEnd();
+    }
+    Assert.assertEquals(stream.writes, 1);
+
+    writer.uncork();
+    Assert.assertEquals(stream.writes, 2);
+
+    writer.listBegin().word("last").listEnd();
+    Assert.assertEquals(stream.writes, 3);
+  }
+
+  private static final class CountingStream extends ByteArrayOutputStream {
+    private int writes;
+
+    @Override
+    public synchronized void write(@NotNull byte[] b, int off, int len) {
+      writes++;
+      super.write(b, off, len);
+    }
+  }
+}
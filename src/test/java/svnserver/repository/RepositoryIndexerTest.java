@@ -0,0 +1,157 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository;
+
+import org.jetbrains.annotations.NotNull;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lazy repository indexer test.
+ */
+public final class RepositoryIndexerTest {
+  @Test
+  public void priorityOrder() throws Exception {
+    try (RepositoryIndexer indexer = new RepositoryIndexer(1, TimeUnit.SECONDS.toMillis(10))) {
+      final CountDownLatch blocker = new CountDownLatch(1);
+      indexer.schedule("blocker", Long.MAX_VALUE, () -> await(blocker));
+
+      final List<String> order = Collections.synchronizedList(new ArrayList<>());
+      final List<RepositoryIndexer.Task> tasks = new ArrayList<>();
+      for (String name : new String[]{"old", "newest", "new"}) {
+        final long priority = name.equals("old") ? 1 : name.equals("newest") ? 3 : 2;
+        tasks.add(indexer.schedule(name, priority, () -> order.add(name)));
+      }
+      blocker.countDown();
+      for (RepositoryIndexer.Task task : tasks)
+        task.waitReady();
+
+      Assert.assertEquals(order, Arrays.asList("newest", "new", "old"));
+    }
+  }
+
+  /**
+   * First access must not wait for warmer queue.
+   */
+  @Test
+  public void onDemand() throws Exception {
+    try (RepositoryIndexer indexer = new RepositoryIndexer(1, TimeUnit.SECONDS.toMillis(10))) {
+      final CountDownLatch blocker = new CountDownLatch(1);
+      indexer.schedule("blocker", Long.MAX_VALUE, () -> await(blocker));
+
+      final AtomicInteger runs = new AtomicInteger();
+      final RepositoryIndexer.Task task = indexer.schedule("test", 0, runs::incrementAndGet);
+      Assert.assertFalse(task.isReady());
+      task.waitReady();
+      Assert.assertTrue(task.isReady());
+
+      // Warmer must not index repository again
+      blocker.countDown();
+      indexer.schedule("last", Long.MIN_VALUE, () -> {
+      }).waitReady();
+      Assert.assertEquals(runs.get(), 1);
+    }
+  }
+
+  /**
+   * On-demand indexing must not start more threads than configured.
+   */
+  @Test
+  public void onDemandLimit() throws Exception {
+    try (RepositoryIndexer indexer = new RepositoryIndexer(1, 1, 0)) {
+      final CountDownLatch blocker = new CountDownLatch(1);
+      indexer.schedule("blocker", Long.MAX_VALUE, () -> await(blocker));
+
+      final CountDownLatch first = new CountDownLatch(1);
+      final AtomicInteger runs = new AtomicInteger();
+      final RepositoryIndexer.Task busy = indexer.schedule("busy", 0, () -> await(first));
+      final RepositoryIndexer.Task task = indexer.schedule("test", 0, runs::incrementAndGet);
+      for (RepositoryIndexer.Task demanded : new RepositoryIndexer.Task[]{busy, task, task}) {
+        try {
+          demanded.waitReady();
+          Assert.fail();
+        } catch (SVNException e) {
+          Assert.assertEquals(e.getErrorMessage().getErrorCode(), SVNErrorCode.RA_SVN_CONNECTION_CLOSED);
+        }
+      }
+      // Single on-demand thread is busy
+      Thread.sleep(100);
+      Assert.assertEquals(runs.get(), 0);
+
+      first.countDown();
+      final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (!task.isReady() && System.currentTimeMillis() < deadline)
+        Thread.sleep(10);
+      Assert.assertTrue(task.isReady());
+      Assert.assertEquals(runs.get(), 1);
+      blocker.countDown();
+    }
+  }
+
+  @Test
+  public void timeout() throws Exception {
+    try (RepositoryIndexer indexer = new RepositoryIndexer(1, 0)) {
+      final CountDownLatch blocker = new CountDownLatch(1);
+      final RepositoryIndexer.Task task = indexer.schedule("test", 0, () -> await(blocker));
+      try {
+        task.waitReady();
+        Assert.fail();
+      } catch (SVNException e) {
+        Assert.assertEquals(e.getErrorMessage().getErrorCode(), SVNErrorCode.RA_SVN_CONNECTION_CLOSED);
+      }
+      blocker.countDown();
+    }
+  }
+
+  /**
+   * Failed indexing must be retried on next access.
+   */
+  @Test
+  public void retry() throws Exception {
+    try (RepositoryIndexer indexer = new RepositoryIndexer(1, TimeUnit.SECONDS.toMillis(10))) {
+      // Keep warmer busy: repository must be indexed only on access
+      final CountDownLatch blocker = new CountDownLatch(1);
+      indexer.schedule("blocker", Long.MAX_VALUE, () -> await(blocker));
+
+      final AtomicInteger runs = new AtomicInteger();
+      final RepositoryIndexer.Task task = indexer.schedule("test", 0, () -> {
+        if (runs.incrementAndGet() == 1)
+          throw new IOException("Expected failure");
+      });
+      try {
+        task.waitReady();
+        Assert.fail();
+      } catch (SVNException e) {
+        Assert.assertEquals(e.getErrorMessage().getErrorCode(), SVNErrorCode.RA_SVN_CONNECTION_CLOSED);
+      }
+      task.waitReady();
+      Assert.assertTrue(task.isReady());
+      Assert.assertEquals(runs.get(), 2);
+      blocker.countDown();
+    }
+  }
+
+  private static void await(@NotNull CountDownLatch latch) throws IOException {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    }
+  }
+}
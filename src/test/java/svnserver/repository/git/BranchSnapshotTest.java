@@ -0,0 +1,211 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.StringHelper;
+import svnserver.TestHelper;
+import svnserver.context.SharedContext;
+import svnserver.repository.git.cache.CacheRevision;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Check that branch restored from snapshot or loaded in batches is same as branch loaded from scratch.
+ */
+public final class BranchSnapshotTest {
+  private static final int FILES = 20;
+
+  @Test
+  public void reload() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try {
+      final Repository git = TestHelper.emptyRepository();
+      ObjectId head = addCommits(git, null, 0, 1100);
+
+      try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+        final GitBranch expected = loadBranch(shared, git);
+
+        // Restore from snapshot
+        assertBranchEquals(loadBranch(shared, git), expected);
+
+        // Restore from snapshot and load new revisions
+        head = addCommits(git, head, 1100, 50);
+        final GitBranch updated = loadBranch(shared, git);
+        try (SharedContext other = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+          assertBranchEquals(updated, loadBranch(other, git));
+        }
+      }
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  /**
+   * Svn cache commits of large batch must be written into pack and produce same revisions.
+   */
+  @Test
+  public void packedCache() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try {
+      final Repository expectedGit = TestHelper.emptyRepository();
+      addCommits(expectedGit, null, 0, 150);
+
+      final Repository git = new FileRepository(basePath.resolve("repo.git").toFile());
+      git.create(true);
+      addCommits(git, null, 0, 150);
+      final Path objects = basePath.resolve("repo.git").resolve("objects");
+      final long looseObjects = countLooseObjects(objects);
+
+      try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+        final GitBranch actual = loadBranch(shared, git);
+        // Only initial svn cache commit is written as loose objects
+        Assert.assertTrue(countLooseObjects(objects) - looseObjects < 10);
+        try (SharedContext other = SharedContext.create(basePath, "other", DBMaker.memoryDB().make(), Collections.emptyList())) {
+          // Svn cache commits differ by repository id
+          assertBranchEquals(actual, loadBranch(other, expectedGit), false);
+        }
+      }
+      git.close();
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  /**
+   * Branches with common history must share computed revision changes.
+   */
+  @Test
+  public void sharedHistory() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try {
+      final Repository git = TestHelper.emptyRepository();
+      final ObjectId fork = addCommits(git, null, 0, 40);
+      final RefUpdate refUpdate = git.updateRef(Constants.R_HEADS + "release");
+      refUpdate.setNewObjectId(fork);
+      refUpdate.update();
+      addCommits(git, fork, 40, 20);
+
+      final DB db = DBMaker.memoryDB().make();
+      // Obsolete per-branch cache is removed on repository open
+      db.hashMap("cache-revision.test.refs/heads/release.1.v2", ObjectIdSerializer.instance, CacheRevisionSerializer.instance).createOrOpen()
+          .put(ObjectId.zeroId(), new CacheRevision((ObjectId) null, Collections.emptyMap(), Collections.emptyMap()));
+      try (SharedContext shared = SharedContext.create(basePath, "test", db, Collections.emptyList())) {
+        final GitRepository repository = TestHelper.createRepository(shared, git, Constants.MASTER, "release");
+        final GitBranch master = repository.getBranches().get(StringHelper.normalizeDir(Constants.MASTER));
+        final GitBranch release = repository.getBranches().get(StringHelper.normalizeDir("release"));
+        master.updateRevisions();
+        release.updateRevisions();
+
+        Assert.assertEquals(master.getLatestRevision().getId(), 60);
+        Assert.assertEquals(release.getLatestRevision().getId(), 40);
+        for (int revision = 0; revision <= 40; ++revision) {
+          Assert.assertEquals(release.getRevisionInfo(revision).getLog(), master.getRevisionInfo(revision).getLog());
+          for (int i = 0; i < FILES; ++i) {
+            final String path = "/dir/file" + i;
+            Assert.assertEquals(release.getLastChange(path, revision), master.getLastChange(path, revision), path + "@" + revision);
+          }
+        }
+
+        // Single cache entry per commit and one for empty initial revision
+        final List<String> caches = new ArrayList<>();
+        for (String name : db.getAllNames()) {
+          if (name.startsWith("cache-revision."))
+            caches.add(name);
+        }
+        Assert.assertEquals(caches.size(), 1);
+        Assert.assertEquals(((Map<?, ?>) db.get(caches.get(0))).size(), 61);
+      }
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  private static long countLooseObjects(@NotNull Path objects) throws Exception {
+    try (Stream<Path> stream = Files.walk(objects)) {
+      return stream
+          .filter(Files::isRegularFile)
+          .filter(path -> path.getParent().getFileName().toString().length() == 2)
+          .count();
+    }
+  }
+
+  @NotNull
+  private static GitBranch loadBranch(@NotNull SharedContext shared, @NotNull Repository git) throws Exception {
+    final GitBranch branch = TestHelper.createRepository(shared, git, Constants.MASTER).getBranches().firstEntry().getValue();
+    branch.updateRevisions();
+    return branch;
+  }
+
+  private static void assertBranchEquals(@NotNull GitBranch actual, @NotNull GitBranch expected) throws Exception {
+    assertBranchEquals(actual, expected, true);
+  }
+
+  private static void assertBranchEquals(@NotNull GitBranch actual, @NotNull GitBranch expected, boolean sameCache) throws Exception {
+    final int latest = expected.getLatestRevision().getId();
+    Assert.assertEquals(actual.getLatestRevision().getId(), latest);
+    for (int revision = 0; revision <= latest; ++revision) {
+      final GitRevision actualRevision = actual.getRevisionInfo(revision);
+      final GitRevision expectedRevision = expected.getRevisionInfo(revision);
+      if (sameCache)
+        Assert.assertEquals(actualRevision.getCacheCommit(), expectedRevision.getCacheCommit());
+      Assert.assertEquals(actualRevision.getDate(), expectedRevision.getDate());
+      Assert.assertEquals(actualRevision.getLog(), expectedRevision.getLog());
+      Assert.assertEquals(actual.getRevisionByDate(expectedRevision.getDate()).getId(), expected.getRevisionByDate(expectedRevision.getDate()).getId());
+
+      for (int i = 0; i < FILES; ++i) {
+        final String path = "/dir/file" + i;
+        Assert.assertEquals(actual.getLastChange(path, revision), expected.getLastChange(path, revision), path + "@" + revision);
+      }
+    }
+  }
+
+  @NotNull
+  private static ObjectId addCommits(@NotNull Repository git, @Nullable ObjectId parent, int first, int count) throws Exception {
+    ObjectId head = parent;
+    try (ObjectInserter inserter = git.newObjectInserter()) {
+      for (int i = first; i < first + count; ++i) {
+        final TreeFormatter dir = new TreeFormatter();
+        for (int j = 0; j < FILES; ++j) {
+          // Every file is changed in every (j + 1)-th commit and removed for a while sometimes
+          final int version = i / (j + 1);
+          if (version % 7 == 6)
+            continue;
+          dir.append("file" + j, FileMode.REGULAR_FILE, inserter.insert(Constants.OBJ_BLOB, ("file" + j + "@" + version).getBytes(StandardCharsets.UTF_8)));
+        }
+        final TreeFormatter root = new TreeFormatter();
+        root.append("dir", FileMode.TREE, inserter.insert(dir));
+
+        final CommitBuilder commit = new CommitBuilder();
+        final PersonIdent ident = new PersonIdent("Test", "test@example.com", 1500000000000L + i * 1000L, 0);
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage("Commit " + i);
+        commit.setTreeId(inserter.insert(root));
+        if (head != null)
+          commit.setParentId(head);
+        head = inserter.insert(commit);
+      }
+      inserter.flush();
+    }
+    if (head != null)
+      TestHelper.updateMaster(git, head);
+    return head;
+  }
+}
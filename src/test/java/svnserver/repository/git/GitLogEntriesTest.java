@@ -0,0 +1,78 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.lib.*;
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DBMaker;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.TestHelper;
+import svnserver.context.SharedContext;
+import svnserver.repository.git.cache.CacheLogEntry;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Check that changed paths collected during indexing are same as computed from revision trees.
+ */
+public final class GitLogEntriesTest {
+  @Test
+  public void sameAsChanges() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+      final Repository git = TestHelper.emptyRepository();
+
+      final Map<String, String> files = new TreeMap<>();
+      files.put("dir/a.txt", "a");
+      files.put("dir/sub/b.txt", "b");
+      files.put("c.txt", "c");
+      ObjectId head = TestHelper.addCommit(git, null, files);
+      // Modify and move
+      files.put("dir/a.txt", "a2");
+      files.put("moved/b.txt", files.remove("dir/sub/b.txt"));
+      head = TestHelper.addCommit(git, head, files);
+      // Replace directory with file
+      files.remove("dir/a.txt");
+      files.put("dir", "dir");
+      head = TestHelper.addCommit(git, head, files);
+      // Remove directory with content
+      files.remove("moved/b.txt");
+      files.put(".gitattributes", "*.txt text\n");
+      TestHelper.addCommit(git, head, files);
+
+      final GitBranch branch = TestHelper.createRepository(shared, git, Constants.MASTER).getBranches().firstEntry().getValue();
+      branch.updateRevisions();
+
+      final int latest = branch.getLatestRevision().getId();
+      Assert.assertEquals(latest, 4);
+      for (int revision = 1; revision <= latest; ++revision) {
+        final GitRevision revisionInfo = branch.getRevisionInfo(revision);
+        final List<CacheLogEntry> expected = ChangeHelper.collectLogEntries(revisionInfo.getChanges(), false);
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(toString(revisionInfo.getLogEntries()), toString(expected), "r" + revision);
+      }
+      Assert.assertEquals(toString(branch.getRevisionInfo(4).getLogEntries()), Arrays.asList(
+          "/ M dir false true",
+          "/.gitattributes A file false false",
+          "/moved D dir false false"
+      ));
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  @NotNull
+  private static List<String> toString(@NotNull List<CacheLogEntry> entries) {
+    final List<String> result = new ArrayList<>();
+    for (CacheLogEntry entry : entries)
+      result.add(entry.getPath() + " " + entry.getChange() + " " + entry.getKind() + " " + entry.isContentModified() + " " + entry.isPropertyModified());
+    return result;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.lib.*;
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DBMaker;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.TestHelper;
+import svnserver.context.SharedContext;
+import svnserver.ext.gitlfs.filter.LfsFilter;
+import svnserver.repository.git.filter.GitFilterHelper;
+import svnserver.repository.git.filter.GitFilterMetadata;
+import svnserver.repository.git.filter.GitFilterRaw;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background metadata computation test.
+ */
+public final class GitMetadataWarmerTest {
+  @Test
+  public void headAndNewRevisions() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+      final GitMetadataWarmer warmer = new GitMetadataWarmer(1, 10, true);
+      shared.add(GitMetadataWarmer.class, warmer);
+
+      final Repository git = TestHelper.emptyRepository();
+      final Map<String, String> files = new TreeMap<>();
+      files.put("a.txt", "a");
+      files.put("dir/b.txt", "b");
+      files.put("dir/sub/c.bin", "c\0");
+      TestHelper.addCommit(git, null, files);
+
+      final GitRepository repository = TestHelper.createRepository(shared, git, Constants.MASTER);
+      final GitBranch branch = repository.getBranches().firstEntry().getValue();
+      final Map<ObjectId, GitFilterMetadata> metadata = GitFilterHelper.getCacheMetadata(new GitFilterRaw(repository.getContext()), shared.getCacheStore());
+
+      // Initial loading computes head files
+      branch.updateRevisions();
+      Assert.assertTrue(warmer.awaitIdle(30, TimeUnit.SECONDS));
+      Assert.assertEquals(warmer.getFiles(), 3);
+      checkMetadata(metadata, files.get("dir/sub/c.bin"), true);
+      checkMetadata(metadata, files.get("a.txt"), false);
+
+      // New revisions compute only added and modified files
+      final ObjectId head = git.exactRef(Constants.R_HEADS + Constants.MASTER).getObjectId();
+      files.put("a.txt", "a2");
+      files.put("d.txt", "d");
+      files.remove("dir/b.txt");
+      TestHelper.addCommit(git, TestHelper.addCommit(git, head, files), files);
+      branch.updateRevisions();
+      Assert.assertTrue(warmer.awaitIdle(30, TimeUnit.SECONDS));
+      Assert.assertEquals(warmer.getFiles(), 5);
+      Assert.assertEquals(warmer.getDropped(), 0);
+      checkMetadata(metadata, files.get("a.txt"), false);
+      checkMetadata(metadata, files.get("d.txt"), false);
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  @Test
+  public void lfsSkipped() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+      final GitMetadataWarmer warmer = new GitMetadataWarmer(1, 10, true);
+      shared.add(GitMetadataWarmer.class, warmer);
+
+      final Repository git = TestHelper.emptyRepository();
+      final Map<String, String> files = new TreeMap<>();
+      files.put(".gitattributes", "*.dat filter=lfs\n");
+      files.put("a.txt", "a");
+      files.put("b.dat", "b");
+      TestHelper.addCommit(git, null, files);
+
+      final GitRepository repository = TestHelper.createRepository(shared, git, Constants.MASTER);
+      final GitBranch branch = repository.getBranches().firstEntry().getValue();
+      branch.updateRevisions();
+      Assert.assertTrue(warmer.awaitIdle(30, TimeUnit.SECONDS));
+
+      // Content of LFS files is not read
+      Assert.assertEquals(warmer.getFiles(), 2);
+      final GitFile file = branch.getLatestRevision().getFile("b.dat");
+      Assert.assertNotNull(file);
+      Assert.assertTrue(file.getFilter() instanceof LfsFilter);
+      final Map<ObjectId, GitFilterMetadata> metadata = GitFilterHelper.getCacheMetadata(file.getFilter(), shared.getCacheStore());
+      Assert.assertNull(metadata.get(file.getObjectId().getObject()));
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  private static void checkMetadata(@NotNull Map<ObjectId, GitFilterMetadata> metadata, @NotNull String content, boolean binary) {
+    final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    final GitFilterMetadata item = metadata.get(new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, bytes));
+    Assert.assertNotNull(item, content);
+    Assert.assertEquals(item.getSize(), bytes.length);
+    Assert.assertNotNull(item.getMd5Hex());
+    Assert.assertEquals(item.isBinary(), Boolean.valueOf(binary));
+  }
+}
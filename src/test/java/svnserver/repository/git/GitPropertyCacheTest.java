@@ -0,0 +1,127 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DBMaker;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.TestHelper;
+import svnserver.context.SharedContext;
+import svnserver.repository.git.prop.GitProperty;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Git property cache test.
+ */
+public final class GitPropertyCacheTest {
+  @Test
+  public void memoryLimit() throws Exception {
+    withRepositories((foo, bar) -> {
+      final GitPropertyCache cache = new GitPropertyCache(64 * 1024);
+      final AtomicInteger loads = new AtomicInteger();
+      for (int i = 0; i < 10_000; ++i) {
+        final GitProperty[] properties = cache.getDirectoryProperties(i % 2 == 0 ? foo : bar, id(i), () -> {
+          loads.incrementAndGet();
+          return GitProperty.emptyArray;
+        });
+        Assert.assertSame(properties, GitProperty.emptyArray);
+      }
+      Assert.assertEquals(loads.get(), 10_000);
+      Assert.assertTrue(cache.getStats().evictionCount() > 0);
+      final long total = cache.getMemoryUsage(foo) + cache.getMemoryUsage(bar);
+      Assert.assertTrue(total > 0);
+      Assert.assertTrue(total <= 64 * 1024, "Memory usage: " + total);
+
+      // Recent entry is still cached
+      cache.getDirectoryProperties(bar, id(9_999), () -> {
+        throw new AssertionError();
+      });
+      Assert.assertEquals(cache.getStats().hitCount(), 1);
+      Assert.assertEquals(cache.getStats().missCount(), 10_000);
+
+      cache.invalidate(foo);
+      Assert.assertEquals(cache.getMemoryUsage(foo), 0);
+      Assert.assertTrue(cache.getMemoryUsage(bar) > 0);
+    });
+  }
+
+  @Test
+  public void repositoriesAreSeparate() throws Exception {
+    withRepositories((foo, bar) -> {
+      final GitPropertyCache cache = new GitPropertyCache();
+      final AtomicInteger loads = new AtomicInteger();
+      for (GitRepository repository : new GitRepository[]{foo, bar, foo, bar}) {
+        cache.getDirectoryProperties(repository, id(1), () -> {
+          loads.incrementAndGet();
+          return GitProperty.emptyArray;
+        });
+      }
+      Assert.assertEquals(loads.get(), 2);
+      Assert.assertEquals(cache.getMemoryUsage(foo), cache.getMemoryUsage(bar));
+    });
+  }
+
+  /**
+   * Closing repository must not drop entries of repository that replaced it under the same name.
+   */
+  @Test
+  public void replacedRepository() throws Exception {
+    withRepositories((old, replacement) -> {
+      Assert.assertEquals(old.getContext().getName(), replacement.getContext().getName());
+      final GitPropertyCache cache = new GitPropertyCache();
+      for (GitRepository repository : new GitRepository[]{old, replacement}) {
+        cache.getDirectoryProperties(repository, id(1), () -> GitProperty.emptyArray);
+      }
+      final long memory = cache.getMemoryUsage(replacement);
+
+      cache.invalidate(old);
+      Assert.assertEquals(cache.getMemoryUsage(old), 0);
+      Assert.assertEquals(cache.getMemoryUsage(replacement), memory);
+      cache.getDirectoryProperties(replacement, id(1), () -> {
+        throw new AssertionError();
+      });
+    });
+  }
+
+  @FunctionalInterface
+  private interface RepositoriesConsumer {
+    void accept(@NotNull GitRepository first, @NotNull GitRepository second) throws Exception;
+  }
+
+  /**
+   * Run action with two repositories that have the same name.
+   */
+  private static void withRepositories(@NotNull RepositoriesConsumer action) throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+      final Repository git = TestHelper.emptyRepository();
+      TestHelper.addCommit(git, null, Collections.singletonMap("file.txt", "content"));
+      final GitRepository first = TestHelper.createRepository(shared, git, Constants.MASTER);
+      final GitRepository second = TestHelper.createRepository(shared, git, Constants.MASTER);
+      try {
+        action.accept(first, second);
+      } finally {
+        first.close();
+        second.close();
+      }
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  private static ObjectId id(int i) {
+    return ObjectId.fromRaw(new int[]{i, i * 31, 0, 0, 1});
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mapdb.DBMaker;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.TestHelper;
+import svnserver.context.SharedContext;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Check that pushed commits are indexed in background.
+ */
+public final class GitRefWatcherTest {
+  @Test
+  public void indexPush() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try {
+      final Repository git = new FileRepository(basePath.resolve("repo.git").toFile());
+      git.create(true);
+      ObjectId head = addCommit(git, null, "first");
+
+      try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+        final GitRefWatcher watcher = shared.add(GitRefWatcher.class, new GitRefWatcher(1));
+        final GitRepository repository = TestHelper.createRepository(shared, git, Constants.MASTER);
+        final GitBranch branch = repository.getBranches().firstEntry().getValue();
+        Assert.assertTrue(branch.isRefWatched());
+        branch.updateRevisions();
+        final int revision = branch.getLatestRevision().getId();
+
+        head = addCommit(git, head, "second");
+        waitRevision(branch, revision + 1);
+        Assert.assertTrue(watcher.getIndexed() > 0);
+        Assert.assertEquals(watcher.getCurrentLag(), 0);
+
+        // Notification from git server hook
+        head = addCommit(git, head, "third");
+        watcher.refsChanged(repository);
+        waitRevision(branch, revision + 2);
+
+        // Closed repository is not indexed anymore
+        repository.close();
+        addCommit(git, head, "fourth");
+        branch.updateRevisions();
+        Assert.assertEquals(branch.getLatestRevision().getId(), revision + 2);
+      }
+      git.close();
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  private static void waitRevision(@NotNull GitBranch branch, int revision) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 30_000;
+    // Indexing lag is reset after revisions are loaded
+    while (branch.getLatestRevision().getId() < revision || branch.getIndexingLag() > 0) {
+      Assert.assertTrue(System.currentTimeMillis() < deadline, "Branch is not indexed in time");
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(branch.getLatestRevision().getId(), revision);
+  }
+
+  @NotNull
+  private static ObjectId addCommit(@NotNull Repository git, @Nullable ObjectId parent, @NotNull String content) throws Exception {
+    return TestHelper.addCommit(git, parent, Collections.singletonMap("file.txt", content));
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DBMaker;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.StringHelper;
+import svnserver.TestHelper;
+import svnserver.config.GitRepositoryConfig;
+import svnserver.context.LocalContext;
+import svnserver.context.SharedContext;
+import svnserver.repository.git.push.GitPushEmbedded;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rename detection test.
+ */
+public final class GitRenameDetectorTest {
+  /**
+   * Exact moves and moves with small changes must be same as detected by JGit.
+   */
+  @Test
+  public void sameAsJGit() throws Exception {
+    final Map<String, byte[]> oldFiles = new TreeMap<>();
+    final Map<String, byte[]> newFiles = new TreeMap<>();
+    for (int i = 0; i < 40; ++i) {
+      oldFiles.put("src/main/file" + i + ".txt", text(i, 0));
+      newFiles.put("lib/main/file" + i + ".txt", text(i, 0));
+    }
+    // Same content in several files
+    oldFiles.put("dup/one.txt", text(100, 0));
+    oldFiles.put("dup/two.txt", text(100, 0));
+    newFiles.put("copy/one.txt", text(100, 0));
+    newFiles.put("copy/two.txt", text(100, 0));
+    // Changed and moved
+    for (int i = 200; i < 220; ++i) {
+      oldFiles.put("changed/file" + i + ".txt", text(i, 0));
+      newFiles.put("moved/file" + i + ".java", text(i, i % 5));
+    }
+    // Unrelated files
+    oldFiles.put("removed.txt", text(300, 0));
+    newFiles.put("added.txt", text(301, 0));
+
+    checkRenames(oldFiles, newFiles, new GitRenameDetector(), null);
+  }
+
+  @Test
+  public void skipBinary() throws Exception {
+    final Map<String, byte[]> oldFiles = new TreeMap<>();
+    final Map<String, byte[]> newFiles = new TreeMap<>();
+    oldFiles.put("old.bin", binary(text(1, 0)));
+    newFiles.put("new.bin", binary(text(1, 1)));
+    oldFiles.put("exact.bin", binary(text(2, 0)));
+    newFiles.put("moved.bin", binary(text(2, 0)));
+
+    final Map<String, String> expected = new HashMap<>();
+    expected.put("/moved.bin", "/exact.bin");
+    checkRenames(oldFiles, newFiles, new GitRenameDetector(), expected);
+  }
+
+  /**
+   * Exact moves are detected even if content similarity is skipped.
+   */
+  @Test
+  public void renameLimit() throws Exception {
+    final Map<String, byte[]> oldFiles = new TreeMap<>();
+    final Map<String, byte[]> newFiles = new TreeMap<>();
+    final Map<String, String> expected = new HashMap<>();
+    for (int i = 0; i < 3; ++i) {
+      oldFiles.put("a/changed" + i + ".txt", text(i, 0));
+      newFiles.put("b/changed" + i + ".txt", text(i, 1));
+      oldFiles.put("a/exact" + i + ".txt", text(i + 10, 0));
+      newFiles.put("b/exact" + i + ".txt", text(i + 10, 0));
+      expected.put("/b/exact" + i + ".txt", "/a/exact" + i + ".txt");
+    }
+    checkRenames(oldFiles, newFiles, new GitRenameDetector(2), expected);
+  }
+
+  /**
+   * Many files with same content are paired by file name without comparing all names.
+   */
+  @Test
+  public void sameContent() throws Exception {
+    final Map<String, byte[]> oldFiles = new TreeMap<>();
+    final Map<String, byte[]> newFiles = new TreeMap<>();
+    final Map<String, String> expected = new HashMap<>();
+    for (int i = 0; i < 200; ++i) {
+      oldFiles.put("a/" + i + "/file" + i + ".txt", text(1, 0));
+      newFiles.put("b/" + i + "/file" + (199 - i) + ".txt", text(1, 0));
+      expected.put("/b/" + i + "/file" + (199 - i) + ".txt", "/a/" + (199 - i) + "/file" + (199 - i) + ".txt");
+    }
+    // Copies of renamed file
+    newFiles.put("c/file7.txt", text(1, 0));
+    expected.put("/c/file7.txt", "/a/7/file7.txt");
+    newFiles.put("c/other.txt", text(1, 0));
+    expected.put("/c/other.txt", "/a/0/file0.txt");
+    checkRenames(oldFiles, newFiles, new GitRenameDetector(), expected);
+  }
+
+  private static void checkRenames(@NotNull Map<String, byte[]> oldFiles, @NotNull Map<String, byte[]> newFiles, @NotNull GitRenameDetector detector, Map<String, String> expected) throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+      shared.add(GitRenameDetector.class, detector);
+      final Repository git = new InMemoryRepository(new DfsRepositoryDescription(null));
+      git.create();
+      final LocalContext local = new LocalContext(shared, "test");
+      final GitBranch branch = GitRepositoryConfig.createRepository(
+          local,
+          null,
+          git,
+          new GitPushEmbedded(local, null, false),
+          Collections.singleton(Constants.MASTER),
+          true,
+          EmptyDirsSupport.Disabled
+      ).getBranches().firstEntry().getValue();
+
+      final ObjectId oldTree;
+      final ObjectId newTree;
+      try (ObjectInserter inserter = git.newObjectInserter()) {
+        oldTree = createTree(inserter, oldFiles);
+        newTree = createTree(inserter, newFiles);
+        inserter.flush();
+      }
+
+      final Map<String, String> actual = detector.detectRenames(branch, 1, oldTree, newTree);
+      Assert.assertEquals(actual, expected != null ? expected : jgitRenames(git, oldTree, newTree));
+      Assert.assertFalse(actual.isEmpty());
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  @NotNull
+  private static Map<String, String> jgitRenames(@NotNull Repository git, @NotNull ObjectId oldTree, @NotNull ObjectId newTree) throws Exception {
+    final TreeWalk tw = new TreeWalk(git);
+    tw.setRecursive(true);
+    tw.setFilter(TreeFilter.ANY_DIFF);
+    tw.addTree(oldTree);
+    tw.addTree(newTree);
+
+    final RenameDetector rd = new RenameDetector(git);
+    rd.addAll(DiffEntry.scan(tw));
+    final Map<String, String> result = new HashMap<>();
+    for (DiffEntry diff : rd.compute(tw.getObjectReader(), null)) {
+      if (diff.getScore() >= rd.getRenameScore())
+        result.put(StringHelper.normalize(diff.getNewPath()), StringHelper.normalize(diff.getOldPath()));
+    }
+    return result;
+  }
+
+  @NotNull
+  private static ObjectId createTree(@NotNull ObjectInserter inserter, @NotNull Map<String, byte[]> files) throws Exception {
+    final DirCache cache = DirCache.newInCore();
+    final DirCacheBuilder builder = cache.builder();
+    for (Map.Entry<String, byte[]> file : files.entrySet()) {
+      final DirCacheEntry entry = new DirCacheEntry(file.getKey());
+      entry.setFileMode(FileMode.REGULAR_FILE);
+      entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, file.getValue()));
+      builder.add(entry);
+    }
+    builder.finish();
+    return cache.writeTree(inserter);
+  }
+
+  /**
+   * @param changed Number of changed lines.
+   */
+  @NotNull
+  private static byte[] text(int file, int changed) {
+    final StringBuilder result = new StringBuilder();
+    for (int line = 0; line < 30; ++line) {
+      result.append(line < changed ? "Changed line " : "Line ").append(line).append(" of file ").append(file).append('\n');
+    }
+    return result.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @NotNull
+  private static byte[] binary(@NotNull byte[] content) {
+    final byte[] result = content.clone();
+    for (int i = 0; i < result.length; i += 10)
+      result[i] = 0;
+    return result;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.jetbrains.annotations.NotNull;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static svnserver.repository.git.PathHistoryIndex.MARK_NO_FILE;
+
+/**
+ * Path history index test.
+ */
+public final class PathHistoryIndexTest {
+  @Test
+  public void simple() {
+    final PathHistoryIndex index = new PathHistoryIndex();
+    index.add("/a", 1, false);
+    index.add("/a/b", 1, false);
+    index.add("/a/b", 3, false);
+    index.add("/a/b", 5, true);
+    index.add("/a/b", 7, false);
+    index.add("/c/b", 2, false);
+
+    Assert.assertEquals(index.getLastChange("/a", 0), MARK_NO_FILE);
+    Assert.assertEquals(index.getLastChange("/a", 1), 1);
+    Assert.assertEquals(index.getLastChange("/a", 100), 1);
+    Assert.assertEquals(index.getLastChange("/a/b", 0), MARK_NO_FILE);
+    Assert.assertEquals(index.getLastChange("/a/b", 2), 1);
+    Assert.assertEquals(index.getLastChange("/a/b", 4), 3);
+    Assert.assertEquals(index.getLastChange("/a/b", 5), MARK_NO_FILE);
+    Assert.assertEquals(index.getLastChange("/a/b", 6), MARK_NO_FILE);
+    Assert.assertEquals(index.getLastChange("/a/b", 7), 7);
+    Assert.assertEquals(index.getLastChange("/c/b", 2), 2);
+    Assert.assertEquals(index.getLastChange("/c", 2), MARK_NO_FILE);
+    Assert.assertEquals(index.getLastChange("/b", 2), MARK_NO_FILE);
+    Assert.assertEquals(index.getLastChange("/a/b/c", 7), MARK_NO_FILE);
+    Assert.assertEquals(index.size(), 4);
+
+    Assert.assertEquals(index.getCreated("/a/b", 0), MARK_NO_FILE);
+    Assert.assertEquals(index.getCreated("/a/b", 4), 1);
+    Assert.assertEquals(index.getCreated("/a/b", 5), MARK_NO_FILE);
+    Assert.assertEquals(index.getCreated("/a/b", 8), 7);
+    Assert.assertEquals(index.getRemoved("/a/b", 1), 5);
+    Assert.assertEquals(index.getRemoved("/a/b", 4), 5);
+    Assert.assertEquals(index.getRemoved("/a/b", 5), MARK_NO_FILE);
+    Assert.assertEquals(index.getRemoved("/a/b", 7), MARK_NO_FILE);
+    Assert.assertEquals(index.getRemoved("/c", 2), MARK_NO_FILE);
+  }
+
+  /**
+   * Compare with straightforward implementation.
+   */
+  @Test
+  public void random() throws IOException {
+    final Random random = new Random(0);
+    final PathHistoryIndex index = new PathHistoryIndex();
+    final Map<String, NavigableMap<Integer, Boolean>> expected = new HashMap<>();
+    final List<String> paths = new ArrayList<>();
+    for (int i = 0; i < 2000; ++i)
+      paths.add("/dir" + random.nextInt(20) + "/sub" + random.nextInt(10) + "/file" + i);
+
+    final int revisions = 500;
+    for (int revision = 1; revision <= revisions; ++revision) {
+      for (int i = random.nextInt(50); i > 0; --i) {
+        final String path = paths.get(random.nextInt(paths.size()));
+        final NavigableMap<Integer, Boolean> history = expected.computeIfAbsent(path, p -> new TreeMap<>());
+        if (history.containsKey(revision))
+          continue;
+
+        final boolean removed = random.nextInt(4) == 0;
+        history.put(revision, removed);
+        index.add(path, revision, removed);
+      }
+    }
+
+    for (String path : paths) {
+      final NavigableMap<Integer, Boolean> history = expected.getOrDefault(path, Collections.emptyNavigableMap());
+      for (int revision = 0; revision <= revisions; ++revision) {
+        final Map.Entry<Integer, Boolean> entry = history.floorEntry(revision);
+        final int lastChange = entry == null || entry.getValue() ? MARK_NO_FILE : entry.getKey();
+        Assert.assertEquals(index.getLastChange(path, revision), lastChange, path + "@" + revision);
+        Assert.assertEquals(index.getCreated(path, revision), lastChange < 0 ? MARK_NO_FILE : created(history, revision), path + "@" + revision);
+        Assert.assertEquals(index.getRemoved(path, revision), lastChange < 0 ? MARK_NO_FILE : removed(history, revision), path + "@" + revision);
+      }
+    }
+
+    // Lifetimes are restored on load
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    index.write(new DataOutputStream(stream));
+    final PathHistoryIndex loaded = PathHistoryIndex.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    for (String path : paths) {
+      for (int revision = 0; revision <= revisions; revision += 7) {
+        Assert.assertEquals(loaded.getCreated(path, revision), index.getCreated(path, revision), path + "@" + revision);
+        Assert.assertEquals(loaded.getRemoved(path, revision), index.getRemoved(path, revision), path + "@" + revision);
+      }
+    }
+  }
+
+  private static int created(@NotNull NavigableMap<Integer, Boolean> history, int revision) {
+    int result = revision;
+    for (Map.Entry<Integer, Boolean> entry : history.headMap(revision, true).descendingMap().entrySet()) {
+      if (entry.getValue())
+        break;
+      result = entry.getKey();
+    }
+    return result;
+  }
+
+  private static int removed(@NotNull NavigableMap<Integer, Boolean> history, int revision) {
+    for (Map.Entry<Integer, Boolean> entry : history.tailMap(revision, false).entrySet()) {
+      if (entry.getValue())
+        return entry.getKey();
+    }
+    return MARK_NO_FILE;
+  }
+
+  @Test
+  public void concurrentRead() throws Exception {
+    final PathHistoryIndex index = new PathHistoryIndex();
+    final int revisions = 20000;
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread reader = new Thread(() -> {
+      try {
+        while (index.getLastChange("/file0", revisions) != revisions) {
+          final int lastChange = index.getLastChange("/dir/file" + revisions % 100, revisions);
+          if (lastChange != MARK_NO_FILE && lastChange % 100 != revisions % 100)
+            throw new AssertionError("Unexpected revision: " + lastChange);
+        }
+      } catch (Throwable e) {
+        error.set(e);
+      }
+    });
+    reader.start();
+    for (int revision = 1; revision <= revisions; ++revision) {
+      index.add("/dir/file" + revision % 100, revision, false);
+      index.add("/dir" + revision + "/file", revision, false);
+    }
+    index.add("/file0", revisions, false);
+    reader.join();
+    Assert.assertNull(error.get());
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Ref change tracking test.
+ */
+public final class RefChangeTrackerTest {
+  @Test
+  public void indexed() throws InterruptedException {
+    final RefChangeTracker tracker = new RefChangeTracker();
+    Assert.assertEquals(tracker.getLag(), 0);
+    Assert.assertTrue(tracker.markChanged());
+    // Indexing is already scheduled
+    Assert.assertFalse(tracker.markChanged());
+
+    Thread.sleep(10);
+    final RefChangeTracker.Round round = tracker.begin();
+    Assert.assertTrue(round.getLag() > 0);
+    Assert.assertTrue(tracker.finish(round));
+    Assert.assertEquals(tracker.getLag(), 0);
+    Assert.assertTrue(tracker.markChanged());
+  }
+
+  /**
+   * Change that arrives during indexing must keep its lag until it is indexed.
+   */
+  @Test
+  public void changedDuringIndexing() throws InterruptedException {
+    for (boolean marked : new boolean[]{true, false}) {
+      final RefChangeTracker tracker = new RefChangeTracker();
+      if (marked)
+        tracker.markChanged();
+
+      final RefChangeTracker.Round first = tracker.begin();
+      Assert.assertEquals(tracker.markChanged(), !marked);
+      Thread.sleep(10);
+      Assert.assertFalse(tracker.finish(first));
+      Assert.assertTrue(tracker.getLag() > 0);
+
+      final RefChangeTracker.Round second = tracker.begin();
+      Assert.assertTrue(second.getLag() > 0);
+      Assert.assertTrue(tracker.finish(second));
+      Assert.assertEquals(tracker.getLag(), 0);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revision table test.
+ */
+public final class RevisionTableTest {
+  @Test
+  public void snapshots() {
+    final Random random = new Random(0);
+    final List<RevisionTable> tables = new ArrayList<>();
+    final TreeMap<Long, Integer> byDate = new TreeMap<>();
+    RevisionTable table = new RevisionTable();
+    Assert.assertEquals(table.findByDate(0), -1);
+    int time = 1000;
+    for (int id = 0; id < 100; ++id) {
+      tables.add(table);
+      // Dates may repeat and go back
+      time += random.nextInt(3) - 1;
+      final long date = TimeUnit.SECONDS.toMillis(time);
+      if (id > 0 && (byDate.isEmpty() || byDate.lastKey() <= date))
+        byDate.put(date, id);
+      table = table.append(cacheHash(id), id % 2 == 0 ? hash(id) : null, time, renames(id));
+
+      Assert.assertEquals(table.size(), id + 1);
+      for (long dateTime = 990_000; dateTime < 1_010_000; dateTime += 500) {
+        final Map.Entry<Long, Integer> entry = byDate.floorEntry(dateTime);
+        Assert.assertEquals(table.findByDate(dateTime), entry == null ? 0 : entry.getValue());
+      }
+    }
+
+    for (int id = 0; id < table.size(); ++id) {
+      Assert.assertEquals(table.getCacheCommit(id), cacheHash(id));
+      Assert.assertEquals(table.getGitCommit(id), id % 2 == 0 ? hash(id) : null);
+      Assert.assertEquals(table.getRenames(id), renames(id));
+    }
+
+    // Old snapshots are not affected by appends
+    for (int size = 0; size < tables.size(); ++size) {
+      final RevisionTable old = tables.get(size);
+      Assert.assertEquals(old.size(), size);
+      for (int id = 0; id < 100; id += 2) {
+        Assert.assertEquals(old.findByHash(hash(id)), id < size ? id : -1);
+      }
+    }
+    Assert.assertEquals(table.findByHash(hash(1)), -1);
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void outOfRange() {
+    new RevisionTable().append(cacheHash(0), null, 0, Collections.emptyMap()).getCommitTime(1);
+  }
+
+  private static ObjectId hash(int id) {
+    return ObjectId.fromRaw(new int[]{id + 1, id * 31, 0, 0, 0});
+  }
+
+  private static ObjectId cacheHash(int id) {
+    return ObjectId.fromRaw(new int[]{0, 0, 0, 0, id + 1});
+  }
+
+  private static Map<String, String> renames(int id) {
+    final Map<String, String> result = new HashMap<>();
+    for (int i = 0; i < id % 3; ++i)
+      result.put("new" + id + "/" + i, "old" + id + "/" + i);
+    return result;
+  }
+}
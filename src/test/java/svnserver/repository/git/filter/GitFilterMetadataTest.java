@@ -0,0 +1,144 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git.filter;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.HTreeMap;
+import org.mapdb.Serializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import svnserver.HashHelper;
+import svnserver.StringHelper;
+import svnserver.TestHelper;
+import svnserver.context.LocalContext;
+import svnserver.context.SharedContext;
+import svnserver.repository.git.GitObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Filter metadata cache test.
+ */
+public final class GitFilterMetadataTest {
+  @Test
+  public void singlePass() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+      final Repository git = new InMemoryRepository(new DfsRepositoryDescription(null));
+      final byte[] content = "Some\0binary\0content".getBytes(StandardCharsets.UTF_8);
+      final ObjectId blobId = insertGzip(git, content);
+
+      final GitFilter filter = new GitFilterGzip(new LocalContext(shared, "test"));
+      final GitObject<ObjectId> objectId = new GitObject<>(git, blobId);
+      final String md5 = StringHelper.toHex(HashHelper.md5().digest(content));
+      Assert.assertEquals(filter.getMd5(objectId), md5);
+
+      // All values are computed by first md5 or size call
+      final GitFilterMetadata metadata = GitFilterHelper.getCacheMetadata(filter, shared.getCacheStore()).get(blobId);
+      Assert.assertNotNull(metadata);
+      Assert.assertEquals(metadata.getSize(), content.length);
+      Assert.assertEquals(metadata.getMd5Hex(), md5);
+      Assert.assertEquals(metadata.isBinary(), Boolean.TRUE);
+      Assert.assertEquals(filter.getSize(objectId), content.length);
+      Assert.assertTrue(filter.isBinary(objectId));
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  @Test
+  public void binaryByHeader() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    try (SharedContext shared = SharedContext.create(basePath, "test", DBMaker.memoryDB().make(), Collections.emptyList())) {
+      final Repository git = new InMemoryRepository(new DfsRepositoryDescription(null));
+      final byte[] content = new byte[64 * 1024];
+      Arrays.fill(content, (byte) 'a');
+      final ObjectId blobId = insertGzip(git, content);
+
+      final GitFilter filter = new GitFilterGzip(new LocalContext(shared, "test"));
+      final GitObject<ObjectId> objectId = new GitObject<>(git, blobId);
+      Assert.assertFalse(filter.isBinary(objectId));
+
+      // Binary flag is detected by content header, size and md5 are left for first call that needs them
+      final HTreeMap<ObjectId, GitFilterMetadata> cache = GitFilterHelper.getCacheMetadata(filter, shared.getCacheStore());
+      final GitFilterMetadata binary = cache.get(blobId);
+      Assert.assertNotNull(binary);
+      Assert.assertEquals(binary.isBinary(), Boolean.FALSE);
+      Assert.assertEquals(binary.getSize(), GitFilterMetadata.UNKNOWN_SIZE);
+      Assert.assertNull(binary.getMd5());
+
+      Assert.assertEquals(filter.getSize(objectId), content.length);
+      final GitFilterMetadata full = cache.get(blobId);
+      Assert.assertNotNull(full);
+      Assert.assertEquals(full.getMd5Hex(), StringHelper.toHex(HashHelper.md5().digest(content)));
+      Assert.assertEquals(full.isBinary(), Boolean.FALSE);
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  @Test
+  public void migration() throws Exception {
+    final Path basePath = TestHelper.createTempDir("git-as-svn");
+    final DB db = DBMaker.memoryDB().make();
+    final ObjectId blobId = ObjectId.fromString("0123456789abcdef0123456789abcdef01234567");
+    final String md5 = "00112233445566778899aabbccddeeff";
+    db.hashMap("cache.filter.gzip.md5", Serializer.STRING, Serializer.STRING).create().put(blobId.name(), md5);
+    db.hashMap("cache.filter.gzip.size", Serializer.STRING, Serializer.LONG).create().put(blobId.name(), 42L);
+    final HTreeMap<String, Boolean> binaryCache = db.hashMap("cache.binary", Serializer.STRING, Serializer.BOOLEAN).create();
+    binaryCache.put("gzip " + blobId.name(), true);
+    binaryCache.put("raw " + blobId.name(), false);
+
+    try (SharedContext shared = SharedContext.create(basePath, "test", db, Collections.emptyList())) {
+      // Blob does not exist in repository: all values must be taken from cache
+      final Repository git = new InMemoryRepository(new DfsRepositoryDescription(null));
+      final GitObject<ObjectId> objectId = new GitObject<>(git, blobId);
+      final GitFilter filter = new GitFilterGzip(new LocalContext(shared, "test"));
+      Assert.assertEquals(filter.getMd5(objectId), md5);
+      Assert.assertEquals(filter.getSize(objectId), 42L);
+      Assert.assertTrue(filter.isBinary(objectId));
+
+      // Old caches are deleted, binary flags of other filters are moved to their caches
+      Assert.assertFalse(db.exists("cache.filter.gzip.md5"));
+      Assert.assertFalse(db.exists("cache.filter.gzip.size"));
+      Assert.assertFalse(db.exists("cache.binary"));
+      final GitFilterMetadata raw = GitFilterHelper.getCacheMetadata(new GitFilterRaw(new LocalContext(shared, "test")), shared.getCacheStore()).get(blobId);
+      Assert.assertNotNull(raw);
+      Assert.assertEquals(raw.isBinary(), Boolean.FALSE);
+    } finally {
+      TestHelper.deleteDirectory(basePath);
+    }
+  }
+
+  @NotNull
+  private static ObjectId insertGzip(@NotNull Repository git, @NotNull byte[] content) throws IOException {
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream stream = new GZIPOutputStream(compressed)) {
+      stream.write(content);
+    }
+    try (ObjectInserter inserter = git.newObjectInserter()) {
+      final ObjectId blobId = inserter.insert(Constants.OBJ_BLOB, compressed.toByteArray());
+      inserter.flush();
+      return blobId;
+    }
+  }
+}
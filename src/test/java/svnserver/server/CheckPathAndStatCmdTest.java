@@ -15,6 +15,9 @@ import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.io.ISVNEditor;
 import org.tmatesoft.svn.core.io.SVNRepository;
 import svnserver.tester.SvnTester;
 import svnserver.tester.SvnTesterDataProvider;
@@ -22,6 +25,7 @@ import svnserver.tester.SvnTesterExternalListener;
 import svnserver.tester.SvnTesterFactory;
 
 import static svnserver.SvnTestHelper.createFile;
+import static svnserver.SvnTestHelper.sendDeltaAndClose;
 import static svnserver.server.SvnFilePropertyTest.propsEolNative;
 
 /**
@@ -103,4 +107,31 @@ public final class CheckPathAndStatCmdTest {
       assertPath(repository, "/existent", repository.getLatestRevision(), SVNNodeKind.FILE);
     }
   }
+
+  @Test(dataProvider = "all", dataProviderClass = SvnTesterDataProvider.class)
+  public void nestedPaths(@NotNull SvnTesterFactory factory) throws Exception {
+    try (SvnTester tester = create(factory)) {
+      final SVNRepository repository = tester.openSvnRepository();
+      final ISVNEditor editor = repository.getCommitEditor("Create directory", null, false, null);
+      editor.openRoot(-1);
+      editor.addDir("/dir", null, -1);
+      editor.addFile("/dir/file", null, -1);
+      editor.changeFileProperty("/dir/file", SVNProperty.EOL_STYLE, SVNPropertyValue.create(SVNProperty.EOL_STYLE_NATIVE));
+      sendDeltaAndClose(editor, "/dir/file", null, "content");
+      editor.closeDir();
+      editor.closeDir();
+      editor.closeEdit();
+
+      final long revision = repository.getLatestRevision();
+      // Repeat lookups to check cached paths
+      for (int pass = 0; pass < 2; ++pass) {
+        assertPath(repository, "/dir", revision, SVNNodeKind.DIR);
+        assertPath(repository, "/dir/file", revision, SVNNodeKind.FILE);
+        assertPath(repository, "/dir/nonexistent", revision, SVNNodeKind.NONE);
+        assertPath(repository, "/dir/file/child", revision, SVNNodeKind.NONE);
+        assertPath(repository, "/existent", revision - 1, SVNNodeKind.FILE);
+        assertPath(repository, "/dir", revision - 1, SVNNodeKind.NONE);
+      }
+    }
+  }
 }
@@ -0,0 +1,44 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test for ConnectionLimiter.
+ */
+public final class ConnectionLimiterTest {
+  @Test
+  public void limit() {
+    final ConnectionLimiter limiter = new ConnectionLimiter(2);
+    Assert.assertTrue(limiter.tryAcquire("foo"));
+    Assert.assertTrue(limiter.tryAcquire("foo"));
+    Assert.assertFalse(limiter.tryAcquire("foo"));
+    Assert.assertTrue(limiter.tryAcquire("bar"));
+    Assert.assertEquals(limiter.getCount("foo"), 2);
+
+    limiter.release("foo");
+    Assert.assertEquals(limiter.getCount("foo"), 1);
+    Assert.assertTrue(limiter.tryAcquire("foo"));
+    Assert.assertFalse(limiter.tryAcquire("foo"));
+
+    limiter.release("foo");
+    limiter.release("foo");
+    Assert.assertEquals(limiter.getCount("foo"), 0);
+  }
+
+  @Test
+  public void unlimited() {
+    final ConnectionLimiter limiter = new ConnectionLimiter(0);
+    for (int i = 0; i < 100; ++i)
+      Assert.assertTrue(limiter.tryAcquire("foo"));
+
+    Assert.assertEquals(limiter.getCount("foo"), 0);
+  }
+}
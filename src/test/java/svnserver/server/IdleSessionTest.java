@@ -0,0 +1,130 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server;
+
+import org.jetbrains.annotations.NotNull;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import svnserver.SvnTestServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import static svnserver.SvnTestHelper.createFile;
+import static svnserver.server.SvnFilePropertyTest.propsEolNative;
+
+/**
+ * Idle session parking test.
+ */
+public final class IdleSessionTest {
+  private static final long WAIT_TIME = TimeUnit.SECONDS.toMillis(10);
+
+  @Test
+  public void parkAndResume() throws Exception {
+    try (SvnTestServer server = SvnTestServer.createEmpty()) {
+      final ConnectionStats stats = server.getConnectionStats();
+      final List<SVNRepository> repos = new ArrayList<>();
+      for (int i = 0; i < 10; ++i) {
+        final SVNRepository repo = server.openSvnRepository();
+        repo.getLatestRevision();
+        repos.add(repo);
+      }
+
+      // Idle sessions must not hold worker threads
+      waitFor(stats::getParked, repos.size());
+      waitFor(stats::getActiveWorkers, 0);
+
+      final SVNRepository repo = repos.get(0);
+      createFile(repo, "/foo.txt", "Some data", propsEolNative);
+      for (SVNRepository other : repos) {
+        Assert.assertEquals(other.getLatestRevision(), 1);
+      }
+      waitFor(stats::getParked, repos.size());
+
+      for (SVNRepository other : repos) {
+        other.closeSession();
+      }
+      waitFor(stats::getParked, 0);
+    }
+  }
+
+  /**
+   * Session must not be parked between commands of client that sends them one after another.
+   */
+  @Test
+  public void noParkBetweenCommands() throws Exception {
+    try (SvnTestServer server = SvnTestServer.createEmpty()) {
+      final ConnectionStats stats = server.getConnectionStats();
+      final SVNRepository repo = server.openSvnRepository();
+      createFile(repo, "/foo.txt", "Some data", propsEolNative);
+      waitFor(stats::getParked, 1);
+
+      final long parks = stats.getParkCount();
+      final int commands = 100;
+      for (int i = 0; i < commands; ++i) {
+        Assert.assertEquals(repo.getLatestRevision(), 1);
+        Assert.assertEquals(repo.checkPath("foo.txt", 1), SVNNodeKind.FILE);
+      }
+      // Only first command is expected to resume parked session
+      final long commandParks = stats.getParkCount() - parks;
+      Assert.assertTrue(commandParks <= commands / 10, "Session was parked " + commandParks + " times during " + commands * 2 + " commands");
+
+      // Idle session is still parked
+      waitFor(stats::getParked, 1);
+      repo.closeSession();
+    }
+  }
+
+  /**
+   * Queue timeout of previous submission must not reject resumed session.
+   */
+  @Test
+  public void resumeAfterQueueTimeout() throws Exception {
+    final long queueTimeout = 100;
+    try (SvnTestServer server = SvnTestServer.createEmpty(config -> {
+      config.setConnectionQueueTimeout(queueTimeout);
+      // Park session after every command
+      config.setParkIdleDelay(0);
+    })) {
+      final ConnectionStats stats = server.getConnectionStats();
+      final List<SVNRepository> repos = new ArrayList<>();
+      for (int i = 0; i < 3; ++i) {
+        repos.add(server.openSvnRepository());
+      }
+
+      for (int pass = 0; pass < 5; ++pass) {
+        // Resume parked sessions faster than queue timeout
+        for (int i = 0; i < 50; ++i) {
+          for (SVNRepository repo : repos) {
+            Assert.assertEquals(repo.getLatestRevision(), 0);
+          }
+        }
+        waitFor(stats::getParked, repos.size());
+        Thread.sleep(queueTimeout * 2);
+      }
+
+      for (SVNRepository repo : repos) {
+        Assert.assertEquals(repo.getLatestRevision(), 0);
+        repo.closeSession();
+      }
+      Assert.assertEquals(stats.getRejectedQueueTimeout(), 0);
+    }
+  }
+
+  private static void waitFor(@NotNull IntSupplier supplier, int expected) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + WAIT_TIME;
+    while (supplier.getAsInt() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(supplier.getAsInt(), expected);
+  }
+}
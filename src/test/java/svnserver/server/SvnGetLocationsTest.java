@@ -19,8 +19,12 @@ import org.tmatesoft.svn.core.io.ISVNEditor;
 import org.tmatesoft.svn.core.io.ISVNLocationSegmentHandler;
 import org.tmatesoft.svn.core.io.SVNRepository;
 import svnserver.SvnTestServer;
+import svnserver.parser.SvnServerParser;
+import svnserver.parser.SvnServerWriter;
+import svnserver.parser.token.ListBeginToken;
 
 import java.io.IOException;
+import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -177,6 +181,91 @@ public final class SvnGetLocationsTest {
     }
   }
 
+  @Test
+  public void deletedRev() throws Exception {
+    try (SvnTestServer server = SvnTestServer.createEmpty()) {
+      final SVNRepository repo = server.openSvnRepository();
+      initRepo(repo);
+
+      final long last = repo.getLatestRevision();
+      Assert.assertEquals(repo.getDeletedRevision("/foo/test.txt", 1, last), 2);
+      Assert.assertEquals(repo.getDeletedRevision("/foo", 1, 2), 2);
+      Assert.assertEquals(repo.getDeletedRevision("/bar/test.txt", 2, last), 4);
+      checkNotDeleted(repo, "/bar/test.txt", 2, 3);
+      checkNotDeleted(repo, "/baz/test.txt", 4, last);
+      checkNotDeleted(repo, "/baz/test.txt", 1, last);
+    }
+  }
+
+  /**
+   * Reversed revision range is swapped, same as svnserve does. SVNKit client rejects it, so raw command is sent.
+   */
+  @Test
+  public void deletedRevReversed() throws Exception {
+    try (SvnTestServer server = SvnTestServer.createEmpty(null, true)) {
+      final SVNRepository repo = server.openSvnRepository();
+      initRepo(repo);
+      final long last = repo.getLatestRevision();
+
+      try (Socket socket = new Socket(server.getUrl().getHost(), server.getUrl().getPort())) {
+        final SvnServerParser parser = new SvnServerParser(socket.getInputStream());
+        final SvnServerWriter writer = new SvnServerWriter(socket.getOutputStream());
+        // Greeting
+        skipResponse(parser);
+        writer
+            .listBegin()
+            .number(2)
+            .listBegin()
+            .word("edit-pipeline")
+            .listEnd()
+            .string(server.getUrl().toString())
+            .string("test")
+            .listEnd();
+        // Authentication request, result and repository info
+        skipResponse(parser);
+        writer
+            .listBegin()
+            .word("ANONYMOUS")
+            .listBegin()
+            .string("")
+            .listEnd()
+            .listEnd();
+        skipResponse(parser);
+        skipResponse(parser);
+
+        writer
+            .listBegin()
+            .word("get-deleted-rev")
+            .listBegin()
+            .string("bar/test.txt")
+            .number(last)
+            .number(2)
+            .listEnd()
+            .listEnd();
+        // Command authentication
+        skipResponse(parser);
+        parser.readToken(ListBeginToken.class);
+        Assert.assertEquals(parser.readText(), "success");
+        parser.readToken(ListBeginToken.class);
+        Assert.assertEquals(parser.readNumber(), 4);
+      }
+    }
+  }
+
+  private static void skipResponse(@NotNull SvnServerParser parser) throws IOException {
+    parser.readToken(ListBeginToken.class);
+    parser.skipItems();
+  }
+
+  private void checkNotDeleted(@NotNull SVNRepository repo, @NotNull String path, long pegRev, long endRev) {
+    try {
+      repo.getDeletedRevision(path, pegRev, endRev);
+      Assert.fail();
+    } catch (SVNException e) {
+      Assert.assertEquals(e.getErrorMessage().getErrorCode(), SVNErrorCode.ENTRY_MISSING_REVISION);
+    }
+  }
+
   private void checkGetLocations(@NotNull SVNRepository repo, @NotNull String path, long pegRev, long targetRev, @Nullable String expectedPath) throws SVNException {
     final List<String> paths = new ArrayList<>();
     repo.getLocations(path, pegRev, new long[]{targetRev}, locationEntry -> {
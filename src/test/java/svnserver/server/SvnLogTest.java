@@ -84,6 +84,32 @@ public final class SvnLogTest {
     }
   }
 
+  /**
+   * Check log limit on history longer than single response chunk.
+   */
+  @Test
+  public void longHistory() throws Exception {
+    try (SvnTestServer server = SvnTestServer.createEmpty()) {
+      final SVNRepository repo = server.openSvnRepository();
+      // r1 - add file, r2..r80 - modify file, r81 - add other file
+      createFile(repo, "/foo.txt", "0", propsEolNative);
+      for (int i = 1; i < 80; ++i)
+        modifyFile(repo, "/foo.txt", String.valueOf(i), repo.getLatestRevision());
+      createFile(repo, "/bar.txt", "", propsEolNative);
+      final long last = repo.getLatestRevision();
+
+      final LogEntry[] history = new LogEntry[80];
+      history[0] = new LogEntry(1, "Create file: /foo.txt", "A /foo.txt");
+      for (int i = 1; i < history.length; ++i)
+        history[i] = new LogEntry(i + 1, "Modify file: /foo.txt", "M /foo.txt");
+
+      checkLog(repo, 0, last, "/foo.txt", history);
+      checkLogLimit(repo, 0, last, 5, "/foo.txt", Arrays.copyOf(history, 5));
+      checkLogLimit(repo, 10, 70, 70, "/foo.txt", Arrays.copyOfRange(history, 9, 70));
+      checkLogLimit(repo, last, 0, 3, "/foo.txt", history[79], history[78], history[77]);
+    }
+  }
+
   private void checkLog(@NotNull SVNRepository repo, long r1, long r2, @NotNull String path, @NotNull LogEntry... expecteds) throws SVNException {
     checkLogLimit(repo, r1, r2, 0, path, expecteds);
   }
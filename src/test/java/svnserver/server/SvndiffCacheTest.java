@@ -0,0 +1,214 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc2.SvnCheckout;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+import svnserver.SvnTestHelper;
+import svnserver.SvnTestServer;
+import svnserver.TestHelper;
+import svnserver.config.SvndiffCacheConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Test for svndiff cache.
+ */
+public final class SvndiffCacheTest {
+  @Test
+  public void readWrite() throws Exception {
+    final Path root = TestHelper.createTempDir("git-as-svn");
+    try {
+      final SvndiffCache cache = new SvndiffCache(root, 1024 * 1024, 0);
+      final String key = SvndiffCache.key("raw", "0123456789abcdef", SVNDeltaCompression.LZ4);
+      Assert.assertNull(read(cache, key));
+
+      try (SvndiffCache.Writer writer = cache.create(key)) {
+        writer.write(bytes("SVN\u0001"), 0, 4);
+        writer.write(bytes("xxwindowxx"), 2, 6);
+        writer.commit();
+      }
+      Assert.assertEquals(read(cache, key), "SVN\u0001|window|");
+      Assert.assertEquals(cache.getHits(), 1);
+      Assert.assertEquals(cache.getMisses(), 1);
+      Assert.assertEquals(cache.getBytesServed(), 10);
+
+      // Entries survive restart
+      final SvndiffCache reloaded = new SvndiffCache(root, 1024 * 1024, 0);
+      Assert.assertEquals(reloaded.getSize(), cache.getSize());
+      Assert.assertEquals(read(reloaded, key), "SVN\u0001|window|");
+    } finally {
+      TestHelper.deleteDirectory(root);
+    }
+  }
+
+  /**
+   * Broken entry must be removed without sending anything.
+   */
+  @Test
+  public void brokenEntry() throws Exception {
+    final Path root = TestHelper.createTempDir("git-as-svn");
+    try {
+      final SvndiffCache cache = new SvndiffCache(root, 1024 * 1024, 0);
+      final byte[] window = new byte[100];
+      for (byte[] broken : new byte[][]{
+          // Window length is out of entry
+          ByteBuffer.allocate(Integer.BYTES + window.length).putInt(0, Integer.MAX_VALUE).array(),
+          // Last window is truncated
+          ByteBuffer.allocate(Integer.BYTES + window.length).putInt(0, 60).putInt(64, 60).array(),
+      }) {
+        put(cache, "ab", window);
+        final Path path;
+        try (Stream<Path> files = Files.walk(root)) {
+          path = files.filter(Files::isRegularFile).findFirst().orElseThrow(IllegalStateException::new);
+        }
+        Files.write(path, broken);
+
+        final AtomicInteger windows = new AtomicInteger();
+        Assert.assertFalse(cache.read("ab", (data, offset, length) -> windows.incrementAndGet()));
+        Assert.assertEquals(windows.get(), 0);
+        Assert.assertFalse(Files.exists(path));
+        Assert.assertEquals(cache.getSize(), 0);
+      }
+      Assert.assertEquals(cache.getHits(), 0);
+
+      // Entry can be written again
+      put(cache, "ab", window);
+      Assert.assertNotNull(read(cache, "ab"));
+    } finally {
+      TestHelper.deleteDirectory(root);
+    }
+  }
+
+  @Test
+  public void uncommitted() throws Exception {
+    final Path root = TestHelper.createTempDir("git-as-svn");
+    try {
+      final SvndiffCache cache = new SvndiffCache(root, 1024 * 1024, 0);
+      final String key = SvndiffCache.key("raw", "0123456789abcdef", SVNDeltaCompression.None);
+      try (SvndiffCache.Writer writer = cache.create(key)) {
+        writer.write(bytes("window"), 0, 6);
+      }
+      Assert.assertNull(read(cache, key));
+      Assert.assertEquals(cache.getSize(), 0);
+    } finally {
+      TestHelper.deleteDirectory(root);
+    }
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() throws Exception {
+    final Path root = TestHelper.createTempDir("git-as-svn");
+    try {
+      final byte[] window = new byte[100];
+      final long entrySize = Integer.BYTES + window.length;
+      final SvndiffCache cache = new SvndiffCache(root, entrySize * 3, 0);
+      for (int i = 0; i < 3; ++i)
+        put(cache, "a" + i, window);
+
+      // Make first entry most recently used
+      Assert.assertNotNull(read(cache, "a0"));
+      put(cache, "a3", window);
+
+      Assert.assertEquals(cache.getEvicted(), 1);
+      Assert.assertEquals(cache.getSize(), entrySize * 3);
+      Assert.assertNotNull(read(cache, "a0"));
+      Assert.assertNull(read(cache, "a1"));
+      Assert.assertNotNull(read(cache, "a2"));
+      Assert.assertNotNull(read(cache, "a3"));
+    } finally {
+      TestHelper.deleteDirectory(root);
+    }
+  }
+
+  @Test
+  public void accepts() throws Exception {
+    final Path root = TestHelper.createTempDir("git-as-svn");
+    try {
+      final SvndiffCache cache = new SvndiffCache(root, 8000, 100);
+      Assert.assertFalse(cache.accepts(99));
+      Assert.assertTrue(cache.accepts(100));
+      Assert.assertTrue(cache.accepts(1000));
+      Assert.assertFalse(cache.accepts(1001));
+    } finally {
+      TestHelper.deleteDirectory(root);
+    }
+  }
+
+  /**
+   * Second checkout of same content must be served from cache and produce same working copy.
+   */
+  @Test
+  public void checkout() throws Exception {
+    final Path cacheRoot = TestHelper.createTempDir("git-as-svn");
+    try (SvnTestServer server = SvnTestServer.createEmpty(null, false, SvnTestServer.LfsMode.None, new SvndiffCacheConfig(cacheRoot.toString(), 1024 * 1024, 0))) {
+      final byte[] content = new byte[10000];
+      Arrays.fill(content, (byte) 'x');
+      SvnTestHelper.createFile(server.openSvnRepository(), "/big.txt", content, SvnFilePropertyTest.propsEolNative);
+      SvnTestHelper.createFile(server.openSvnRepository(), "/small.txt", "small", SvnFilePropertyTest.propsEolNative);
+
+      final SvndiffCache cache = server.getContext().sure(SvndiffCache.class);
+      final SvnOperationFactory factory = server.createOperationFactory();
+      for (int pass = 0; pass < 2; ++pass) {
+        final Path wc = server.getTempDirectory().resolve("wc" + pass);
+        final SvnCheckout checkout = factory.createCheckout();
+        checkout.setSource(SvnTarget.fromURL(server.getUrl()));
+        checkout.setSingleTarget(SvnTarget.fromFile(wc.toFile()));
+        checkout.setRevision(SVNRevision.HEAD);
+        checkout.run();
+
+        Assert.assertEquals(Files.readAllBytes(wc.resolve("big.txt")), content);
+        Assert.assertEquals(new String(Files.readAllBytes(wc.resolve("small.txt")), StandardCharsets.UTF_8), "small");
+      }
+      Assert.assertEquals(cache.getHits(), 2);
+      Assert.assertEquals(cache.getMisses(), 2);
+    } finally {
+      TestHelper.deleteDirectory(cacheRoot);
+    }
+  }
+
+  private static void put(@NotNull SvndiffCache cache, @NotNull String key, @NotNull byte[] window) throws IOException {
+    try (SvndiffCache.Writer writer = cache.create(key)) {
+      writer.write(window, 0, window.length);
+      writer.commit();
+    }
+  }
+
+  @Nullable
+  private static String read(@NotNull SvndiffCache cache, @NotNull String key) throws IOException, SVNException {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    final boolean found = cache.read(key, (data, offset, length) -> {
+      result.write(data, offset, length);
+      result.write('|');
+    });
+    if (!found)
+      return null;
+    return new String(result.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+
+  @NotNull
+  private static byte[] bytes(@NotNull String text) {
+    return text.getBytes(StandardCharsets.ISO_8859_1);
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.tmatesoft.svn.core.SVNException;
+import svnserver.parser.SvnServerWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Test for ordered delta output.
+ */
+public final class DeltaOutputTest {
+  private static final int FILES = 200;
+
+  @DataProvider
+  public static Object[][] providerLookahead() {
+    return new Object[][]{
+        {0},
+        {1},
+        {4096},
+        {1024 * 1024},
+    };
+  }
+
+  @Test(dataProvider = "providerLookahead")
+  public void order(long lookahead) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Assert.assertEquals(drive(executor, lookahead), drive(null, 0));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void failure() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final DeltaOutput output = new DeltaOutput(new SvnServerWriter(new ByteArrayOutputStream()), executor, 1024 * 1024);
+      output.getWriter().listBegin().word("open-root").listEnd();
+      output.writeDelta(writer -> {
+        throw new IOException("Broken file");
+      }, 100);
+      output.getWriter().listBegin().word("close-edit").listEnd();
+      output.flush();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @NotNull
+  private static String drive(@Nullable ExecutorService executor, long lookahead) throws IOException, SVNException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    final SvnServerWriter writer = new SvnServerWriter(stream);
+    final DeltaOutput output = new DeltaOutput(writer, executor, lookahead);
+    final Random random = new Random(0);
+    for (int i = 0; i < FILES; ++i) {
+      final String tokenId = "t" + i;
+      output.getWriter()
+          .listBegin()
+          .word("add-file")
+          .listBegin()
+          .string("file" + i)
+          .string(tokenId)
+          .listEnd()
+          .listEnd();
+      final byte[] content = new byte[random.nextInt(1000)];
+      random.nextBytes(content);
+      output.writeDelta(deltaWriter -> {
+        if (executor != null)
+          sleep();
+        deltaWriter
+            .listBegin()
+            .word("textdelta-chunk")
+            .listBegin()
+            .string(tokenId)
+            .binary(content)
+            .listEnd()
+            .listEnd();
+      }, content.length);
+      output.getWriter()
+          .listBegin()
+          .word("close-file")
+          .listBegin()
+          .string(tokenId)
+          .listEnd()
+          .listEnd();
+    }
+    output.flush();
+    writer.close();
+    return new String(stream.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+
+  private static void sleep() throws IOException {
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    }
+  }
+}